@@ -0,0 +1,210 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <b>AlternativeRoutes</b> finds up to k routes between two nodes that
+ * differ meaningfully, by the penalty method: after every search the arcs
+ * of the route found get heavier by PENALTY of their weight, and the next
+ * search finds the best route under the penalized weights. A route is kept
+ * if at most maxShared of its cost lies on arcs of a route kept before and
+ * it costs at most maxStretch times the best route; every route found adds
+ * its penalty, kept or not.
+ * All searches share one search tree: a single Dijkstra from the target,
+ * run on from the source to maxStretch times the best cost, gives the
+ * exact distance to the target of every node a kept route can pass. Penalties only raise
+ * weights, so those distances stay a consistent A* potential for every
+ * search; a search expands little more than the nodes along its route and
+ * never a node beyond the bound. The penalized weights are a per-thread
+ * copy of the weights, put back arc by arc after every query.
+ * Penalties never make a route unreachable, so the searches stop after
+ * STALL routes in a row are turned down, and k is at most MAX_ROUTES.
+ */
+public final class AlternativeRoutes
+{
+    /** The default largest share of a route's cost on earlier routes. */
+    public static final double MAX_SHARED = 0.6;
+    /** The default largest cost of a route over the cost of the best. */
+    public static final double MAX_STRETCH = 1.5;
+    /** The largest number of routes one query may ask for. */
+    public static final int MAX_ROUTES = 10;
+    private static final double PENALTY = 0.5;
+    // searches per route asked for before giving up on more
+    private static final int ATTEMPTS = 8;
+    // routes turned down in a row before giving up on more
+    private static final int STALL = 8;
+
+    /** The last weights a thread penalized and its copy of them. */
+    private static final class Scratch
+    {
+        double[] source;
+        double[] weights;
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private AlternativeRoutes()
+    {
+    }
+
+    /**
+     * @param: graph       The frozen graph to search; every arc has its
+     *                     reverse with the same weight.
+     * @param: weights     The weight of every arc of graph by arc position,
+     *                     e.g. the layer of a RoutingProfile.
+     * @param: source      The index of the starting node.
+     * @param: target      The index of the destination node.
+     * @param: k           The largest number of routes wanted.
+     * @param: maxShared   The largest share of a route's cost that may lie
+     *                     on the routes kept before it.
+     * @param: maxStretch  The largest cost of a route over the best cost.
+     * @param: workspace   The per-thread state; the search tree lives in its
+     *                     backward half.
+     *
+     * @requires  0 < k <= MAX_ROUTES && 0 <= maxShared < 1 && maxStretch >= 1; plus the
+     *            requirements of the weighted dijkstra.
+     *
+     * @modifies  workspace
+     *
+     * @returns   the routes kept as node indices from source to target,
+     *            best first; empty if target is unreachable.
+     */
+    public static List<int[]> find(CompactGraph<?> graph, double[] weights, int source, int target, int k,
+                                   double maxShared, double maxStretch, SearchWorkspace workspace)
+    {
+        ArrayList<int[]> routes = new ArrayList<>();
+        if(source == target || k == 1)
+        {
+            // the best route alone needs no tree
+            if(PathFinder.dijkstra(graph, weights, source, target, workspace) < Double.POSITIVE_INFINITY)
+                routes.add(Arrays.copyOf(workspace.path(), workspace.tracePath(target)));
+            return routes;
+        }
+        SearchWorkspace tree = workspace.backward();
+        double best = tree(graph, weights, target, source, maxStretch, tree);
+        if(best == Double.POSITIVE_INFINITY)
+            return routes;
+        double limit = best * maxStretch;
+
+        Scratch scratch = SCRATCH.get();
+        if(scratch.source != weights)
+        {
+            scratch.weights = weights.clone();
+            scratch.source = weights;
+        }
+        double[] penalized = scratch.weights;
+        int[] touched = new int[64];
+        int penalties = 0;
+        ArrayList<int[]> keptArcs = new ArrayList<>();
+        int rejected = 0;
+        try
+        {
+            for(int attempt = 0; attempt < (long) ATTEMPTS * k && routes.size() < k && rejected < STALL; attempt++)
+            {
+                if(PathFinder.astar(graph, penalized, tree, source, target, workspace) == Double.POSITIVE_INFINITY)
+                    break;
+                int[] path = Arrays.copyOf(workspace.path(), workspace.tracePath(target));
+                int[] arcs = new int[path.length - 1];
+                double cost = 0.0;
+                for(int i = 1; i < path.length; i++)
+                {
+                    arcs[i - 1] = graph.findEdge(path[i - 1], path[i]);
+                    cost += weights[arcs[i - 1]];
+                }
+                // the first search is on the plain weights and finds the best route
+                if(attempt == 0 || cost <= limit && distinct(arcs, cost, keptArcs, weights, maxShared))
+                {
+                    routes.add(path);
+                    int[] sorted = arcs.clone();
+                    Arrays.sort(sorted);
+                    keptArcs.add(sorted);
+                    rejected = 0;
+                }
+                else
+                {
+                    rejected++;
+                }
+                if(penalties + arcs.length > touched.length)
+                    touched = Arrays.copyOf(touched, Math.max(2 * touched.length, penalties + arcs.length));
+                for(int e: arcs)
+                {
+                    penalized[e] += PENALTY * weights[e];
+                    touched[penalties++] = e;
+                }
+            }
+        }
+        finally
+        {
+            for(int i = 0; i < penalties; i++)
+                penalized[touched[i]] = weights[touched[i]];
+        }
+        return routes;
+    }
+
+    /**
+     * @effects   Runs Dijkstra from target until source is settled at its
+     *            distance best, then on until every node within
+     *            maxStretch * best of target is settled. The nodes left in
+     *            the heap are farther; they are relabelled unreachable, so
+     *            the tree reaches exactly the nodes within the bound. The
+     *            arcs are symmetric, so these are the distances to target.
+     * @returns   best, or Double.POSITIVE_INFINITY if source is unreachable.
+     */
+    private static double tree(CompactGraph<?> graph, double[] weights, int target, int source, double maxStretch,
+                               SearchWorkspace tree)
+    {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        IndexedHeap heap = tree.heap;
+        double[] distance = tree.distance;
+        double best = Double.POSITIVE_INFINITY;
+        double limit = Double.POSITIVE_INFINITY;
+
+        tree.reset();
+        tree.set(target, 0.0, -1);
+        heap.push(target, 0.0);
+        while(!heap.isEmpty() && heap.peekKey() <= limit)
+        {
+            double currDistance = heap.peekKey();
+            int currNode = heap.pop();
+            if(currNode == source)
+            {
+                best = currDistance;
+                limit = best * maxStretch;
+            }
+            for(int e = offsets[currNode], end = offsets[currNode + 1]; e < end; e++)
+            {
+                int child = targets[e];
+                double newDistance = currDistance + weights[e];
+                if(!tree.reached(child) || newDistance < distance[child])
+                {
+                    tree.set(child, newDistance, currNode);
+                    heap.push(child, newDistance);
+                }
+            }
+        }
+        while(!heap.isEmpty())
+            tree.set(heap.pop(), Double.POSITIVE_INFINITY, -1);
+        return best;
+    }
+
+    // whether at most maxShared of cost lies on the arcs of every kept route
+    private static boolean distinct(int[] arcs, double cost, List<int[]> keptArcs, double[] weights,
+                                    double maxShared)
+    {
+        for(int[] kept: keptArcs)
+        {
+            double shared = 0.0;
+            for(int e: arcs)
+            {
+                if(Arrays.binarySearch(kept, e) >= 0)
+                    shared += weights[e];
+            }
+            if(shared > maxShared * cost)
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,102 @@
+package backend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.stream.IntStream;
+
+/**
+ * <b>BatchQueries</b> answers a stream of "from,to" route queries, one per
+ * line, for offline jobs such as accessibility audits. Lines are read in
+ * chunks; each chunk is solved in parallel on the common fork-join pool and
+ * then written in input order, so memory stays bounded however long the
+ * input is. Latency of every query is recorded in a Histogram for the
+ * final report, whose percentiles are within its bucket width.
+ */
+public class BatchQueries
+{
+    private static final int CHUNK = 4096;
+
+    private final CampusGraph graph;
+    private final SearchMode mode;
+    private final Histogram latencies = new Histogram();
+    private int count;
+    private long elapsedNanos;
+
+    /**
+     * @param: graph  The populated campus graph to query.
+     * @param: mode   The search mode used for every query.
+     */
+    public BatchQueries(CampusGraph graph, SearchMode mode)
+    {
+        this.graph = graph;
+        this.mode = mode;
+    }
+
+    /**
+     * @param: in   Queries, one "from,to" pair of building ids or names per line.
+     * @param: out  Receives the findPath output of every query, in input order.
+     * @effects   Solves every query in in and writes the results to out.
+     *            A line without a comma produces "Malformed query: [line]".
+     * @throws    IOException if in cannot be read or out cannot be written.
+     */
+    public void run(BufferedReader in, Writer out) throws IOException
+    {
+        long start = System.nanoTime();
+        // the report covers this run only
+        latencies.reset();
+        count = 0;
+        String[] lines = new String[CHUNK];
+        String[] results = new String[CHUNK];
+        while(true)
+        {
+            int size = 0;
+            String line;
+            while(size < CHUNK && (line = in.readLine()) != null)
+            {
+                if(!line.isEmpty())
+                    lines[size++] = line;
+            }
+            if(size == 0)
+                break;
+            IntStream.range(0, size).parallel().forEach(i -> {
+                long t0 = System.nanoTime();
+                results[i] = answer(lines[i]);
+                latencies.record(System.nanoTime() - t0);
+            });
+            for(int i = 0; i < size; i++)
+                out.write(results[i]);
+            count += size;
+        }
+        out.flush();
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    private String answer(String line)
+    {
+        int comma = line.indexOf(',');
+        if(comma < 0)
+            return "Malformed query: [" + line + "]\n";
+        return graph.findPath(line.substring(0, comma).trim(), line.substring(comma + 1).trim(), mode);
+    }
+
+    /**
+     * @returns   the number of queries answered by the last run.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @returns   a one-line summary of the last run: query count, wall
+     *            time, throughput and p50/p99 per-query latency.
+     */
+    public String report()
+    {
+        double seconds = elapsedNanos / 1e9;
+        return String.format("%d queries in %.3f s: %.0f queries/s, p50 %.1f us, p99 %.1f us",
+                count, seconds, count / Math.max(seconds, 1e-9), latencies.getPercentile(0.50) / 1e3,
+                latencies.getPercentile(0.99) / 1e3);
+    }
+}
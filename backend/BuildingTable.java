@@ -0,0 +1,392 @@
+package backend;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * <b>BuildingTable</b> is a precomputed, <b>immutable</b> all-pairs table
+ * between the named buildings of a map. It is built by one full search per
+ * building, run in parallel, and holds:
+ *   distance[a][b]  the shortest distance from building a to building b, and
+ *   nextHop[b][v]   the node after v on a shortest path from v to building b.
+ * A route between two buildings is then a walk along nextHop with no search.
+ * Memory is 4 * buildings^2 + 4 * buildings * nodes bytes.
+ */
+public final class BuildingTable
+{
+    private final CompactGraph<?> graph;
+    private final int[] buildings;
+    private final int[] slot;
+    final float[][] distance;
+    final int[][] nextHop;
+
+    private BuildingTable(CompactGraph<?> graph, int[] buildings, int[] slot, float[][] distance, int[][] nextHop)
+    {
+        this.graph = graph;
+        this.buildings = buildings;
+        this.slot = slot;
+        this.distance = distance;
+        this.nextHop = nextHop;
+    }
+
+    /**
+     * @param: graph      The frozen graph.
+     * @param: transpose  The transpose of graph; graph itself if undirected.
+     * @param: buildings  The node indices of the buildings to tabulate.
+     * @param: parallel   If true, the per-building searches run on the
+     *                    common fork-join pool.
+     * @requires  no duplicates in buildings
+     * @effects   Runs one search per building on transpose, so that the
+     *            predecessor of every node is its next hop towards that
+     *            building in graph.
+     * @returns   The table for buildings.
+     */
+    public static BuildingTable build(CompactGraph<?> graph, CompactGraph<?> transpose, int[] buildings, boolean parallel)
+    {
+        int n = graph.size();
+        int count = buildings.length;
+        int[] slot = new int[n];
+        Arrays.fill(slot, -1);
+        for(int b = 0; b < count; b++)
+            slot[buildings[b]] = b;
+        float[][] distance = new float[count][count];
+        int[][] nextHop = new int[count][];
+
+        IntStream targets = IntStream.range(0, count);
+        if(parallel)
+            targets = targets.parallel();
+        targets.forEach(b -> {
+            SearchWorkspace workspace = SearchWorkspace.forThread(n);
+            PathFinder.dijkstra(transpose, buildings[b], -1, workspace);
+            int[] hop = new int[n];
+            for(int v = 0; v < n; v++)
+                hop[v] = workspace.reached(v) ? workspace.predecessor(v) : -1;
+            nextHop[b] = hop;
+            // each search owns column b of the distance matrix
+            for(int a = 0; a < count; a++)
+                distance[a][b] = (float) workspace.distance(buildings[a]);
+        });
+        return new BuildingTable(graph, buildings.clone(), slot, distance, nextHop);
+    }
+
+    /**
+     * @param: graph      The graph after a live edit.
+     * @param: transpose  The transpose of graph; graph itself if undirected.
+     * @param: from       Together with to, the arcs whose weight differs
+     *                    between the graph this table was built for and
+     *                    graph; a missing arc weighs +infinity.
+     * @param: to         The heads of those arcs.
+     * @param: parallel   If true, rows are checked and repaired on the
+     *                    common fork-join pool.
+     * @requires  graph holds the same buildings at the same indices.
+     * @returns   A table for graph. A row is shared with this table unless a
+     *            changed arc is one of its tree arcs, now offers a shorter way
+     *            to its building, or graph has new nodes. Such a row is
+     *            repaired rather than searched again: only the nodes below a
+     *            dearer tree arc lose their distance, and a search seeded
+     *            from their intact neighbours and the cheaper arcs settles
+     *            just the nodes whose distance changes.
+     */
+    BuildingTable update(CompactGraph<?> graph, CompactGraph<?> transpose, int[] from, int[] to, boolean parallel)
+    {
+        int n = graph.size();
+        int count = buildings.length;
+        int[] resized = Arrays.copyOf(slot, n);
+        for(int v = slot.length; v < n; v++)
+            resized[v] = -1;
+        float[][] updated = new float[count][];
+        for(int a = 0; a < count; a++)
+            updated[a] = distance[a].clone();
+        int[][] hops = new int[count][];
+
+        IntStream rows = IntStream.range(0, count);
+        if(parallel)
+            rows = rows.parallel();
+        rows.forEach(b -> hops[b] = unchanged(b, graph, from, to) ? nextHop[b] : repair(b, graph, transpose, from, to, updated));
+        return new BuildingTable(graph, buildings, resized, updated, hops);
+    }
+
+    // true if no shortest path to building b can be affected by the edit
+    private boolean unchanged(int b, CompactGraph<?> graph, int[] from, int[] to)
+    {
+        int[] hop = nextHop[b];
+        int old = hop.length;
+        if(graph.size() != old)
+            return false;
+        for(int i = 0; i < from.length; i++)
+        {
+            int u = from[i];
+            int v = to[i];
+            if(u >= old)
+                continue;
+            if(hop[u] == v)
+                return false;
+            // a cheaper arc off the tree is harmless unless it undercuts u
+            if(v < old && weight(graph, u, v) < weight(this.graph, u, v)
+                    && weight(graph, u, v) + toBuilding(hop, v, b) < toBuilding(hop, u, b))
+                return false;
+        }
+        return true;
+    }
+
+    // row b rebuilt for graph from the tree of this table; the entries of
+    // column b of distance that changed are rewritten
+    private int[] repair(int b, CompactGraph<?> graph, CompactGraph<?> transpose, int[] from, int[] to, float[][] distance)
+    {
+        int[] hop = nextHop[b];
+        int n = graph.size();
+        // clearing the edits drops the temporary nodes at the end
+        int old = Math.min(hop.length, n);
+        // the old tree distances, NaN until summed up and +infinity once cut
+        // off; the distances the repair finds are kept in the workspace
+        double[] reach = new double[n];
+        Arrays.fill(reach, 0, old, Double.NaN);
+        Arrays.fill(reach, old, n, Double.POSITIVE_INFINITY);
+        reach[buildings[b]] = 0.0;
+        int[] repaired = Arrays.copyOf(hop, n);
+
+        // the tails of dearer tree arcs are cut off with all the nodes below;
+        // an arc to a dropped node is one of them. New nodes start cut off
+        int[] cut = new int[Math.max(16, n - old)];
+        int cutCount = 0;
+        for(int v = old; v < n; v++)
+            cut[cutCount++] = v;
+        for(int i = 0; i < from.length; i++)
+        {
+            int u = from[i];
+            if(u >= old || hop[u] != to[i] || reach[u] == Double.POSITIVE_INFINITY
+                    || weight(graph, u, to[i]) <= weight(this.graph, u, to[i]))
+                continue;
+            int head = cutCount;
+            reach[u] = Double.POSITIVE_INFINITY;
+            cut = push(cut, cutCount++, u);
+            while(head < cutCount)
+            {
+                int x = cut[head++];
+                // a child of x in the tree still has its arc to x unless it
+                // is the tail of a dearer tree arc itself
+                for(int e = transpose.firstEdge(x); e < transpose.endEdge(x); e++)
+                {
+                    int y = transpose.target(e);
+                    if(y < old && hop[y] == x && reach[y] != Double.POSITIVE_INFINITY)
+                    {
+                        reach[y] = Double.POSITIVE_INFINITY;
+                        cut = push(cut, cutCount++, y);
+                    }
+                }
+            }
+        }
+
+        SearchWorkspace workspace = SearchWorkspace.forThread(n);
+        workspace.reset();
+        IndexedHeap heap = workspace.heap;
+        int[] stack = workspace.path();
+        for(int c = 0; c < cutCount; c++)
+        {
+            int t = cut[c];
+            repaired[t] = -1;
+            // the best way out of the cut through a node that kept its path
+            for(int e = graph.firstEdge(t); e < graph.endEdge(t); e++)
+            {
+                int x = graph.target(e);
+                double candidate = treeDistance(x, hop, reach, stack) + graph.weight(e);
+                if(candidate < workspace.distance(t))
+                {
+                    workspace.set(t, candidate, x);
+                    repaired[t] = x;
+                }
+            }
+            if(repaired[t] >= 0)
+                heap.push(t, workspace.distance(t));
+        }
+        for(int i = 0; i < from.length; i++)
+        {
+            int u = from[i];
+            int v = to[i];
+            double w = weight(graph, u, v);
+            if(u < n && w < weight(this.graph, u, v))
+            {
+                double candidate = label(v, hop, reach, stack, workspace) + w;
+                if(candidate < label(u, hop, reach, stack, workspace))
+                {
+                    workspace.set(u, candidate, v);
+                    repaired[u] = v;
+                    heap.push(u, candidate);
+                }
+            }
+        }
+        while(!heap.isEmpty())
+        {
+            double d = heap.peekKey();
+            int x = heap.pop();
+            if(x < slot.length && slot[x] >= 0)
+                distance[slot[x]][b] = (float) d;
+            for(int e = transpose.firstEdge(x); e < transpose.endEdge(x); e++)
+            {
+                int y = transpose.target(e);
+                double candidate = d + transpose.weight(e);
+                if(candidate < label(y, hop, reach, stack, workspace))
+                {
+                    workspace.set(y, candidate, x);
+                    repaired[y] = x;
+                    heap.push(y, candidate);
+                }
+            }
+        }
+        // buildings cut off for good
+        for(int c = 0; c < cutCount; c++)
+        {
+            int t = cut[c];
+            if(t < slot.length && slot[t] >= 0 && repaired[t] < 0)
+                distance[slot[t]][b] = Float.POSITIVE_INFINITY;
+        }
+        return repaired;
+    }
+
+    private static int[] push(int[] array, int i, int value)
+    {
+        if(i == array.length)
+            array = Arrays.copyOf(array, 2 * i);
+        array[i] = value;
+        return array;
+    }
+
+    // the best distance to v known so far: found by the repair, or else
+    // the old tree distance
+    private double label(int v, int[] hop, double[] reach, int[] stack, SearchWorkspace workspace)
+    {
+        return workspace.reached(v) ? workspace.distance(v) : treeDistance(v, hop, reach, stack);
+    }
+
+    // reach[v], summing the old tree distance of v from the building
+    // outwards on first use, like the search that built the tree did
+    private double treeDistance(int v, int[] hop, double[] reach, int[] stack)
+    {
+        if(!Double.isNaN(reach[v]))
+            return reach[v];
+        int length = 0;
+        int x = v;
+        while(Double.isNaN(reach[x]))
+        {
+            stack[length++] = x;
+            if(hop[x] < 0 || hop[x] >= reach.length)
+            {
+                reach[x] = Double.POSITIVE_INFINITY;
+                break;
+            }
+            x = hop[x];
+        }
+        while(length > 0)
+        {
+            int c = stack[--length];
+            if(Double.isNaN(reach[c]))
+                reach[c] = reach[hop[c]] + graph.weight(graph.findEdge(c, hop[c]));
+        }
+        return reach[v];
+    }
+
+    private static double weight(CompactGraph<?> graph, int u, int v)
+    {
+        if(u >= graph.size() || v >= graph.size())
+            return Double.POSITIVE_INFINITY;
+        int e = graph.findEdge(u, v);
+        return e < 0 ? Double.POSITIVE_INFINITY : graph.weight(e);
+    }
+
+    // the distance from v to building b along row b of the old tree, summed
+    // from the building outwards in the order the search added it up
+    private double toBuilding(int[] hop, int v, int b)
+    {
+        int length = 0;
+        for(int x = v; x != buildings[b]; x = hop[x])
+        {
+            if(hop[x] < 0)
+                return Double.POSITIVE_INFINITY;
+            length++;
+        }
+        int[] chain = new int[length + 1];
+        int i = 0;
+        for(int x = v; i <= length; x = hop[x])
+            chain[i++] = x;
+        double total = 0.0;
+        for(i = length; i > 0; i--)
+            total += graph.weight(graph.findEdge(chain[i - 1], chain[i]));
+        return total;
+    }
+
+    /**
+     * @returns   the number of buildings in this table.
+     */
+    public int size()
+    {
+        return buildings.length;
+    }
+
+    /**
+     * @param: node  A node index.
+     * @returns   true if node is one of the tabulated buildings.
+     */
+    public boolean contains(int node)
+    {
+        return slot[node] >= 0;
+    }
+
+    /**
+     * @param: from  The node index of a tabulated building.
+     * @param: to    The node index of a tabulated building.
+     * @returns   the shortest distance between them, rounded to float, or
+     *            Float.POSITIVE_INFINITY if to is unreachable from from.
+     */
+    public float distance(int from, int to)
+    {
+        return distance[slot[from]][slot[to]];
+    }
+
+    /**
+     * @param: source    The node index of a tabulated building.
+     * @param: target    The node index of a tabulated building.
+     * @param: workspace The workspace whose traced path is replaced.
+     * @modifies  workspace
+     * @effects   Walks the next-hop table from source to target and stores
+     *            the nodes in the traced path of workspace.
+     * @returns   the number of nodes on the path, or 0 if target is
+     *            unreachable from source.
+     */
+    public int tracePath(int source, int target, SearchWorkspace workspace)
+    {
+        int[] hop = nextHop[slot[target]];
+        if(source != target && hop[source] < 0)
+            return 0;
+        int[] path = workspace.path();
+        int length = 0;
+        for(int curr = source; curr >= 0; curr = hop[curr])
+            path[length++] = curr;
+        return length;
+    }
+
+    /**
+     * @param: workspace The workspace holding a path traced by tracePath.
+     * @param: length    The length returned by tracePath.
+     * @returns   the length of the traced path, added up in double precision
+     *            from source to target like a forward search would.
+     */
+    public double pathDistance(SearchWorkspace workspace, int length)
+    {
+        if(length == 0)
+            return Double.POSITIVE_INFINITY;
+        int[] path = workspace.path();
+        double total = 0.0;
+        for(int i = 1; i < length; i++)
+            total += graph.weight(graph.findEdge(path[i - 1], path[i]));
+        return total;
+    }
+
+    /**
+     * @returns   the bytes held by the distance and next-hop tables.
+     */
+    public long footprint()
+    {
+        long count = buildings.length;
+        return 4 * count * count + 4 * count * graph.size();
+    }
+}
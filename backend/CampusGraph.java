@@ -1,17 +1,74 @@
 package backend;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
 import java.io.*;
 
+/**
+ * <b>CampusGraph</b> answers route and distance queries over a campus map.
+ * The loaded map is held as an immutable CampusMap snapshot; every query
+ * reads the snapshot once and works on it alone, so any number of threads
+ * may query concurrently without locking. createGraph and the methods that
+ * add search structures build a new snapshot and swap it in atomically;
+ * queries already running finish on the snapshot they started with.
+ */
 public class CampusGraph {
-    Graph<String,String> graph;
-    HashMap<String,Coordinate> id_cordinate;
-    HashMap<String,String> id_name;
-    HashMap<String,String> name_id;
+    // findPath formats directions into a buffer reused by its thread
+    private static final ThreadLocal<StringBuilder> TEXT = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+    private static final int MAX_TEXT_BUFFER = 1 << 16;
 
+    private final AtomicReference<CampusMap> snapshot = new AtomicReference<>();
+    private final int routeCacheCapacity;
+    // kept across rebuilds of the map
+    private final QueryMetrics metrics = new QueryMetrics();
 
-    public CampusGraph(){}
 
+    public CampusGraph()
+    {
+        this(1024);
+    }
+
+    /**
+     * @param: routeCacheCapacity  The number of routes findPath keeps;
+     *                             0 disables the route cache.
+     */
+    public CampusGraph(int routeCacheCapacity)
+    {
+        if(routeCacheCapacity < 0)
+            throw new IllegalArgumentException("capacity should not be negative");
+        this.routeCacheCapacity = routeCacheCapacity;
+    }
+
+    /**
+     * @returns   the current map snapshot.
+     * @throws    IllegalStateException if createGraph has not been called.
+     */
+    CampusMap current()
+    {
+        CampusMap map = snapshot.get();
+        if(map == null)
+            throw new IllegalStateException("createGraph has not been called");
+        return map;
+    }
+
+    /**
+     * @param: step  Derives a new snapshot from the current one.
+     * @effects   Swaps in step(current) unless createGraph replaced the map
+     *            in the meantime, in which case step is applied again to the
+     *            new map.
+     */
+    private void derive(UnaryOperator<CampusMap> step)
+    {
+        while(true)
+        {
+            CampusMap base = current();
+            if(snapshot.compareAndSet(base, step.apply(base)))
+                return;
+        }
+    }
 
     /**
      * @param: building1  A building id or building name.
@@ -20,7 +77,7 @@ public class CampusGraph {
      * @returns   true if building1 and building2 refer to the same building
      *            false otherwise
      */
-    private boolean sameBuilding(String building1, String building2)
+    private static boolean sameBuilding(Map<String,String> id_name, String building1, String building2)
     {
         if(building1.equals(building2))
             return true;
@@ -44,71 +101,483 @@ public class CampusGraph {
      */
     public void createGraph(String nodeFilename,String edgeFilename)
     {
-        graph = new Graph<>();
-        id_cordinate = new HashMap<>();
-        id_name = new HashMap<>();
-        name_id = new HashMap<>();
-        LinkedList<Map.Entry<String,String>> idPairs = new LinkedList<>();
-        // read node data
         try{
-            CampusParser.readNodeData(nodeFilename, id_name, name_id ,id_cordinate);
+            snapshot.set(MapBuilder.build(nodeFilename, edgeFilename, new RouteCache(routeCacheCapacity)));
         }catch(IOException e){
             throw new RuntimeException("file with a wrong format or a wrong directory");
         }
-        // read edge data
+    }
+
+    /**
+     * @param: nodeFilename      Path to the node data file.
+     * @param: edgeFilename      Path to the edge data file.
+     * @param: snapshotFilename  Path of a binary map snapshot.
+     *
+     * @requires  nodeFilename != null && edgeFilename != null && snapshotFilename != null
+     * @effects   Initializes this CampusGraph from the snapshot if it was
+     *            written from the current node and edge files and passes its
+     *            checksum. Otherwise reads the CSV files as createGraph does
+     *            and rewrites the snapshot for the next start.
+     * @throws    RuntimeException if the snapshot cannot be used and either
+     *            CSV file cannot be read or has an invalid format.
+     * @returns   true if the map was loaded from the snapshot.
+     */
+    public boolean createGraph(String nodeFilename, String edgeFilename, String snapshotFilename)
+    {
+        long[] source;
         try{
-            CampusParser.readEdgeData(edgeFilename, idPairs);
+            source = MapSnapshot.fingerprint(nodeFilename, edgeFilename);
         }catch(IOException e){
             throw new RuntimeException("file with a wrong format or a wrong directory");
         }
-        
-        graph.addNodes(id_name.keySet());
-        for(Map.Entry<String,String> entry: idPairs)
-        {
-            String parentId = entry.getKey();
-            String childId = entry.getValue();
-            Double distance = id_cordinate.get(parentId).distance(id_cordinate.get(childId));
-            graph.setEdge(parentId, childId, distance);
-            graph.setEdge(childId, parentId, distance);
+        try{
+            CampusMap loaded = MapSnapshot.read(snapshotFilename, source, new RouteCache(routeCacheCapacity));
+            if(loaded != null)
+            {
+                snapshot.set(loaded);
+                return true;
+            }
+        }catch(IOException e){
+            // a damaged snapshot is rebuilt from the CSV files below
         }
+        createGraph(nodeFilename, edgeFilename);
+        try{
+            MapSnapshot.write(current(), source, snapshotFilename);
+        }catch(IOException e){
+            // the snapshot only speeds up the next start; the map is loaded
+        }
+        return false;
     }
 
     /**
-     * @param: parent  The starting coordinate of the edge.
-     * @param: child   The ending coordinate of the edge.
-     * @requires  parent != null && child != null
-     * @returns   A string describing the compass direction of travel from
-     *            parent to child
+     * @requires  CampusGraph have been populated
+     * @effects   Preprocesses the loaded map into a contraction hierarchy so
+     *            that findPath can run in SearchMode.CONTRACTION_HIERARCHY.
+     *            The hierarchy is dropped when createGraph is called again.
      */
-    private String walkDir(Coordinate parent, Coordinate child)
+    public void createHierarchy()
     {
-        double angle = Coordinate.angle(parent, child);
-        String dir;
-        if (angle >= -22.5 && angle < 22.5) {
-            dir = "East";
-        } 
-        else if (angle >= 22.5 && angle < 67.5) {
-            dir = "SouthEast";
-        } 
-        else if (angle >= 67.5 && angle < 112.5) {
-            dir = "South";
-        }
-        else if (angle >= 112.5 && angle < 157.5) {
-            dir = "SouthWest";
-        }
-        else if (angle >= 157.5 || angle < -157.5) {
-            dir = "West";
-        }
-        else if (angle >= -157.5 && angle < -112.5) {
-            dir = "NorthWest";
-        }
-        else if (angle >= -112.5 && angle < -67.5) {
-            dir = "North";
+        derive(map -> map.withHierarchy(ContractionHierarchy.build(map.graph), map.graph));
+    }
+
+    /**
+     * @param: filename  Path of the file to write.
+     * @requires  createHierarchy or loadHierarchy has been called
+     * @effects   Saves the contraction hierarchy so a later run can load it
+     *            instead of preprocessing again.
+     * @throws    RuntimeException if the file cannot be written.
+     */
+    public void saveHierarchy(String filename)
+    {
+        ContractionHierarchy hierarchy = current().hierarchy;
+        if(hierarchy == null)
+            throw new IllegalStateException("no contraction hierarchy has been built");
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))){
+            hierarchy.write(out);
+        }catch(IOException e){
+            throw new RuntimeException("cannot write contraction hierarchy to " + filename);
         }
-        else{
-            dir = "NorthEast";
+    }
+
+    /**
+     * @param: filename  Path of a file written by saveHierarchy.
+     * @requires  CampusGraph have been populated
+     * @effects   Loads a contraction hierarchy for the current map. One
+     *            saved for the map without its live edits is searched only
+     *            once the edits are cleared.
+     * @throws    RuntimeException if the file cannot be read, has a wrong
+     *            format or was built from a different map.
+     */
+    public void loadHierarchy(String filename)
+    {
+        final ContractionHierarchy loaded;
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))){
+            loaded = ContractionHierarchy.read(in);
+        }catch(IOException e){
+            throw new RuntimeException("file with a wrong format or a wrong directory");
         }
-        return dir;
+        derive(map -> {
+            // a hierarchy of the unedited map waits until live edits are cleared
+            if(loaded.matches(map.base))
+                return map.withHierarchy(loaded, map.base);
+            if(loaded.matches(map.graph))
+                return map.withHierarchy(loaded, map.graph);
+            throw new RuntimeException("contraction hierarchy in " + filename + " was built for a different map");
+        });
+    }
+
+    /**
+     * @requires  CampusGraph have been populated
+     * @effects   Runs one search per named building, in parallel, and keeps
+     *            the resulting distance and next-hop tables so that findPath
+     *            can run in SearchMode.BUILDING_TABLE. The table is dropped
+     *            when createGraph is called again.
+     */
+    public void createBuildingTable()
+    {
+        derive(map -> {
+            int[] buildings = new int[map.name_id.size()];
+            int count = 0;
+            for(String id: map.name_id.values())
+                buildings[count++] = map.graph.indexOf(id);
+            Arrays.sort(buildings);
+            // every walkway is added in both directions, so the graph is its own transpose
+            return map.withBuildingTable(BuildingTable.build(map.graph, map.graph, buildings, true));
+        });
+    }
+
+    /**
+     * @param: change  Derives the edits of a new snapshot from the current
+     *                 one; returns map.edits to leave the map as it is.
+     * @returns   true if the map changed.
+     */
+    private boolean edit(Function<CampusMap, MapEdits> change)
+    {
+        boolean[] changed = new boolean[1];
+        derive(map -> {
+            MapEdits next = change.apply(map);
+            changed[0] = next != map.edits;
+            return changed[0] ? map.withEdits(next) : map;
+        });
+        return changed[0];
+    }
+
+    // the index of a live node with the given id, or -1
+    private static int liveIndex(CampusMap map, String id)
+    {
+        int v = id == null ? -1 : map.graph.indexOf(id);
+        return v < 0 || map.edits.isRemoved(v, map.base.size()) ? -1 : v;
+    }
+
+    /**
+     * @param: parentId  The id of one end of the walkway.
+     * @param: childId   The id of the other end.
+     * @requires  CampusGraph have been populated
+     * @effects   Closes the walkway between the two nodes in both
+     *            directions until it is reopened or the edits are cleared.
+     *            Queries already running finish on the old map.
+     * @returns   true if the walkway was open; false if either node does
+     *            not exist or there is no open walkway between them.
+     */
+    public boolean closeEdge(String parentId, String childId)
+    {
+        return edit(map -> {
+            int u = liveIndex(map, parentId);
+            int v = liveIndex(map, childId);
+            if(u < 0 || v < 0 || map.graph.findEdge(u, v) < 0)
+                return map.edits;
+            return map.edits.close(u, v).close(v, u);
+        });
+    }
+
+    /**
+     * @param: parentId  The id of one end of the walkway.
+     * @param: childId   The id of the other end.
+     * @requires  CampusGraph have been populated
+     * @effects   Reopens a walkway closed by closeEdge with the distance
+     *            it had before.
+     * @returns   true if the walkway was closed; false otherwise.
+     */
+    public boolean reopenEdge(String parentId, String childId)
+    {
+        return edit(map -> {
+            int u = liveIndex(map, parentId);
+            int v = liveIndex(map, childId);
+            if(u < 0 || v < 0)
+                return map.edits;
+            return map.edits.reopen(u, v).reopen(v, u);
+        });
+    }
+
+    /**
+     * @param: parentId  The id of one end of the walkway.
+     * @param: childId   The id of the other end.
+     * @param: distance  The new length of the walkway.
+     * @requires  CampusGraph have been populated
+     * @effects   Sets the length of the walkway in both directions, adding
+     *            it if the nodes were not connected, as Graph.setEdge does.
+     *            A closed walkway stays closed and gets the new length once
+     *            reopened.
+     * @throws    IllegalArgumentException if distance is not positive or
+     *            shorter than the straight line between the nodes, which
+     *            the A* searches rely on.
+     * @returns   true if the map changed; false if either node does not
+     *            exist or the walkway already has this length.
+     */
+    public boolean setEdge(String parentId, String childId, double distance)
+    {
+        if(!(distance > 0))
+            throw new IllegalArgumentException("distance should be positive");
+        return edit(map -> {
+            int u = liveIndex(map, parentId);
+            int v = liveIndex(map, childId);
+            if(u < 0 || v < 0 || u == v)
+                return map.edits;
+            if(distance < map.coordinate(u).distance(map.coordinate(v)))
+                throw new IllegalArgumentException("distance should not be shorter than the straight line");
+            return map.edits.reweight(u, v, distance).reweight(v, u, distance);
+        });
+    }
+
+    /**
+     * @param: id  The id of the new node.
+     * @param: x   The x-coordinate of the node.
+     * @param: y   The y-coordinate of the node.
+     * @requires  CampusGraph have been populated
+     * @effects   Adds a temporary intersection with no walkways, as
+     *            Graph.addNode does; connect it with setEdge. It lasts until
+     *            removeNode, clearEdits or createGraph.
+     * @throws    IllegalArgumentException if id is null.
+     * @returns   true if the node was added; false if a node with this id
+     *            already exists.
+     */
+    public boolean addNode(String id, double x, double y)
+    {
+        if(id == null)
+            throw new IllegalArgumentException("Node name should not be null");
+        return edit(map -> {
+            if(liveIndex(map, id) >= 0)
+                return map.edits;
+            return map.edits.addNode(id, x, y, map.base.size());
+        });
+    }
+
+    /**
+     * @param: id  The id of a node added by addNode.
+     * @requires  CampusGraph have been populated
+     * @effects   Removes the temporary node and every walkway to it.
+     * @throws    IllegalArgumentException if id is a node loaded from the
+     *            map files.
+     * @returns   true if the node was removed; false if there is no such node.
+     */
+    public boolean removeNode(String id)
+    {
+        return edit(map -> {
+            int v = liveIndex(map, id);
+            if(v < 0)
+                return map.edits;
+            if(v < map.base.size())
+                throw new IllegalArgumentException("Only temporary nodes can be removed: [" + id + "]");
+            return map.edits.removeNode(v, map.base.size());
+        });
+    }
+
+    /**
+     * @requires  CampusGraph have been populated
+     * @effects   Drops every live edit and temporary node, returning to the
+     *            map as loaded. A hierarchy built before the edits is used
+     *            again.
+     * @returns   true if there were edits.
+     */
+    public boolean clearEdits()
+    {
+        return edit(map -> map.edits.isEmpty() ? map.edits : MapEdits.NONE);
+    }
+
+    /**
+     * @param: building  A building id or building name.
+     * @returns   the node index of building.
+     * @throws    IllegalArgumentException if building is not a known building.
+     */
+    private static int buildingIndex(CampusMap map, String building)
+    {
+        String id = map.name_id.containsKey(building) ? map.name_id.get(building) : building;
+        String name = map.id_name.get(id);
+        if(name == null || name.isEmpty())
+            throw new IllegalArgumentException("Unknown building: [" + building + "]");
+        return map.graph.indexOf(id);
+    }
+
+    private static int[] buildingIndices(CampusMap map, String[] buildings)
+    {
+        int[] indices = new int[buildings.length];
+        for(int i = 0; i < buildings.length; i++)
+            indices[i] = buildingIndex(map, buildings[i]);
+        return indices;
+    }
+
+    /**
+     * @param: from  A building id or building name.
+     * @param: to    Building ids or names.
+     * @requires  CampusGraph have been populated
+     * @effects   Runs a single search from from that settles every reachable
+     *            node, instead of one search per destination.
+     * @returns   An array whose i-th entry is the shortest distance from
+     *            from to to[i], or Double.POSITIVE_INFINITY if there is no path.
+     * @throws    IllegalArgumentException if any building is unknown.
+     */
+    public double[] distancesFrom(String from, String[] to)
+    {
+        CampusMap map = current();
+        int source = buildingIndex(map, from);
+        int[] targets = buildingIndices(map, to);
+        double[] distances = new double[targets.length];
+        SearchWorkspace workspace = SearchWorkspace.forThread(map.graph.size());
+        PathFinder.dijkstra(map.graph, source, -1, workspace);
+        for(int i = 0; i < targets.length; i++)
+            distances[i] = workspace.distance(targets[i]);
+        return distances;
+    }
+
+    /**
+     * @param: from  Building ids or names, one search each.
+     * @param: to    Building ids or names.
+     * @requires  CampusGraph have been populated
+     * @effects   Runs one single-source search per entry of from, spread
+     *            over the common fork-join pool.
+     * @returns   A matrix whose [i][j] entry is the shortest distance from
+     *            from[i] to to[j], or Double.POSITIVE_INFINITY if there is no path.
+     * @throws    IllegalArgumentException if any building is unknown.
+     */
+    public double[][] distanceMatrix(String[] from, String[] to)
+    {
+        CampusMap map = current();
+        int[] sources = buildingIndices(map, from);
+        int[] targets = buildingIndices(map, to);
+        double[][] matrix = new double[sources.length][];
+        CompactGraph<String> graph = map.graph;
+        IntStream.range(0, sources.length).parallel().forEach(i -> {
+            SearchWorkspace workspace = SearchWorkspace.forThread(graph.size());
+            PathFinder.dijkstra(graph, sources[i], -1, workspace);
+            double[] row = new double[targets.length];
+            for(int j = 0; j < targets.length; j++)
+                row[j] = workspace.distance(targets[j]);
+            matrix[i] = row;
+        });
+        return matrix;
+    }
+
+    /**
+     * @param: from     A building id or building name.
+     * @param: radius   The largest distance from from wanted.
+     * @param: profile  What distances are measured in.
+     * @requires  CampusGraph have been populated
+     * @effects   Runs one search from from that stops at radius, settling
+     *            only the nodes within it.
+     * @returns   every building and intersection within radius of from,
+     *            nearest first, and the boundary of that area.
+     * @throws    IllegalArgumentException if from is unknown or radius is
+     *            negative or not a number.
+     */
+    public Isochrone reachableWithin(String from, double radius, RoutingProfile profile)
+    {
+        return reachableWithin(new String[]{from}, radius, profile).get(0);
+    }
+
+    /**
+     * @param: from     Building ids or names, one search each.
+     * @param: radius   The largest distance from each wanted.
+     * @param: profile  What distances are measured in.
+     * @requires  CampusGraph have been populated
+     * @effects   Runs reachableWithin for every entry of from, spread over
+     *            the common fork-join pool.
+     * @returns   the area within radius of from[i] at position i.
+     * @throws    IllegalArgumentException if any building is unknown or
+     *            radius is negative or not a number.
+     */
+    public List<Isochrone> reachableWithin(String[] from, double radius, RoutingProfile profile)
+    {
+        if(!(radius >= 0))
+            throw new IllegalArgumentException("radius should not be negative");
+        CampusMap map = current();
+        int[] sources = buildingIndices(map, from);
+        double[] weights = map.weights(profile);
+        CompactGraph<String> graph = map.graph;
+        Isochrone[] areas = new Isochrone[sources.length];
+        IntStream.range(0, sources.length).parallel().forEach(i -> {
+            SearchWorkspace workspace = SearchWorkspace.forThread(graph.size());
+            String name = map.id_name.get(graph.node(sources[i]));
+            areas[i] = Isochrone.of(map, weights, sources[i], radius, name, workspace);
+        });
+        return Arrays.asList(areas);
+    }
+
+    /**
+     * @param: x  The x-coordinate of a point on the map.
+     * @param: y  The y-coordinate of the point.
+     * @requires  CampusGraph have been populated
+     * @returns   the id of the node, building or intersection, nearest to
+     *            (x, y), or null if the map has no nodes. The first call on
+     *            a loaded map builds a spatial index over its nodes.
+     */
+    public String nearestNode(double x, double y)
+    {
+        CampusMap map = current();
+        int v = map.nearestNode(x, y);
+        return v < 0 ? null : map.graph.node(v);
+    }
+
+    /**
+     * @param: x  The x-coordinate of a point on the map.
+     * @param: y  The y-coordinate of the point.
+     * @param: k  The number of nodes wanted.
+     * @requires  CampusGraph have been populated
+     * @returns   the ids of the k nodes nearest to (x, y), or of every node
+     *            if there are fewer, nearest first.
+     * @throws    IllegalArgumentException if k is not positive.
+     */
+    public String[] nearestNodes(double x, double y, int k)
+    {
+        if(k <= 0)
+            throw new IllegalArgumentException("k should be positive");
+        CampusMap map = current();
+        return ids(map, map.nearestNodes(x, y, k));
+    }
+
+    /**
+     * @param: x       The x-coordinate of a point on the map.
+     * @param: y       The y-coordinate of the point.
+     * @param: radius  The largest distance from the point.
+     * @requires  CampusGraph have been populated
+     * @returns   the ids of every node within radius of (x, y), nearest first.
+     * @throws    IllegalArgumentException if radius is negative.
+     */
+    public String[] nodesWithin(double x, double y, double radius)
+    {
+        if(!(radius >= 0))
+            throw new IllegalArgumentException("radius should not be negative");
+        CampusMap map = current();
+        return ids(map, map.nodesWithin(x, y, radius));
+    }
+
+    private static String[] ids(CampusMap map, int[] nodes)
+    {
+        String[] ids = new String[nodes.length];
+        for(int i = 0; i < nodes.length; i++)
+            ids[i] = map.graph.node(nodes[i]);
+        return ids;
+    }
+
+    /**
+     * @requires  CampusGraph have been populated
+     * @returns   the cache of formatted routes used by findPath on the
+     *            current map, with its hit, miss and eviction counters.
+     *            Each rebuild through createGraph starts a new, empty cache.
+     */
+    public RouteCache getRouteCache()
+    {
+        return current().routeCache;
+    }
+
+    /**
+     * @requires  CampusGraph have been populated
+     * @returns   the connectivity of the current map, live edits included:
+     *            its components, orphaned nodes and cut-off buildings. The
+     *            components are kept with the map, so this costs one pass
+     *            over the nodes.
+     */
+    public MapQuality getMapQuality()
+    {
+        return MapQuality.of(current());
+    }
+
+    /**
+     * @returns   the query metrics of findPath and findRoute, kept across
+     *            rebuilds of the map; recording is off until enabled.
+     */
+    public QueryMetrics getMetrics()
+    {
+        return metrics;
     }
 
     /**
@@ -116,14 +585,58 @@ public class CampusGraph {
      * @returns   An Iterator<String> over all buildings in the campus.
      *            Each element has the format "name,id" and the
      *            sequence is sorted lexicographically by building name.
+     *            The list is sorted once when the map is loaded; the
+     *            iterator does not support remove.
      */
     public Iterator<String> listAllBuildings()
     {
-        ArrayList<String> listBuildings = new ArrayList<>();
-        for(String name: name_id.keySet())
-            listBuildings.add(name+","+name_id.get(name));
-        Collections.sort(listBuildings);
-        return listBuildings.iterator();
+        return current().names.listing().iterator();
+    }
+
+    /**
+     * @param: id  A node id.
+     * @requires  CampusGraph have been populated
+     * @returns   the name of building id, or null if id is not a building.
+     */
+    public String buildingName(String id)
+    {
+        String name = current().id_name.get(id);
+        return name == null || name.isEmpty() ? null : name;
+    }
+
+    /**
+     * @param: prefix  The start of a building name or of any word in it;
+     *                 case, punctuation and repeated spaces are ignored.
+     * @param: limit   The largest number of buildings to return.
+     * @requires  CampusGraph have been populated
+     * @returns   the ids of the buildings whose name has a word starting
+     *            with prefix, for autocompletion: an exact name first,
+     *            then names starting with prefix, then names with a later
+     *            word starting with it, shorter names first.
+     * @throws    IllegalArgumentException if limit is negative.
+     */
+    public String[] completeBuilding(String prefix, int limit)
+    {
+        if(limit < 0)
+            throw new IllegalArgumentException("limit should not be negative");
+        return current().names.complete(prefix, limit);
+    }
+
+    /**
+     * @param: query  A building name as typed, possibly partial or
+     *                misspelled.
+     * @param: limit  The largest number of buildings to return.
+     * @requires  CampusGraph have been populated
+     * @returns   the ids of the buildings completeBuilding finds for query,
+     *            followed by buildings whose names share at least half of
+     *            the letter trigrams of query, most similar first.
+     * @throws    IllegalArgumentException if limit is negative.
+     */
+    public String[] findBuildings(String query, int limit)
+    {
+        if(limit < 0)
+            throw new IllegalArgumentException("limit should not be negative");
+        return current().names.search(query, limit);
     }
 
     
@@ -136,6 +649,52 @@ public class CampusGraph {
     */
     public String findPath(String PART1, String PART2)
     {
+        return findPath(PART1, PART2, SearchMode.DIJKSTRA);
+    }
+
+    /** @effects Find the shortest Path from PART1 to PART2 with the given algorithm.
+     *           Routes between the same resolved ids are served from the
+     *           route cache until the graph is rebuilt or a live edit
+     *           affects them. While live edits are in place a hierarchy
+     *           built before them is bypassed and CONTRACTION_HIERARCHY
+     *           searches run as BIDIRECTIONAL_ASTAR.
+     *  @param PART1 the start point of the path(building id/name)
+     *  @param PART2 the end point of the path(building id/name)
+     *  @param mode the shortest-path algorithm to run; every mode finds a
+     *         path of the same length
+     *  @throws IllegalStateException if mode is CONTRACTION_HIERARCHY and no
+     *          hierarchy has been created or loaded, or if mode is
+     *          BUILDING_TABLE and no building table has been created
+     *  @return a String that is a formatted out put of the path
+    */
+    public String findPath(String PART1, String PART2, SearchMode mode)
+    {
+        return findPath(PART1, PART2, mode, RoutingProfile.SHORTEST);
+    }
+
+    /** @effects Find the best Path from PART1 to PART2 under profile with the
+     *           given algorithm, as findPath(PART1, PART2, mode) does for
+     *           the shortest one. The total printed is the walking
+     *           distance. Contraction hierarchies and building tables hold
+     *           shortest routes only, so on a map with EdgeAttributes
+     *           CONTRACTION_HIERARCHY and BUILDING_TABLE searches under any
+     *           other profile run as BIDIRECTIONAL_ASTAR.
+     *  @param PART1 the start point of the path(building id/name)
+     *  @param PART2 the end point of the path(building id/name)
+     *  @param mode the shortest-path algorithm to run
+     *  @param profile what the path minimizes
+     *  @throws IllegalStateException as findPath(String, String, SearchMode)
+     *  @return a String that is a formatted out put of the path
+    */
+    public String findPath(String PART1, String PART2, SearchMode mode, RoutingProfile profile)
+    {
+        boolean timed = metrics.isEnabled();
+        long started = timed ? System.nanoTime() : 0;
+        CampusMap map = current();
+        Map<String,String> name_id = map.name_id;
+        Map<String,String> id_name = map.id_name;
+        CompactGraph<String> compact = map.graph;
+        RouteCache routeCache = map.routeCache;
         if(name_id.containsKey(PART1))
             PART1 = name_id.get(PART1);
         if(name_id.containsKey(PART2))
@@ -150,7 +709,7 @@ public class CampusGraph {
             notFound = true;
         }
 
-        if(!sameBuilding(PART2, PART1) && (building2 == null || building2.equals(new String())))
+        if(!sameBuilding(id_name, PART2, PART1) && (building2 == null || building2.equals(new String())))
         {
             unknown += "Unknown building: [" + PART2 + "]\n";
             notFound = true;
@@ -159,38 +718,387 @@ public class CampusGraph {
         if(notFound)
             return unknown;
         
-        HashMap<String,Object[]> path = new HashMap<>();
-        HashMap<String,Double> distance = PathFinder.dijkstra(PART1, PART2, graph, path, false);
-        String resultString = new String();
-        LinkedList<String> result = new LinkedList<>();
-        if(distance.get(PART2).equals(Double.MAX_VALUE))
-            return resultString + "There is no path from "+ building1 +" to "+ building2 +".\n";
-        else
+        return route(map, compact.indexOf(PART1), compact.indexOf(PART2), building1, building2, mode, profile,
+                timed, started).text;
+    }
+
+    /** @effects Find the shortest Path from PART1 to PART2 as
+     *           findPath(PART1, PART2, mode) does, as a structured route
+     *           that can be rendered as text or JSON.
+     *  @param PART1 the start point of the path(building id/name)
+     *  @param PART2 the end point of the path(building id/name)
+     *  @param mode the shortest-path algorithm to run
+     *  @throws IllegalArgumentException if PART1 or PART2 is not a known
+     *          building
+     *  @throws IllegalStateException as findPath(String, String, SearchMode)
+     *  @return the route, with no steps if there is no path
+    */
+    public RouteResult findRoute(String PART1, String PART2, SearchMode mode)
+    {
+        return findRoute(PART1, PART2, mode, RoutingProfile.SHORTEST);
+    }
+
+    /** @effects Find the best Path from PART1 to PART2 under profile as
+     *           findPath(PART1, PART2, mode, profile) does, as a structured
+     *           route.
+     *  @throws IllegalArgumentException as findRoute(String, String, SearchMode)
+     *  @throws IllegalStateException as findPath(String, String, SearchMode)
+     *  @return the route, with no steps if there is no path
+    */
+    public RouteResult findRoute(String PART1, String PART2, SearchMode mode, RoutingProfile profile)
+    {
+        boolean timed = metrics.isEnabled();
+        long started = timed ? System.nanoTime() : 0;
+        CampusMap map = current();
+        String id1 = map.name_id.getOrDefault(PART1, PART1);
+        String id2 = map.name_id.getOrDefault(PART2, PART2);
+        String building1 = map.id_name.get(id1);
+        String building2 = map.id_name.get(id2);
+        if(building1 == null || building1.isEmpty())
+            throw new IllegalArgumentException("Unknown building: [" + id1 + "]");
+        if(building2 == null || building2.isEmpty())
+            throw new IllegalArgumentException("Unknown building: [" + id2 + "]");
+        return route(map, map.graph.indexOf(id1), map.graph.indexOf(id2), building1, building2, mode, profile,
+                timed, started).result;
+    }
+
+    /** @effects Finds up to k meaningfully different routes from PART1 to
+     *           PART2 under profile, as
+     *           findAlternatives(PART1, PART2, k, profile,
+     *           AlternativeRoutes.MAX_SHARED, AlternativeRoutes.MAX_STRETCH).
+    */
+    public List<RouteResult> findAlternatives(String PART1, String PART2, int k, RoutingProfile profile)
+    {
+        return findAlternatives(PART1, PART2, k, profile, AlternativeRoutes.MAX_SHARED, AlternativeRoutes.MAX_STRETCH);
+    }
+
+    /** @effects Finds up to k routes from PART1 to PART2 under profile that
+     *           differ meaningfully, by the penalty method of
+     *           AlternativeRoutes; alternatives are searched every time and
+     *           not cached.
+     *  @param PART1 the start point of the path(building id/name)
+     *  @param PART2 the end point of the path(building id/name)
+     *  @param k the largest number of routes wanted
+     *  @param profile what the routes minimize
+     *  @param maxShared the largest share of a route's cost that may lie on
+     *         the routes before it
+     *  @param maxStretch the largest cost of a route over the best cost
+     *  @throws IllegalArgumentException if PART1 or PART2 is not a known
+     *          building, k is not in [1, AlternativeRoutes.MAX_ROUTES],
+     *          maxShared is not in [0, 1) or maxStretch is below 1
+     *  @return the routes, best first, each as findRoute returns it; empty
+     *          if there is no path
+    */
+    public List<RouteResult> findAlternatives(String PART1, String PART2, int k, RoutingProfile profile,
+                                              double maxShared, double maxStretch)
+    {
+        if(k <= 0 || k > AlternativeRoutes.MAX_ROUTES)
+            throw new IllegalArgumentException("k should be between 1 and " + AlternativeRoutes.MAX_ROUTES);
+        if(!(maxShared >= 0 && maxShared < 1))
+            throw new IllegalArgumentException("maxShared should be in [0, 1)");
+        if(!(maxStretch >= 1))
+            throw new IllegalArgumentException("maxStretch should be at least 1");
+        CampusMap map = current();
+        int source = buildingIndex(map, PART1);
+        int target = buildingIndex(map, PART2);
+        String from = map.id_name.get(map.graph.node(source));
+        String to = map.id_name.get(map.graph.node(target));
+        if(!map.components(profile).connected(source, target))
+            return new ArrayList<>();
+        SearchWorkspace workspace = SearchWorkspace.forThread(map.graph.size());
+        List<int[]> paths = AlternativeRoutes.find(map.graph, map.weights(profile), source, target, k,
+                maxShared, maxStretch, workspace);
+        ArrayList<RouteResult> routes = new ArrayList<>(paths.size());
+        for(int[] path: paths)
+            routes.add(RouteResult.of(map, path, map.length(path), from, to));
+        return routes;
+    }
+
+    /** @effects Plans a walk that visits every one of stops, starting at
+     *           stops[0]. The cost between every two stops under profile
+     *           comes from one search per stop, each stopping once every
+     *           later stop is settled, spread over the common fork-join pool;
+     *           TourSolver then orders the stops within timeLimitMillis,
+     *           exactly for up to TourSolver.HELD_KARP_MAX stops, and the
+     *           legs are searched again and joined into one route.
+     *  @param stops the buildings to visit (building ids/names), the start first
+     *  @param roundTrip whether the walk ends back at stops[0]
+     *  @param profile what the walk minimizes
+     *  @param timeLimitMillis the longest time to spend ordering the stops
+     *  @throws IllegalArgumentException if stops is empty or names an
+     *          unknown building, or timeLimitMillis is negative
+     *  @return the tour; not found if some stop cannot be reached from the first
+    */
+    public Tour planTour(String[] stops, boolean roundTrip, RoutingProfile profile, long timeLimitMillis)
+    {
+        if(stops.length == 0)
+            throw new IllegalArgumentException("a tour needs at least one stop");
+        if(timeLimitMillis < 0)
+            throw new IllegalArgumentException("timeLimitMillis should not be negative");
+        CampusMap map = current();
+        int[] nodes = buildingIndices(map, stops);
+        String[] names = new String[nodes.length];
+        for(int i = 0; i < nodes.length; i++)
+            names[i] = map.id_name.get(map.graph.node(nodes[i]));
+        CompactGraph<String> graph = map.graph;
+        double[] weights = map.weights(profile);
+        Components components = map.components(profile);
+        for(int node: nodes)
         {
-            resultString = "Path from "+ building1 +" to "+ building2 +":\n";
-            String curr = PART2;
-            String child;
-            while(!curr.equals(PART1))
+            // no tour if any stop is cut off from the first, found before any search
+            if(!components.connected(nodes[0], node))
             {
-                //PART1 to PART2 with weight w1
-                child = curr;
-                Object[] get = path.get(curr).clone();
-                curr = (String)get[0];
+                String last = roundTrip ? names[0] : names[names.length - 1];
+                double none = Double.POSITIVE_INFINITY;
+                return new Tour(names, roundTrip, RouteResult.noPath(names[0], last), none, none, false,
+                        new long[0], new double[0]);
+            }
+        }
+        double[][] matrix = new double[nodes.length][];
+        // every walkway goes both ways, so the search from stop i needs only
+        // the stops after it and the matrix is mirrored below
+        IntStream.range(0, nodes.length).parallel().forEach(i -> {
+            SearchWorkspace workspace = SearchWorkspace.forThread(graph.size());
+            int[] later = Arrays.stream(nodes, i, nodes.length).distinct().sorted().toArray();
+            PathFinder.dijkstra(graph, weights, nodes[i], later, workspace);
+            double[] row = new double[nodes.length];
+            for(int j = i; j < nodes.length; j++)
+                row[j] = workspace.distance(nodes[j]);
+            matrix[i] = row;
+        });
+        for(int i = 0; i < nodes.length; i++)
+        {
+            for(int j = 0; j < i; j++)
+                matrix[i][j] = matrix[j][i];
+        }
 
-                Coordinate parentCoor = id_cordinate.get(curr);
-                Coordinate childCoor = id_cordinate.get(child);
-                String dir = walkDir(parentCoor, childCoor);
+        TourSolver solver = new TourSolver(matrix, roundTrip, timeLimitMillis * 1_000_000L);
+        int[] order = solver.solve();
+        int[] path = {nodes[order[0]]};
+        int length = 1;
+        SearchWorkspace workspace = SearchWorkspace.forThread(graph.size());
+        for(int i = 1; i <= order.length; i++)
+        {
+            if(i == order.length && !roundTrip)
+                break;
+            int source = nodes[order[i - 1]];
+            int target = nodes[order[i % order.length]];
+            PathFinder.astar(graph, weights, map.xs, map.ys, source, target, workspace);
+            int leg = workspace.tracePath(target);
+            if(length + leg - 1 > path.length)
+                path = Arrays.copyOf(path, Math.max(2 * path.length, length + leg - 1));
+            // the leg starts where the last one ended
+            System.arraycopy(workspace.path(), 1, path, length, leg - 1);
+            length += leg - 1;
+        }
+        path = Arrays.copyOf(path, length);
+        String[] visited = new String[order.length];
+        for(int i = 0; i < order.length; i++)
+            visited[i] = names[order[i]];
+        RouteResult route = RouteResult.of(map, path, map.length(path), visited[0],
+                roundTrip ? visited[0] : visited[visited.length - 1]);
+        return new Tour(visited, roundTrip, route, solver.cost(), solver.lowerBound(), solver.isOptimal(),
+                solver.improvedNanos(), solver.improvedCosts());
+    }
+
+    /** @effects Find the shortest Path between the nodes nearest to two
+     *           points, as findPath(x1, y1, x2, y2, SearchMode.DIJKSTRA).
+    */
+    public String findPath(double x1, double y1, double x2, double y2)
+    {
+        return findPath(x1, y1, x2, y2, SearchMode.DIJKSTRA);
+    }
 
-                result.add("\tWalk "+ dir + " to (" + childCoor.printName() +")\n");
+    /** @effects Snaps (x1, y1) and (x2, y2) to their nearest nodes, buildings
+     *           or intersections, and finds the shortest path between them
+     *           as findPath(String, String, SearchMode) does. Intersections
+     *           are printed as "Intersection id". BUILDING_TABLE only holds
+     *           routes between buildings, so a route from or to an
+     *           intersection is searched with BIDIRECTIONAL_ASTAR instead.
+     *  @param x1 the x-coordinate of the start point
+     *  @param y1 the y-coordinate of the start point
+     *  @param x2 the x-coordinate of the end point
+     *  @param y2 the y-coordinate of the end point
+     *  @param mode the shortest-path algorithm to run
+     *  @throws IllegalStateException as findPath(String, String, SearchMode),
+     *          or if the map has no nodes
+     *  @return a String that is a formatted out put of the path
+    */
+    public String findPath(double x1, double y1, double x2, double y2, SearchMode mode)
+    {
+        return findPath(x1, y1, x2, y2, mode, RoutingProfile.SHORTEST);
+    }
+
+    /** @effects Snaps (x1, y1) and (x2, y2) to their nearest nodes and finds
+     *           the best path between them under profile, as
+     *           findPath(x1, y1, x2, y2, mode) and
+     *           findPath(String, String, SearchMode, RoutingProfile) do.
+     *  @throws IllegalStateException as findPath(x1, y1, x2, y2, mode)
+     *  @return a String that is a formatted out put of the path
+    */
+    public String findPath(double x1, double y1, double x2, double y2, SearchMode mode, RoutingProfile profile)
+    {
+        boolean timed = metrics.isEnabled();
+        long started = timed ? System.nanoTime() : 0;
+        CampusMap map = current();
+        int source = map.nearestNode(x1, y1);
+        int target = map.nearestNode(x2, y2);
+        if(source < 0 || target < 0)
+            throw new IllegalStateException("the map has no nodes");
+        return route(map, source, target, map.coordinate(source).printName(), map.coordinate(target).printName(), mode,
+                profile, timed, started).text;
+    }
+
+    /** @effects Snaps (x1, y1) and (x2, y2) to their nearest nodes and finds
+     *           the shortest path between them as
+     *           findPath(x1, y1, x2, y2, mode) does, as a structured route.
+     *  @throws IllegalStateException as findPath(x1, y1, x2, y2, mode)
+     *  @return the route, with no steps if there is no path
+    */
+    public RouteResult findRoute(double x1, double y1, double x2, double y2, SearchMode mode)
+    {
+        return findRoute(x1, y1, x2, y2, mode, RoutingProfile.SHORTEST);
+    }
+
+    /** @effects Snaps (x1, y1) and (x2, y2) to their nearest nodes and finds
+     *           the best path between them under profile, as a structured
+     *           route.
+     *  @throws IllegalStateException as findPath(x1, y1, x2, y2, mode)
+     *  @return the route, with no steps if there is no path
+    */
+    public RouteResult findRoute(double x1, double y1, double x2, double y2, SearchMode mode, RoutingProfile profile)
+    {
+        boolean timed = metrics.isEnabled();
+        long started = timed ? System.nanoTime() : 0;
+        CampusMap map = current();
+        int source = map.nearestNode(x1, y1);
+        int target = map.nearestNode(x2, y2);
+        if(source < 0 || target < 0)
+            throw new IllegalStateException("the map has no nodes");
+        return route(map, source, target, map.coordinate(source).printName(), map.coordinate(target).printName(), mode,
+                profile, timed, started).result;
+    }
+
+    /**
+     * @param: source  The node index of the start.
+     * @param: target  The node index of the end.
+     * @param: from    The printed name of source.
+     * @param: to      The printed name of target.
+     * @param: profile  What the route minimizes.
+     * @param: timed    Whether the query is recorded in the metrics.
+     * @param: started  The System.nanoTime() the query started at, if timed.
+     * @returns   the route from source to target found with mode under
+     *            profile, with its directions formatted, from the route cache
+     *            if it is there.
+     */
+    private RouteCache.Route route(CampusMap map, int source, int target, String from, String to, SearchMode mode,
+                                   RoutingProfile profile, boolean timed, long started)
+    {
+        long resolved = timed ? System.nanoTime() : 0;
+        CompactGraph<String> compact = map.graph;
+        RouteCache routeCache = map.routeCache;
+        long key = RouteCache.key(source, target, mode, profile);
+        RouteCache.Route cached = routeCache.get(key);
+        if(cached != null)
+        {
+            if(timed)
+                metrics.recordCacheHit(resolved - started);
+            return cached;
+        }
+
+        SearchWorkspace workspace = SearchWorkspace.forThread(compact.size());
+        // every profile that weighs arcs by length alone shares graph.weights
+        double[] weights = map.weights(profile);
+        boolean lengths = weights == compact.weights;
+        // a hierarchy built before live edits is bypassed until they are cleared
+        ContractionHierarchy hierarchy = lengths ? map.currentHierarchy() : null;
+        // the table holds shortest routes between buildings only
+        boolean fromTable = mode == SearchMode.BUILDING_TABLE && lengths && map.buildingTable != null
+                && map.buildingTable.contains(source) && map.buildingTable.contains(target);
+        if(mode == SearchMode.CONTRACTION_HIERARCHY && map.hierarchy == null)
+            throw new IllegalStateException("no contraction hierarchy has been built");
+        if(mode == SearchMode.BUILDING_TABLE && map.buildingTable == null)
+            throw new IllegalStateException("no building table has been built");
+        double distance;
+        // a pair in different components has no path, whatever the mode
+        boolean connected = map.components(profile).connected(source, target);
+        if(!connected)
+        {
+            distance = Double.POSITIVE_INFINITY;
+        }
+        else
+        {
+            switch(mode)
+            {
+                case ASTAR:
+                    distance = PathFinder.astar(compact, weights, map.xs, map.ys, source, target, workspace);
+                    break;
+                case BIDIRECTIONAL_ASTAR:
+                    // every walkway is added in both directions with the same
+                    // attributes, so the graph and its weights are their own transpose
+                    distance = PathFinder.bidirectionalAstar(compact, weights, compact, weights, map.xs, map.ys,
+                            source, target, workspace);
+                    break;
+                case CONTRACTION_HIERARCHY:
+                    if(hierarchy != null)
+                        distance = hierarchy.query(source, target, workspace);
+                    else
+                        distance = PathFinder.bidirectionalAstar(compact, weights, compact, weights, map.xs, map.ys,
+                                source, target, workspace);
+                    break;
+                case BUILDING_TABLE:
+                    if(fromTable)
+                        distance = map.buildingTable.pathDistance(workspace, map.buildingTable.tracePath(source, target, workspace));
+                    else
+                        distance = PathFinder.bidirectionalAstar(compact, weights, compact, weights, map.xs, map.ys,
+                                source, target, workspace);
+                    break;
+                default:
+                    distance = PathFinder.dijkstra(compact, weights, source, target, workspace);
             }
         }
-        ListIterator<String> iterator = result.listIterator(result.size());
-        while(iterator.hasPrevious())
+        long searched = timed ? System.nanoTime() : 0;
+        RouteResult result;
+        if(Double.isInfinite(distance))
+        {
+            result = RouteResult.noPath(from, to);
+        }
+        else
+        {
+            int length;
+            if(mode == SearchMode.CONTRACTION_HIERARCHY && hierarchy != null)
+                length = hierarchy.tracePath(workspace, target);
+            else if(fromTable)
+                length = map.buildingTable.tracePath(source, target, workspace);
+            else
+                length = workspace.tracePath(target);
+            int[] path = Arrays.copyOf(workspace.path(), length);
+            // the search minimized the weighted cost; the route reports how far it is
+            if(!lengths)
+                distance = map.length(path);
+            result = RouteResult.of(map, path, distance, from, to);
+        }
+        StringBuilder text = TEXT.get();
+        text.setLength(0);
+        try
+        {
+            result.appendText(text);
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        RouteCache.Route route = new RouteCache.Route(result, text.toString());
+        // a very long route should not pin its buffer to the thread
+        if(text.capacity() > MAX_TEXT_BUFFER)
+            TEXT.remove();
+        routeCache.put(key, route);
+        if(timed)
         {
-            resultString += iterator.previous();
+            metrics.record(resolved - started, searched - resolved, System.nanoTime() - searched,
+                    fromTable || !connected ? null : workspace);
         }
-        resultString += String.format("Total distance: %.3f pixel units.\n",distance.get(PART2));
-        return resultString;
+        return route;
     }
 
 }
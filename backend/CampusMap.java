@@ -0,0 +1,466 @@
+package backend;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <b>CampusMap</b> is an <b>immutable</b> snapshot of one loaded campus map:
+ * the frozen graph, node positions, the id/name dictionaries with their
+ * name index and whichever
+ * optional search structures have been built for it, plus the route cache
+ * that belongs to it. Every field is final and nothing reachable from it is
+ * modified after construction, so once published through a volatile or
+ * atomic reference any number of threads may read it without locking.
+ * Adding a search structure produces a new snapshot that shares the rest.
+ * Live edits are kept as MapEdits over the graph loaded from files (base);
+ * graph is base with the edits applied and is what every search uses.
+ * Every RoutingProfile has a weight array parallel to the arcs of graph,
+ * derived from the arc lengths and EdgeAttributes whenever graph changes,
+ * and the Components of graph under those weights. Edits that only add or
+ * shorten walkways merge components; closing one labels them again.
+ */
+final class CampusMap
+{
+    final CompactGraph<String> base;
+    final MapEdits edits;
+    final CompactGraph<String> graph;
+    final double[] xs;
+    final double[] ys;
+    // the Direction code of every arc of graph, by arc position
+    final byte[] directions;
+    // the EdgeAttribute bits of every arc of base and of graph, by arc
+    // position, or null if no arc has any
+    final byte[] baseAttributes;
+    final byte[] attributes;
+    // the weights of graph under every RoutingProfile, by ordinal
+    private final double[][] layers;
+    // the components of graph under every layer, by ordinal
+    private final Components[] components;
+    final Map<String,Coordinate> id_cordinate;
+    final Map<String,String> id_name;
+    final Map<String,String> name_id;
+    final NameIndex names;
+    final ContractionHierarchy hierarchy;
+    // the graph hierarchy was built for; it answers queries only on that graph
+    final CompactGraph<String> hierarchyGraph;
+    final BuildingTable buildingTable;
+    final RouteCache routeCache;
+    // built on first use and shared by every snapshot with the same base
+    private final AtomicReference<SpatialIndex> spatialIndex;
+
+    /**
+     * @param: graph         The frozen graph; no longer modified by the caller.
+     * @param: id_cordinate  Node id to position; copied.
+     * @param: id_name       Node id to building name; copied.
+     * @param: name_id       Building name to node id; copied.
+     * @param: routeCache    An empty cache for routes on this map.
+     */
+    CampusMap(CompactGraph<String> graph, Map<String,Coordinate> id_cordinate, Map<String,String> id_name,
+              Map<String,String> name_id, RouteCache routeCache)
+    {
+        this.base = graph;
+        this.edits = MapEdits.NONE;
+        this.graph = graph;
+        this.hierarchyGraph = null;
+        this.id_cordinate = Collections.unmodifiableMap(new HashMap<>(id_cordinate));
+        this.id_name = Collections.unmodifiableMap(new HashMap<>(id_name));
+        this.name_id = Collections.unmodifiableMap(new HashMap<>(name_id));
+        this.names = new NameIndex(name_id);
+        this.routeCache = routeCache;
+        this.hierarchy = null;
+        this.buildingTable = null;
+        this.spatialIndex = new AtomicReference<>();
+        xs = new double[graph.size()];
+        ys = new double[graph.size()];
+        for(int i = 0; i < graph.size(); i++)
+        {
+            Coordinate coordinate = id_cordinate.get(graph.node(i));
+            xs[i] = coordinate.getX();
+            ys[i] = coordinate.getY();
+        }
+        directions = directions(graph, xs, ys);
+        baseAttributes = null;
+        attributes = null;
+        layers = layers(graph, null);
+        components = components(graph, layers, null, null);
+    }
+
+    /**
+     * @param: graph         The frozen graph.
+     * @param: xs            The x coordinate of every node of graph.
+     * @param: ys            The y coordinate of every node of graph.
+     * @param: attributes    The EdgeAttribute bits of every arc of graph, or
+     *                       null if no arc has any.
+     * @param: id_cordinate  Node id to position; not copied.
+     * @param: id_name       Node id to building name; not copied.
+     * @param: name_id       Building name to node id; not copied.
+     * @param: routeCache    An empty cache for routes on this map.
+     * @requires  the caller keeps no reference to the arrays or maps.
+     */
+    CampusMap(CompactGraph<String> graph, double[] xs, double[] ys, byte[] attributes,
+              Map<String,Coordinate> id_cordinate, Map<String,String> id_name, Map<String,String> name_id,
+              RouteCache routeCache)
+    {
+        this.base = graph;
+        this.edits = MapEdits.NONE;
+        this.graph = graph;
+        this.hierarchyGraph = null;
+        this.xs = xs;
+        this.ys = ys;
+        this.directions = directions(graph, xs, ys);
+        this.baseAttributes = attributes;
+        this.attributes = attributes;
+        this.layers = layers(graph, attributes);
+        this.components = components(graph, layers, null, null);
+        this.id_cordinate = Collections.unmodifiableMap(id_cordinate);
+        this.id_name = Collections.unmodifiableMap(id_name);
+        this.name_id = Collections.unmodifiableMap(name_id);
+        this.names = new NameIndex(name_id);
+        this.routeCache = routeCache;
+        this.hierarchy = null;
+        this.buildingTable = null;
+        this.spatialIndex = new AtomicReference<>();
+    }
+
+    /**
+     * @param: joined  The arcs graph added or shortened over from.graph if
+     *                 it closed none and dropped no node, else null.
+     */
+    private CampusMap(CampusMap from, MapEdits edits, CompactGraph<String> graph, double[] xs, double[] ys,
+                      ContractionHierarchy hierarchy, CompactGraph<String> hierarchyGraph,
+                      BuildingTable buildingTable, RouteCache routeCache, long[] joined)
+    {
+        this.base = from.base;
+        this.edits = edits;
+        this.graph = graph;
+        this.xs = xs;
+        this.ys = ys;
+        this.directions = graph == from.graph ? from.directions : directions(graph, xs, ys);
+        this.baseAttributes = from.baseAttributes;
+        this.attributes = graph == from.graph ? from.attributes : attributes(from.base, from.baseAttributes, graph);
+        this.layers = graph == from.graph ? from.layers : layers(graph, attributes);
+        if(graph == from.graph)
+            this.components = from.components;
+        else
+            this.components = components(graph, layers, joined == null ? null : from.components, joined);
+        this.id_cordinate = from.id_cordinate;
+        this.id_name = from.id_name;
+        this.name_id = from.name_id;
+        this.names = from.names;
+        this.hierarchy = hierarchy;
+        this.hierarchyGraph = hierarchyGraph;
+        this.buildingTable = buildingTable;
+        this.routeCache = routeCache;
+        this.spatialIndex = from.spatialIndex;
+    }
+
+    // the direction of every arc, classified once here so that tracing a
+    // route does no trigonometry
+    private static byte[] directions(CompactGraph<String> graph, double[] xs, double[] ys)
+    {
+        byte[] directions = new byte[graph.edgeCount()];
+        for(int u = 0; u < graph.size(); u++)
+        {
+            for(int e = graph.firstEdge(u); e < graph.endEdge(u); e++)
+            {
+                int v = graph.target(e);
+                directions[e] = Direction.of(xs[v] - xs[u], ys[v] - ys[u]).code();
+            }
+        }
+        return directions;
+    }
+
+    /**
+     * @returns   the direction of travel along arc e of graph.
+     */
+    Direction direction(int e)
+    {
+        return Direction.ofCode(directions[e]);
+    }
+
+    // the attributes of graph, an edited copy of base: arcs between nodes
+    // of base keep theirs, arcs of temporary nodes have none
+    private static byte[] attributes(CompactGraph<String> base, byte[] baseAttributes, CompactGraph<String> graph)
+    {
+        if(baseAttributes == null)
+            return null;
+        byte[] attributes = new byte[graph.edgeCount()];
+        for(int u = 0; u < graph.size() && u < base.size(); u++)
+        {
+            for(int e = graph.firstEdge(u); e < graph.endEdge(u); e++)
+            {
+                int v = graph.target(e);
+                int b = v < base.size() ? base.findEdge(u, v) : -1;
+                if(b >= 0)
+                    attributes[e] = baseAttributes[b];
+            }
+        }
+        return attributes;
+    }
+
+    private static double[][] layers(CompactGraph<String> graph, byte[] attributes)
+    {
+        RoutingProfile[] profiles = RoutingProfile.values();
+        double[][] layers = new double[profiles.length][];
+        for(RoutingProfile profile: profiles)
+            layers[profile.ordinal()] = profile.layer(graph.weights, attributes);
+        return layers;
+    }
+
+    // the components under every layer, shared between profiles that
+    // share a layer; merged from before if it is given
+    private static Components[] components(CompactGraph<String> graph, double[][] layers, Components[] before,
+                                           long[] joined)
+    {
+        Components[] components = new Components[layers.length];
+        for(int i = 0; i < layers.length; i++)
+        {
+            for(int j = 0; j < i && components[i] == null; j++)
+            {
+                if(layers[j] == layers[i])
+                    components[i] = components[j];
+            }
+            if(components[i] == null)
+                components[i] = before == null ? Components.of(graph, layers[i]) : before[i].join(graph, layers[i], joined);
+        }
+        return components;
+    }
+
+    /**
+     * @returns   the components of graph under profile.
+     */
+    Components components(RoutingProfile profile)
+    {
+        return components[profile.ordinal()];
+    }
+
+    /**
+     * @returns   the weight of every arc of graph under profile, by arc
+     *            position; graph.weights itself when the profile weighs
+     *            every arc by its length alone.
+     */
+    double[] weights(RoutingProfile profile)
+    {
+        return layers[profile.ordinal()];
+    }
+
+    /**
+     * @param: path  Node indices of graph joined by arcs.
+     * @returns   the walking distance along path.
+     */
+    double length(int[] path)
+    {
+        double length = 0.0;
+        for(int i = 1; i < path.length; i++)
+            length += graph.weight(graph.findEdge(path[i - 1], path[i]));
+        return length;
+    }
+
+    /**
+     * @param: hierarchy  A hierarchy built for builtFor.
+     * @param: builtFor   The current graph or the base graph.
+     * @returns   a snapshot equal to this one but with hierarchy, which is
+     *            searched only while the current graph is builtFor.
+     */
+    CampusMap withHierarchy(ContractionHierarchy hierarchy, CompactGraph<String> builtFor)
+    {
+        if(builtFor != graph && builtFor != base)
+            throw new IllegalArgumentException("hierarchy built for another graph");
+        return new CampusMap(this, edits, graph, xs, ys, hierarchy, builtFor, buildingTable, routeCache, null);
+    }
+
+    /**
+     * @returns   a snapshot equal to this one but with buildingTable.
+     */
+    CampusMap withBuildingTable(BuildingTable buildingTable)
+    {
+        return new CampusMap(this, edits, graph, xs, ys, hierarchy, hierarchyGraph, buildingTable, routeCache, null);
+    }
+
+    /**
+     * @returns   the hierarchy if it was built for the current graph, else
+     *            null; a hierarchy built before live edits is used again
+     *            once the edits are cleared.
+     */
+    ContractionHierarchy currentHierarchy()
+    {
+        return hierarchyGraph == graph ? hierarchy : null;
+    }
+
+    /**
+     * @param: index  A node index of graph.
+     * @returns   the position and name of the node; temporary nodes are
+     *            unnamed intersections.
+     */
+    Coordinate coordinate(int index)
+    {
+        String id = graph.node(index);
+        if(index < base.size())
+            return id_cordinate.get(id);
+        return new Coordinate("", id, xs[index], ys[index]);
+    }
+
+    /**
+     * @returns   the spatial index over the nodes of base. It is built by
+     *            the first caller; concurrent first callers may each build
+     *            one, and all but one are discarded.
+     */
+    SpatialIndex spatialIndex()
+    {
+        SpatialIndex index = spatialIndex.get();
+        if(index == null)
+        {
+            spatialIndex.compareAndSet(null, SpatialIndex.build(xs, ys, base.size()));
+            index = spatialIndex.get();
+        }
+        return index;
+    }
+
+    /**
+     * @returns   the node of graph nearest to (x, y), or -1 if there is
+     *            none; ties go to the smaller node index.
+     */
+    int nearestNode(double x, double y)
+    {
+        int best = spatialIndex().nearest(x, y);
+        double bestDistance = best < 0 ? Double.POSITIVE_INFINITY : squared(x, y, best);
+        for(int v = base.size(); v < graph.size(); v++)
+        {
+            if(!edits.isRemoved(v, base.size()) && SpatialIndex.closer(squared(x, y, v), v, bestDistance, best))
+            {
+                best = v;
+                bestDistance = squared(x, y, v);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @requires  k > 0
+     * @returns   the k nodes of graph nearest to (x, y), or all of them if
+     *            there are fewer, nearest first.
+     */
+    int[] nearestNodes(double x, double y, int k)
+    {
+        int[] nearest = spatialIndex().nearest(x, y, k);
+        if(graph.size() == base.size())
+            return nearest;
+        SpatialIndex.Candidates found = new SpatialIndex.Candidates(k);
+        for(int v: nearest)
+            found.offer(v, squared(x, y, v));
+        for(int v = base.size(); v < graph.size(); v++)
+        {
+            if(!edits.isRemoved(v, base.size()))
+                found.offer(v, squared(x, y, v));
+        }
+        return found.sorted();
+    }
+
+    /**
+     * @returns   every node of graph within radius of (x, y), nearest first.
+     */
+    int[] nodesWithin(double x, double y, double radius)
+    {
+        int[] within = spatialIndex().within(x, y, radius);
+        if(graph.size() == base.size())
+            return within;
+        SpatialIndex.Candidates found = new SpatialIndex.Candidates(0);
+        for(int v: within)
+            found.add(v, squared(x, y, v));
+        for(int v = base.size(); v < graph.size(); v++)
+        {
+            if(!edits.isRemoved(v, base.size()) && squared(x, y, v) <= radius * radius)
+                found.add(v, squared(x, y, v));
+        }
+        return found.sorted();
+    }
+
+    private double squared(double x, double y, int v)
+    {
+        double dx = x - xs[v];
+        double dy = y - ys[v];
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * @param: next  The edits to apply to base instead of the current ones.
+     * @returns   a snapshot searched on base with next applied. Only the
+     *            arcs either set of edits touches are compared between the
+     *            old and the new graph. If no arc got cheaper, cached routes
+     *            that avoid every changed arc are kept; otherwise the cache
+     *            starts empty. The building table repairs only the rows the
+     *            changed arcs affect, and unless an arc was closed the
+     *            components only merge over the arcs that got cheaper.
+     */
+    CampusMap withEdits(MapEdits next)
+    {
+        CompactGraph<String> updated = next.apply(base);
+        HashSet<Long> touched = edits.touchedArcs();
+        touched.addAll(next.touchedArcs());
+        int[] from = new int[touched.size()];
+        int[] to = new int[touched.size()];
+        int changed = 0;
+        boolean cheaper = false;
+        boolean closed = false;
+        HashSet<Long> dearer = new HashSet<>();
+        long[] joined = new long[touched.size()];
+        int joins = 0;
+        for(long arc: touched)
+        {
+            int u = MapEdits.from(arc);
+            int v = MapEdits.to(arc);
+            double before = weight(graph, u, v);
+            double after = weight(updated, u, v);
+            if(before == after)
+                continue;
+            from[changed] = u;
+            to[changed] = v;
+            changed++;
+            if(after < before)
+            {
+                cheaper = true;
+                joined[joins++] = arc;
+            }
+            else
+            {
+                dearer.add(arc);
+                closed |= after == Double.POSITIVE_INFINITY;
+            }
+        }
+        RouteCache routes = routeCache;
+        if(cheaper)
+            routes = routeCache.retain(route -> false);
+        else if(changed > 0)
+            routes = routeCache.retain(route -> avoids(route.path, dearer));
+        BuildingTable table = buildingTable;
+        if(table != null && (changed > 0 || updated.size() != graph.size()))
+            table = table.update(updated, updated, Arrays.copyOf(from, changed), Arrays.copyOf(to, changed), true);
+        double[] baseXs = xs.length == base.size() ? xs : Arrays.copyOf(xs, base.size());
+        double[] baseYs = ys.length == base.size() ? ys : Arrays.copyOf(ys, base.size());
+        boolean split = closed || updated.size() < graph.size();
+        return new CampusMap(this, next, updated, next.extendX(baseXs), next.extendY(baseYs),
+                hierarchy, hierarchyGraph, table, routes, split ? null : Arrays.copyOf(joined, joins));
+    }
+
+    private static double weight(CompactGraph<String> graph, int u, int v)
+    {
+        if(u >= graph.size() || v >= graph.size())
+            return Double.POSITIVE_INFINITY;
+        int e = graph.findEdge(u, v);
+        return e < 0 ? Double.POSITIVE_INFINITY : graph.weight(e);
+    }
+
+    private static boolean avoids(int[] path, HashSet<Long> arcs)
+    {
+        for(int i = 1; i < path.length; i++)
+        {
+            if(arcs.contains(MapEdits.arc(path[i - 1], path[i])))
+                return false;
+        }
+        return true;
+    }
+}
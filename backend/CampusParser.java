@@ -5,6 +5,105 @@ import java.util.*;
 import java.io.*;
 
 public class CampusParser {
+    // at most one extra column per EdgeAttribute on an edge line
+    private static final int ATTRIBUTES = EdgeAttribute.values().length;
+
+    /**
+     * Receives the nodes of a node file, one call per line.
+     */
+    public interface NodeHandler {
+        void node(String name, String id, double x, double y);
+    }
+
+    /**
+     * Receives the edges of an edge file, one call per line.
+     */
+    public interface EdgeHandler {
+        void edge(String parentId, String childId);
+
+        /**
+         * Receives an edge with the EdgeAttribute bits of its extra
+         * columns; handlers that keep no attributes ignore them.
+         */
+        default void edge(String parentId, String childId, int attributes) {
+            edge(parentId, childId);
+        }
+    }
+
+    /**
+	 * @param: filename     The path to a "CSV" file of "name","id","x","y"
+	 *                      lines.
+	 * @param: handler      Called with the fields of every line, in file order.
+	 * @requires: filename != null && handler != null
+	 * @effects: memory-maps the file and parses it in place; the coordinates
+	 *           are parsed from the file bytes without intermediate Strings.
+	 * @throws: IOException if file cannot be read or file not a CSV file following
+	 *                      the proper format.
+	 * @returns: None
+	 */
+    public static void streamNodeData(String filename, NodeHandler handler) throws IOException {
+        try(CsvScanner scanner = new CsvScanner(filename)){
+            while(scanner.nextLine())
+            {
+				if (scanner.fields() != 4) {
+					throw new IOException("File " + filename + " not a CSV (\"name\",\"id\",\"x\",\"y\") file.");
+				}
+                handler.node(scanner.string(0), scanner.string(1), scanner.number(2), scanner.number(3));
+            }
+        }
+    }
+
+    /**
+	 * @param: filename     The path to a "CSV" file of "id","id" lines, each
+	 *                      optionally followed by EdgeAttribute names.
+	 * @param: handler      Called with the two ids and the attribute bits
+	 *                      of every line, in file order.
+	 * @requires: filename != null && handler != null
+	 * @effects: memory-maps the file and parses it in place without
+	 *           building an intermediate list of edges.
+	 * @throws: IOException if file cannot be read or file not a CSV file following
+	 *                      the proper format.
+	 * @returns: None
+	 */
+    public static void streamEdgeData(String filename, EdgeHandler handler) throws IOException {
+        streamEdgeData(filename, 0, Long.MAX_VALUE, handler);
+    }
+
+    /**
+	 * @param: filename     The path to a "CSV" file of "id","id" lines, each
+	 *                      optionally followed by EdgeAttribute names.
+	 * @param: from         The first byte of the range to read.
+	 * @param: to           One past the last byte of the range to read.
+	 * @param: handler      Called with the two ids and the attribute bits of
+	 *                      every line that starts in [from, to), in file order.
+	 * @requires: filename != null && handler != null
+	 * @throws: IOException if file cannot be read or file not a CSV file following
+	 *                      the proper format.
+	 * @returns: None
+	 */
+    static void streamEdgeData(String filename, long from, long to, EdgeHandler handler) throws IOException {
+        try(CsvScanner scanner = new CsvScanner(filename, from, to)){
+            while(scanner.nextLine())
+            {
+				if (scanner.fields() < 2 || scanner.fields() > 2 + ATTRIBUTES) {
+					throw new IOException("File " + filename + " not a CSV (\"id\",\"id\") file.");
+				}
+                int attributes = 0;
+                for (int field = 2; field < scanner.fields(); field++) {
+                    String label = scanner.string(field);
+                    if (label.isEmpty())
+                        continue;
+                    EdgeAttribute attribute = EdgeAttribute.of(label);
+                    if (attribute == null) {
+                        throw new IOException("File " + filename + " names an unknown edge attribute [" + label + "].");
+                    }
+                    attributes |= attribute.bit();
+                }
+                handler.edge(scanner.string(0), scanner.string(1), attributes);
+            }
+        }
+    }
+
     /**
 	 * @param: filename     The path to a "CSV" file that contains the
 	 *                      "professor","course" pairs
@@ -25,20 +124,12 @@ public class CampusParser {
 	 */
     public static void readNodeData(String filename, HashMap<String, String> id_name,HashMap<String, String> name_id, HashMap<String,Coordinate> coordinate)
             throws IOException {
-        try(BufferedReader reader = new BufferedReader(new FileReader(filename))){
-            String line = null;
-            while((line = reader.readLine()) != null)
-            {
-                String[] elements = line.split(",");
-				if (elements.length != 4) {
-					throw new IOException("File " + filename + " not a CSV (\"name\",\"id\",\"x\",\"y\") file.");
-				}
-                id_name.put(elements[1],elements[0]);
-                if(!elements[0].equals(new String()))
-                    name_id.put(elements[0], elements[1]);
-				coordinate.put(elements[1],new Coordinate(elements[0],elements[1],Double.parseDouble(elements[2]), Double.parseDouble(elements[3])));
-            }
-        }
+        streamNodeData(filename, (name, id, x, y) -> {
+            id_name.put(id, name);
+            if(!name.equals(new String()))
+                name_id.put(name, id);
+            coordinate.put(id, new Coordinate(name, id, x, y));
+        });
     }
 
     /**
@@ -56,17 +147,7 @@ public class CampusParser {
 	 */
     public static void readEdgeData(String filename, LinkedList<Map.Entry<String,String>> idPair)
             throws IOException {
-        try(BufferedReader reader = new BufferedReader(new FileReader(filename))){
-            String line = null;
-            while((line = reader.readLine()) != null)
-            {
-                String[] elements = line.split(",");
-				if (elements.length != 2) {
-					throw new IOException("File " + filename + " not a CSV (\"id\",\"id\") file.");
-				}
-                idPair.add(new SimpleEntry<>(elements[0],elements[1]));
-            }
-        }
+        streamEdgeData(filename, (parentId, childId) -> idPair.add(new SimpleEntry<>(parentId, childId)));
     }
 
 }
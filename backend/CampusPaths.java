@@ -2,6 +2,7 @@ package backend;
 
 import java.util.*;
 import java.io.*;
+import java.net.InetSocketAddress;
 
 public class CampusPaths
 {
@@ -14,15 +15,91 @@ public class CampusPaths
             System.out.println(building);
         }
     }
+    /**
+     * @param: graph   The populated campus graph.
+     * @param: input   A file of "from,to" lines, or "-" for standard input.
+     * @param: output  The file to write routes to, or "-" for standard output.
+     * @effects   Answers every query of input in parallel, writes the routes
+     *            in input order and prints throughput and latency to
+     *            standard error.
+     * @throws    IOException if input cannot be read or output cannot be written.
+     */
+    public static void runBatch(CampusGraph graph, String input, String output) throws IOException
+    {
+        Reader reader = input.equals("-") ? new InputStreamReader(System.in) : new FileReader(input);
+        Writer writer = output.equals("-") ? new OutputStreamWriter(System.out) : new FileWriter(output);
+        BatchQueries batch = new BatchQueries(graph, SearchMode.DIJKSTRA);
+        try(BufferedReader in = new BufferedReader(reader); BufferedWriter out = new BufferedWriter(writer, 1 << 16)){
+            batch.run(in, out);
+        }
+        System.err.println(batch.report());
+    }
+
+    /**
+     * @param: graph    The populated campus graph.
+     * @param: port     The port to listen on.
+     * @param: threads  The number of requests handled at once.
+     * @param: queued   The number of requests waiting before more are
+     *                  turned away.
+     * @effects   Serves graph over HTTP on localhost until the process is
+     *            stopped, recording query statistics.
+     * @throws    IOException if the port cannot be bound.
+     */
+    public static void runServer(CampusGraph graph, int port, int threads, int queued) throws IOException
+    {
+        graph.getMetrics().setEnabled(true);
+        RouteServer server = new RouteServer(graph, SearchMode.DIJKSTRA, new InetSocketAddress("localhost", port),
+                threads, queued);
+        server.start();
+        System.err.println("Serving on http://localhost:" + server.getPort() + "/");
+    }
+
     public static void main(String[] args) {
         String menu = "b lists all buildings\n"
                     + "r prints directions for the shortest route between any two buildings\n"
+                    + "p prints directions for the best route under a routing profile\n"
+                    + "t prints a short walk through several buildings\n"
+                    + "d prints the connectivity of the map\n"
+                    + "i turns query statistics on or off\n"
+                    + "s prints query statistics\n"
+                    + "j prints query statistics as JSON\n"
                     + "q quits the program\n"
                     + "m prints a menu of all commands\n";
         CampusGraph graph = new CampusGraph();
         String nodeFilename = "data/RPI_map_data_Nodes.csv";
         String edgeFilename = "data/RPI_map_data_Edges.csv";
-        graph.createGraph(nodeFilename, edgeFilename);
+        // a binary snapshot speeds up later starts; it is only written when
+        // asked for, e.g. -Dcampuspaths.snapshot=data/RPI_map_data.snapshot
+        String snapshotFilename = System.getProperty("campuspaths.snapshot");
+        if(snapshotFilename == null)
+            graph.createGraph(nodeFilename, edgeFilename);
+        else
+            graph.createGraph(nodeFilename, edgeFilename, snapshotFilename);
+        if(args.length > 0 && args[0].equals("--batch"))
+        {
+            // usage: CampusPaths --batch <queries|-> [output|-]
+            try{
+                runBatch(graph, args.length > 1 ? args[1] : "-", args.length > 2 ? args[2] : "-");
+            }catch(IOException e){
+                System.err.println("batch failed: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        if(args.length > 0 && args[0].equals("--serve"))
+        {
+            // usage: CampusPaths --serve [port] [threads] [queued]
+            int threads = Runtime.getRuntime().availableProcessors();
+            try{
+                runServer(graph, args.length > 1 ? Integer.parseInt(args[1]) : 8080,
+                        args.length > 2 ? Integer.parseInt(args[2]) : threads,
+                        args.length > 3 ? Integer.parseInt(args[3]) : 4 * threads);
+            }catch(IOException e){
+                System.err.println("server failed: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
         Scanner scanner = new Scanner(System.in);
 
         System.out.print("Enter command(Enter m for command menu): ");
@@ -46,10 +123,61 @@ public class CampusPaths
                 String PART2 = scanner.nextLine();
                 System.out.print(graph.findPath(PART1, PART2));
             }
+            else if(command.equals("p"))
+            {
+                System.out.print("First building id/name, followed by Enter: ");
+                String PART1 = scanner.nextLine();
+                System.out.print("Second building id/name, followed by Enter: ");
+                String PART2 = scanner.nextLine();
+                System.out.print("Profile (shortest, accessible or sheltered), followed by Enter: ");
+                String name = scanner.nextLine();
+                try{
+                    RoutingProfile profile = RoutingProfile.valueOf(name.trim().toUpperCase(Locale.ROOT));
+                    System.out.print(graph.findPath(PART1, PART2, SearchMode.DIJKSTRA, profile));
+                }catch(IllegalArgumentException e){
+                    System.out.println("Unknown profile: [" + name + "]");
+                }
+            }
+            else if(command.equals("t"))
+            {
+                ArrayList<String> stops = new ArrayList<>();
+                System.out.print("Starting building id/name, followed by Enter: ");
+                String stop = scanner.nextLine();
+                while(!stop.isEmpty())
+                {
+                    stops.add(stop);
+                    System.out.print("Next building id/name, or Enter to finish: ");
+                    stop = scanner.nextLine();
+                }
+                try{
+                    System.out.print(graph.planTour(stops.toArray(new String[0]), false, RoutingProfile.SHORTEST,
+                            1000).toText());
+                }catch(IllegalArgumentException e){
+                    System.out.println(e.getMessage());
+                }
+            }
+            else if(command.equals("d"))
+            {
+                System.out.print(graph.getMapQuality());
+            }
             else if(command.equals("b"))
             {
                 printAllBuildings(graph);
             }
+            else if(command.equals("i"))
+            {
+                QueryMetrics metrics = graph.getMetrics();
+                metrics.setEnabled(!metrics.isEnabled());
+                System.out.println("Query statistics " + (metrics.isEnabled() ? "on" : "off"));
+            }
+            else if(command.equals("s"))
+            {
+                System.out.print(graph.getMetrics());
+            }
+            else if(command.equals("j"))
+            {
+                System.out.println(graph.getMetrics().toJson());
+            }
             else
             {
                 System.out.println("Unknown option");
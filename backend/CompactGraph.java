@@ -0,0 +1,257 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/** <b>CompactGraph</b> represents an <b>immutable</b> graph frozen from a
+    {@link Graph}. Every node is interned to a dense int index in [0, size())
+    and the adjacency is stored in compressed-sparse-row form:
+    the outgoing edges of node u are the entries
+    targets[offsets[u]] .. targets[offsets[u+1]-1] with matching weights.
+    Only edges with a weight strictly greater than 0 are kept, which is
+    the same set of children that {@link Graph#getAllChildren} reports.
+    @param <T1> Node name
+ */
+public class CompactGraph<T1> {
+    private final ArrayList<T1> nodes;
+    private final HashMap<T1, Integer> index;
+    // nodes appended to a shared dictionary, with indices from nodes.size()
+    private final List<T1> extraNodes;
+    private final HashMap<T1, Integer> extraIndex;
+    final int[] offsets;
+    final int[] targets;
+    final double[] weights;
+
+    /** @effects Constructs a graph over the given dictionary and arrays,
+        which are not copied. index must map nodes.get(i) to i.
+    */
+    CompactGraph(ArrayList<T1> nodes, HashMap<T1, Integer> index, int[] offsets, int[] targets, double[] weights)
+    {
+        this(nodes, index, null, null, offsets, targets, weights);
+    }
+
+    private CompactGraph(ArrayList<T1> nodes, HashMap<T1, Integer> index, List<T1> extraNodes,
+                         HashMap<T1, Integer> extraIndex, int[] offsets, int[] targets, double[] weights)
+    {
+        this.nodes = nodes;
+        this.index = index;
+        this.extraNodes = extraNodes;
+        this.extraIndex = extraIndex;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /** @param nodes the node at every index
+        @param offsets the first edge of every node, then the edge count
+        @param targets the target index of every edge
+        @param weights the weight of every edge
+        @requires every row of targets is sorted and every weight is > 0
+        @effects Constructs a graph over the given arrays, which are not
+        copied; the caller must not modify them afterwards.
+    */
+    CompactGraph(ArrayList<T1> nodes, int[] offsets, int[] targets, double[] weights)
+    {
+        this.nodes = nodes;
+        this.index = new HashMap<>(nodes.size() * 4 / 3 + 1);
+        for(int i = 0; i < nodes.size(); i++)
+            index.put(nodes.get(i), i);
+        this.extraNodes = null;
+        this.extraIndex = null;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /** @param base a graph whose dictionary is shared, not copied
+        @param extraNodes nodes appended after those of base
+        @param offsets the first edge of every node, then the edge count
+        @param targets the target index of every edge
+        @param weights the weight of every edge
+        @requires base has no appended nodes itself, extraNodes holds no
+        node of base, every row of targets is sorted and every weight is > 0
+        @effects Constructs a graph over the nodes of base followed by
+        extraNodes and the given arrays, as used for live edits.
+    */
+    CompactGraph(CompactGraph<T1> base, List<T1> extraNodes, int[] offsets, int[] targets, double[] weights)
+    {
+        this.nodes = base.nodes;
+        this.index = base.index;
+        this.extraNodes = extraNodes;
+        this.extraIndex = new HashMap<>();
+        for(int i = 0; i < extraNodes.size(); i++)
+            extraIndex.put(extraNodes.get(i), nodes.size() + i);
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /** @param matrix the adjacency of the graph to freeze
+        @requires matrix != null and every child is also a key of matrix
+        @effects Constructs a frozen copy of matrix. Rows are sorted by
+        target index so that a scan of one node touches increasing memory.
+    */
+    CompactGraph(Map<T1, ? extends Map<T1, Double>> matrix)
+    {
+        int n = matrix.size();
+        nodes = new ArrayList<>(n);
+        index = new HashMap<>(n * 4 / 3 + 1);
+        for(T1 node: matrix.keySet())
+        {
+            index.put(node, nodes.size());
+            nodes.add(node);
+        }
+
+        extraNodes = null;
+        extraIndex = null;
+        offsets = new int[n + 1];
+        for(int u = 0; u < n; u++)
+        {
+            int degree = 0;
+            for(Double weight: matrix.get(nodes.get(u)).values())
+            {
+                if(weight != null && weight > 0)
+                    degree++;
+            }
+            offsets[u + 1] = offsets[u] + degree;
+        }
+
+        targets = new int[offsets[n]];
+        weights = new double[offsets[n]];
+        int[] row = new int[0];
+        for(int u = 0; u < n; u++)
+        {
+            int start = offsets[u];
+            int degree = offsets[u + 1] - start;
+            if(row.length < degree)
+                row = new int[degree];
+            int k = 0;
+            Map<T1, Double> children = matrix.get(nodes.get(u));
+            for(Map.Entry<T1, Double> entry: children.entrySet())
+            {
+                Double weight = entry.getValue();
+                if(weight != null && weight > 0)
+                    row[k++] = index.get(entry.getKey());
+            }
+            Arrays.sort(row, 0, degree);
+            for(int i = 0; i < degree; i++)
+            {
+                int v = row[i];
+                targets[start + i] = v;
+                weights[start + i] = children.get(nodes.get(v));
+            }
+        }
+    }
+
+    /** @return the number of nodes in this graph
+    */
+    public int size()
+    {
+        return extraNodes == null ? nodes.size() : nodes.size() + extraNodes.size();
+    }
+
+    /** @return the number of directed edges in this graph
+    */
+    public int edgeCount()
+    {
+        return targets.length;
+    }
+
+    /** @param node the node to look up
+        @return the dense index of node, or -1 if node is not in the graph
+    */
+    public int indexOf(T1 node)
+    {
+        Integer i = index.get(node);
+        if(i == null && extraIndex != null)
+            i = extraIndex.get(node);
+        return i == null ? -1 : i;
+    }
+
+    /** @param i a node index
+        @requires 0 <= i < size()
+        @return the node interned at index i
+    */
+    public T1 node(int i)
+    {
+        return i < nodes.size() ? nodes.get(i) : extraNodes.get(i - nodes.size());
+    }
+
+    /** @param u a node index
+        @requires 0 <= u < size()
+        @return the position of the first outgoing edge of u
+    */
+    public int firstEdge(int u)
+    {
+        return offsets[u];
+    }
+
+    /** @param u a node index
+        @requires 0 <= u < size()
+        @return one past the position of the last outgoing edge of u
+    */
+    public int endEdge(int u)
+    {
+        return offsets[u + 1];
+    }
+
+    /** @param e an edge position
+        @requires 0 <= e < edgeCount()
+        @return the index of the node edge e points to
+    */
+    public int target(int e)
+    {
+        return targets[e];
+    }
+
+    /** @param e an edge position
+        @requires 0 <= e < edgeCount()
+        @return the weight of edge e
+    */
+    public double weight(int e)
+    {
+        return weights[e];
+    }
+
+    /** @param u the index of the parent node
+        @param v the index of the child node
+        @return the position of edge u->v, or -1 if there is no such edge
+    */
+    public int findEdge(int u, int v)
+    {
+        int e = Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v);
+        return e < 0 ? -1 : e;
+    }
+
+    /** @return a graph with the same nodes and node indices as this graph
+        and every edge reversed, as needed by backward searches. The node
+        dictionary is shared, not copied.
+    */
+    public CompactGraph<T1> transpose()
+    {
+        int n = size();
+        int[] reverseOffsets = new int[n + 1];
+        for(int e = 0; e < targets.length; e++)
+            reverseOffsets[targets[e] + 1]++;
+        for(int v = 0; v < n; v++)
+            reverseOffsets[v + 1] += reverseOffsets[v];
+        int[] next = Arrays.copyOf(reverseOffsets, n);
+        int[] reverseTargets = new int[targets.length];
+        double[] reverseWeights = new double[targets.length];
+        // visiting parents in increasing order keeps every reversed row sorted
+        for(int u = 0; u < n; u++)
+        {
+            for(int e = offsets[u]; e < offsets[u + 1]; e++)
+            {
+                int slot = next[targets[e]]++;
+                reverseTargets[slot] = u;
+                reverseWeights[slot] = weights[e];
+            }
+        }
+        return new CompactGraph<>(nodes, index, extraNodes, extraIndex, reverseOffsets, reverseTargets, reverseWeights);
+    }
+}
@@ -0,0 +1,154 @@
+package backend;
+
+/**
+ * <b>Components</b> is an <b>immutable</b> labelling of the connected
+ * components of a graph under one weight array: two nodes share a label
+ * exactly when a path of arcs of finite weight joins them, so a search
+ * between nodes of different labels can be answered "no path" before it
+ * starts. Labels are 0 to count() - 1, numbered in the order of the
+ * smallest node of each component.
+ * The labels come from a union-find over the arcs, flattened so a lookup
+ * is one array read. Arcs that become usable are merged into a copy of the
+ * labels in O(n) without a pass over the arcs; union-find cannot split a
+ * component, so after an arc is closed the labels are built again.
+ */
+final class Components
+{
+    // the label of every node
+    private final int[] label;
+    // the number of nodes with every label
+    private final int[] sizes;
+
+    private Components(int[] label, int[] sizes)
+    {
+        this.label = label;
+        this.sizes = sizes;
+    }
+
+    /**
+     * @param: graph    The graph; every arc has its reverse with the same
+     *                  weight.
+     * @param: weights  The weight of every arc of graph by arc position.
+     * @returns   the components of graph joined by arcs of finite weight.
+     */
+    static Components of(CompactGraph<?> graph, double[] weights)
+    {
+        int[] parent = new int[graph.size()];
+        for(int v = 0; v < parent.length; v++)
+            parent[v] = v;
+        for(int u = 0; u < parent.length; u++)
+        {
+            for(int e = graph.firstEdge(u), end = graph.endEdge(u); e < end; e++)
+            {
+                int v = graph.target(e);
+                // the reverse arc joins the same two nodes
+                if(u < v && weights[e] < Double.POSITIVE_INFINITY)
+                    union(parent, u, v);
+            }
+        }
+        return flatten(parent);
+    }
+
+    /**
+     * @param: graph    The graph these components were of, with arcs added
+     *                  or made cheaper and possibly nodes added after the
+     *                  last; no arc of it closed.
+     * @param: weights  The weight of every arc of graph by arc position.
+     * @param: joined   The arcs that became usable, as MapEdits.arc keys.
+     * @returns   the components of graph, these with the joined arcs of
+     *            finite weight merged in.
+     */
+    Components join(CompactGraph<?> graph, double[] weights, long[] joined)
+    {
+        int n = graph.size();
+        int[] parent = new int[n];
+        // a node of one component points at its smallest node
+        int[] first = new int[sizes.length];
+        for(int v = label.length - 1; v >= 0; v--)
+            first[label[v]] = v;
+        for(int v = 0; v < n; v++)
+            parent[v] = v < label.length ? first[label[v]] : v;
+        for(long arc: joined)
+        {
+            int u = MapEdits.from(arc);
+            int v = MapEdits.to(arc);
+            int e = u < n && v < n ? graph.findEdge(u, v) : -1;
+            if(e >= 0 && weights[e] < Double.POSITIVE_INFINITY)
+                union(parent, u, v);
+        }
+        return flatten(parent);
+    }
+
+    private static int find(int[] parent, int v)
+    {
+        while(parent[v] != v)
+        {
+            // path halving
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    // links the larger root under the smaller, so every root is the
+    // smallest node of its component
+    private static void union(int[] parent, int u, int v)
+    {
+        int a = find(parent, u);
+        int b = find(parent, v);
+        if(a < b)
+            parent[b] = a;
+        else if(b < a)
+            parent[a] = b;
+    }
+
+    private static Components flatten(int[] parent)
+    {
+        int n = parent.length;
+        int[] label = new int[n];
+        int count = 0;
+        for(int v = 0; v < n; v++)
+        {
+            int root = find(parent, v);
+            // roots are the smallest nodes, so a root is labelled before
+            // any other node of its component
+            label[v] = root == v ? count++ : label[root];
+        }
+        int[] sizes = new int[count];
+        for(int v = 0; v < n; v++)
+            sizes[label[v]]++;
+        return new Components(label, sizes);
+    }
+
+    /**
+     * @returns   true if a path joins nodes u and v.
+     */
+    boolean connected(int u, int v)
+    {
+        return label[u] == label[v];
+    }
+
+    /**
+     * @returns   the label of the component of node v.
+     */
+    int of(int v)
+    {
+        return label[v];
+    }
+
+    /**
+     * @returns   the number of components.
+     */
+    int count()
+    {
+        return sizes.length;
+    }
+
+    /**
+     * @returns   the number of nodes in the component labelled c.
+     */
+    int size(int c)
+    {
+        return sizes[c];
+    }
+}
@@ -0,0 +1,719 @@
+package backend;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * <b>ContractionHierarchy</b> is a preprocessed, <b>immutable</b> search
+ * structure over a CompactGraph. Nodes are contracted one by one in order
+ * of importance; whenever removing a node would lengthen a shortest path
+ * between two of its neighbours, a shortcut edge remembering the contracted
+ * middle node is added. A query is then a bidirectional Dijkstra that only
+ * walks towards more important nodes, which settles a few hundred nodes even
+ * on very large maps. Shortcuts are unpacked back into the original edges,
+ * so callers see the same node sequence a plain search would report.
+ *
+ * The upward graph holds, for each node u, the edges u->w with
+ * rank[w] > rank[u]. The downward graph holds, for each node w, the parents
+ * u of edges u->w with rank[u] > rank[w]; it is searched backwards from the
+ * target. Both are stored in compressed-sparse-row form like CompactGraph.
+ *
+ * A hierarchy remembers a fingerprint of the arcs and weights it was built
+ * from, so one saved for another edge file is refused even when the nodes
+ * are the same. The saved form is magic "CHP2", version, payload length
+ * and CRC32C of the payload, then the payload: the graph fingerprint, the
+ * node ids and the arrays, each prefixed by its length.
+ */
+public final class ContractionHierarchy
+{
+    private static final int MAGIC = 0x43485032; // "CHP2"
+    private static final int VERSION = 2;
+    // witness searches settle at most this many nodes; the estimate used for
+    // node ordering can afford to be coarser than the real contraction
+    private static final int CONTRACT_SETTLE_LIMIT = 500;
+    private static final int ESTIMATE_SETTLE_LIMIT = 50;
+
+    private final String[] ids;
+    private final long graphFingerprint;
+    final int[] rank;
+    final int[] upOffsets;
+    final int[] upTargets;
+    final double[] upWeights;
+    final int[] upMiddle;
+    final int[] downOffsets;
+    final int[] downTargets;
+    final double[] downWeights;
+    final int[] downMiddle;
+
+    private ContractionHierarchy(String[] ids, long graphFingerprint, int[] rank,
+                                 int[] upOffsets, int[] upTargets, double[] upWeights, int[] upMiddle,
+                                 int[] downOffsets, int[] downTargets, double[] downWeights, int[] downMiddle)
+    {
+        this.ids = ids;
+        this.graphFingerprint = graphFingerprint;
+        this.rank = rank;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMiddle = upMiddle;
+        this.downOffsets = downOffsets;
+        this.downTargets = downTargets;
+        this.downWeights = downWeights;
+        this.downMiddle = downMiddle;
+    }
+
+    /**
+     * A growable list of edges incident to one node during contraction.
+     * Adding an edge to a neighbour that is already present keeps the
+     * shorter of the two.
+     */
+    private static final class Adjacency
+    {
+        int[] node = new int[4];
+        double[] weight = new double[4];
+        int[] middle = new int[4];
+        int size;
+
+        void add(int v, double w, int m)
+        {
+            for(int i = 0; i < size; i++)
+            {
+                if(node[i] == v)
+                {
+                    if(w < weight[i])
+                    {
+                        weight[i] = w;
+                        middle[i] = m;
+                    }
+                    return;
+                }
+            }
+            if(size == node.length)
+            {
+                node = Arrays.copyOf(node, size * 2);
+                weight = Arrays.copyOf(weight, size * 2);
+                middle = Arrays.copyOf(middle, size * 2);
+            }
+            node[size] = v;
+            weight[size] = w;
+            middle[size] = m;
+            size++;
+        }
+
+        void remove(int v)
+        {
+            for(int i = 0; i < size; i++)
+            {
+                if(node[i] == v)
+                {
+                    size--;
+                    node[i] = node[size];
+                    weight[i] = weight[size];
+                    middle[i] = middle[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Contraction state; discarded once the hierarchy is built.
+     */
+    private static final class Builder
+    {
+        final int n;
+        final Adjacency[] out;
+        final Adjacency[] in;
+        final boolean[] contracted;
+        final int[] deletedNeighbours;
+        final int[] depth;
+        final int[] edgeDifference;
+        final SearchWorkspace witness;
+        final int[] targetMark;
+        int markGeneration;
+        int shortcuts;
+
+        Builder(CompactGraph<?> graph)
+        {
+            n = graph.size();
+            out = new Adjacency[n];
+            in = new Adjacency[n];
+            for(int v = 0; v < n; v++)
+            {
+                out[v] = new Adjacency();
+                in[v] = new Adjacency();
+            }
+            for(int u = 0; u < n; u++)
+            {
+                for(int e = graph.firstEdge(u); e < graph.endEdge(u); e++)
+                {
+                    int w = graph.target(e);
+                    if(w == u)
+                        continue;
+                    out[u].add(w, graph.weight(e), -1);
+                    in[w].add(u, graph.weight(e), -1);
+                }
+            }
+            contracted = new boolean[n];
+            deletedNeighbours = new int[n];
+            depth = new int[n];
+            edgeDifference = new int[n];
+            witness = new SearchWorkspace(n);
+            targetMark = new int[n];
+        }
+
+        /**
+         * Runs a bounded Dijkstra from source over uncontracted nodes,
+         * skipping via, until every marked target or every node closer than
+         * limit is settled, or the settle budget runs out.
+         */
+        void witnessSearch(int source, int via, double limit, int targets, int settleLimit)
+        {
+            IndexedHeap heap = witness.heap;
+            witness.reset();
+            witness.set(source, 0.0, -1);
+            heap.push(source, 0.0);
+            int settled = 0;
+            while(!heap.isEmpty() && heap.peekKey() <= limit && settled < settleLimit && targets > 0)
+            {
+                double currDistance = heap.peekKey();
+                int currNode = heap.pop();
+                settled++;
+                if(targetMark[currNode] == markGeneration)
+                    targets--;
+                Adjacency edges = out[currNode];
+                for(int i = 0; i < edges.size; i++)
+                {
+                    int child = edges.node[i];
+                    if(child == via || contracted[child])
+                        continue;
+                    double newDistance = currDistance + edges.weight[i];
+                    if(!witness.reached(child) || newDistance < witness.distance[child])
+                    {
+                        witness.set(child, newDistance, currNode);
+                        heap.push(child, newDistance);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Finds the shortcuts needed to contract v, adding them only when
+         * apply is true.
+         * @returns the number of shortcuts needed.
+         */
+        int contract(int v, boolean apply)
+        {
+            Adjacency incoming = in[v];
+            Adjacency outgoing = out[v];
+            markGeneration++;
+            double longestOut = 0;
+            for(int j = 0; j < outgoing.size; j++)
+            {
+                targetMark[outgoing.node[j]] = markGeneration;
+                longestOut = Math.max(longestOut, outgoing.weight[j]);
+            }
+            int added = 0;
+            for(int i = 0; i < incoming.size; i++)
+            {
+                int u = incoming.node[i];
+                double toV = incoming.weight[i];
+                int targets = outgoing.size;
+                witnessSearch(u, v, toV + longestOut, targets, apply ? CONTRACT_SETTLE_LIMIT : ESTIMATE_SETTLE_LIMIT);
+                for(int j = 0; j < outgoing.size; j++)
+                {
+                    int w = outgoing.node[j];
+                    if(w == u)
+                        continue;
+                    double viaV = toV + outgoing.weight[j];
+                    if(witness.reached(w) && witness.distance[w] <= viaV)
+                        continue;
+                    added++;
+                    if(apply)
+                    {
+                        out[u].add(w, viaV, v);
+                        in[w].add(u, viaV, v);
+                    }
+                }
+            }
+            return added;
+        }
+
+        /**
+         * Recomputes the edge difference of v with a simulated contraction.
+         */
+        double priority(int v)
+        {
+            edgeDifference[v] = contract(v, false) - in[v].size - out[v].size;
+            return cachedPriority(v);
+        }
+
+        /**
+         * @returns the priority of v from its last simulated edge difference;
+         *          cheap enough to refresh every neighbour after each contraction.
+         */
+        double cachedPriority(int v)
+        {
+            return 2 * edgeDifference[v] + deletedNeighbours[v] + depth[v];
+        }
+    }
+
+    /**
+     * @param: graph  The frozen graph to preprocess.
+     * @requires  graph != null and every edge weight is non-negative
+     * @effects   Orders the nodes by edge difference (shortcuts added minus
+     *            edges removed) plus the number of contracted neighbours,
+     *            with lazy updates, and contracts them in that order.
+     * @returns   The hierarchy of graph.
+     */
+    public static ContractionHierarchy build(CompactGraph<?> graph)
+    {
+        Builder builder = new Builder(graph);
+        int n = builder.n;
+        IndexedHeap order = new IndexedHeap(n);
+        for(int v = 0; v < n; v++)
+            order.push(v, builder.priority(v));
+
+        int[] rank = new int[n];
+        int[][] upNode = new int[n][];
+        double[][] upWeight = new double[n][];
+        int[][] upMid = new int[n][];
+        int[][] downNode = new int[n][];
+        double[][] downWeight = new double[n][];
+        int[][] downMid = new int[n][];
+        int next = 0;
+        while(!order.isEmpty())
+        {
+            int v = order.pop();
+            if(!order.isEmpty())
+            {
+                double priority = builder.priority(v);
+                if(priority > order.peekKey())
+                {
+                    order.push(v, priority);
+                    continue;
+                }
+            }
+            rank[v] = next++;
+            Adjacency outgoing = builder.out[v];
+            Adjacency incoming = builder.in[v];
+            upNode[v] = Arrays.copyOf(outgoing.node, outgoing.size);
+            upWeight[v] = Arrays.copyOf(outgoing.weight, outgoing.size);
+            upMid[v] = Arrays.copyOf(outgoing.middle, outgoing.size);
+            downNode[v] = Arrays.copyOf(incoming.node, incoming.size);
+            downWeight[v] = Arrays.copyOf(incoming.weight, incoming.size);
+            downMid[v] = Arrays.copyOf(incoming.middle, incoming.size);
+
+            builder.shortcuts += builder.contract(v, true);
+            builder.contracted[v] = true;
+            for(int i = 0; i < outgoing.size; i++)
+            {
+                int w = outgoing.node[i];
+                builder.in[w].remove(v);
+                builder.deletedNeighbours[w]++;
+                builder.depth[w] = Math.max(builder.depth[w], builder.depth[v] + 1);
+            }
+            for(int i = 0; i < incoming.size; i++)
+            {
+                int u = incoming.node[i];
+                builder.out[u].remove(v);
+                builder.deletedNeighbours[u]++;
+                builder.depth[u] = Math.max(builder.depth[u], builder.depth[v] + 1);
+            }
+            for(int i = 0; i < outgoing.size; i++)
+                order.update(outgoing.node[i], builder.cachedPriority(outgoing.node[i]));
+            for(int i = 0; i < incoming.size; i++)
+                order.update(incoming.node[i], builder.cachedPriority(incoming.node[i]));
+            builder.out[v] = null;
+            builder.in[v] = null;
+        }
+
+        String[] ids = new String[n];
+        for(int v = 0; v < n; v++)
+            ids[v] = String.valueOf(graph.node(v));
+        int[] upOffsets = offsets(upNode);
+        int[] downOffsets = offsets(downNode);
+        return new ContractionHierarchy(ids, fingerprint(graph), rank,
+                upOffsets, flatten(upNode, upOffsets), flatten(upWeight, upOffsets), flatten(upMid, upOffsets),
+                downOffsets, flatten(downNode, downOffsets), flatten(downWeight, downOffsets), flatten(downMid, downOffsets));
+    }
+
+    private static int[] offsets(int[][] rows)
+    {
+        int[] offsets = new int[rows.length + 1];
+        for(int v = 0; v < rows.length; v++)
+            offsets[v + 1] = offsets[v] + rows[v].length;
+        return offsets;
+    }
+
+    private static int[] flatten(int[][] rows, int[] offsets)
+    {
+        int[] flat = new int[offsets[rows.length]];
+        for(int v = 0; v < rows.length; v++)
+            System.arraycopy(rows[v], 0, flat, offsets[v], rows[v].length);
+        return flat;
+    }
+
+    private static double[] flatten(double[][] rows, int[] offsets)
+    {
+        double[] flat = new double[offsets[rows.length]];
+        for(int v = 0; v < rows.length; v++)
+            System.arraycopy(rows[v], 0, flat, offsets[v], rows[v].length);
+        return flat;
+    }
+
+    /**
+     * @returns   the number of nodes in this hierarchy.
+     */
+    public int size()
+    {
+        return rank.length;
+    }
+
+    /**
+     * @returns   the number of edges, original and shortcut, in the upward
+     *            and downward graphs together.
+     */
+    public int edgeCount()
+    {
+        return upTargets.length + downTargets.length;
+    }
+
+    /**
+     * @param: graph  A frozen graph.
+     * @returns   true if this hierarchy was built from a graph with the same
+     *            nodes at the same indices and the same arcs and weights as
+     *            graph.
+     */
+    public boolean matches(CompactGraph<?> graph)
+    {
+        if(graph.size() != ids.length)
+            return false;
+        for(int v = 0; v < ids.length; v++)
+        {
+            if(!ids[v].equals(String.valueOf(graph.node(v))))
+                return false;
+        }
+        return fingerprint(graph) == graphFingerprint;
+    }
+
+    /**
+     * @returns   the arc count of graph in the high half and a CRC32C of its
+     *            offsets, targets and weights in the low half.
+     */
+    static long fingerprint(CompactGraph<?> graph)
+    {
+        int n = graph.size();
+        int m = graph.edgeCount();
+        ByteBuffer buffer = ByteBuffer.allocate(4 * (n + 1) + 12 * m);
+        buffer.asIntBuffer().put(graph.offsets, 0, n + 1);
+        buffer.position(4 * (n + 1));
+        buffer.asIntBuffer().put(graph.targets, 0, m);
+        buffer.position(4 * (n + 1) + 4 * m);
+        buffer.asDoubleBuffer().put(graph.weights, 0, m);
+        buffer.position(0);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer);
+        return (long) m << 32 | crc.getValue();
+    }
+
+    /**
+     * @param: source    The index of the starting node.
+     * @param: target    The index of the destination node.
+     * @param: workspace The per-thread state; both of its halves are used.
+     * @requires  0 <= source, target < size() && workspace.capacity() >= size()
+     * @modifies  workspace
+     * @effects   Runs the bidirectional upward search. The path it finds is
+     *            made of hierarchy edges; use tracePath to unpack it.
+     * @returns   The shortest-path distance from source to target, or
+     *            Double.POSITIVE_INFINITY if target is unreachable.
+     */
+    public double query(int source, int target, SearchWorkspace workspace)
+    {
+        SearchWorkspace fw = workspace;
+        SearchWorkspace bw = workspace.backward();
+        fw.reset();
+        bw.reset();
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        if(source == target)
+        {
+            best = 0.0;
+            meeting = source;
+        }
+        fw.set(source, 0.0, -1);
+        fw.heap.push(source, 0.0);
+        bw.set(target, 0.0, -1);
+        bw.heap.push(target, 0.0);
+
+        while(true)
+        {
+            boolean forwardOpen = !fw.heap.isEmpty() && fw.heap.peekKey() < best;
+            boolean backwardOpen = !bw.heap.isEmpty() && bw.heap.peekKey() < best;
+            if(!forwardOpen && !backwardOpen)
+                break;
+            boolean forwardTurn = forwardOpen && (!backwardOpen || fw.heap.peekKey() <= bw.heap.peekKey());
+            SearchWorkspace self = forwardTurn ? fw : bw;
+            SearchWorkspace other = forwardTurn ? bw : fw;
+            int[] offsets = forwardTurn ? upOffsets : downOffsets;
+            int[] targets = forwardTurn ? upTargets : downTargets;
+            double[] weights = forwardTurn ? upWeights : downWeights;
+            int[] stallOffsets = forwardTurn ? downOffsets : upOffsets;
+            int[] stallTargets = forwardTurn ? downTargets : upTargets;
+            double[] stallWeights = forwardTurn ? downWeights : upWeights;
+
+            double currDistance = self.heap.peekKey();
+            int currNode = self.heap.pop();
+            self.settled++;
+            // stall-on-demand: a more important node already reached by this
+            // search gives a shorter way here, so nothing relaxed from here
+            // can be on a shortest path
+            if(stalled(currNode, currDistance, self, stallOffsets, stallTargets, stallWeights))
+                continue;
+            self.relaxed += offsets[currNode + 1] - offsets[currNode];
+            for(int e = offsets[currNode], end = offsets[currNode + 1]; e < end; e++)
+            {
+                int child = targets[e];
+                double newDistance = currDistance + weights[e];
+                if(!self.reached(child) || newDistance < self.distance[child])
+                {
+                    self.set(child, newDistance, currNode);
+                    self.heap.push(child, newDistance);
+                    self.updated++;
+                    if(other.reached(child) && newDistance + other.distance[child] < best)
+                    {
+                        best = newDistance + other.distance[child];
+                        meeting = child;
+                    }
+                }
+            }
+        }
+        fw.meeting = meeting;
+        return best;
+    }
+
+    private static boolean stalled(int node, double distance, SearchWorkspace search,
+                                   int[] offsets, int[] targets, double[] weights)
+    {
+        for(int e = offsets[node], end = offsets[node + 1]; e < end; e++)
+        {
+            int higher = targets[e];
+            if(search.reached(higher) && search.distance[higher] + weights[e] < distance)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param: workspace The workspace of the last query.
+     * @param: target    The destination of the last query.
+     * @requires  the last query on workspace reached target
+     * @modifies  workspace
+     * @effects   Replaces the traced path of workspace with the same route
+     *            expressed in original edges, shortcuts unpacked.
+     * @returns   the number of nodes on the unpacked path.
+     */
+    public int tracePath(SearchWorkspace workspace, int target)
+    {
+        int length = workspace.tracePath(target);
+        SearchWorkspace scratch = workspace.backward();
+        int[] hierarchyPath = scratch.path();
+        System.arraycopy(workspace.path(), 0, hierarchyPath, 0, length);
+        int[] path = workspace.path();
+        int unpacked = 1;
+        path[0] = hierarchyPath[0];
+        for(int i = 1; i < length; i++)
+            unpacked = unpack(hierarchyPath[i - 1], hierarchyPath[i], path, unpacked);
+        return unpacked;
+    }
+
+    /**
+     * Appends the original nodes after a on edge a->b to path.
+     */
+    private int unpack(int a, int b, int[] path, int length)
+    {
+        int middle = middle(a, b);
+        if(middle < 0)
+        {
+            path[length] = b;
+            return length + 1;
+        }
+        length = unpack(a, middle, path, length);
+        return unpack(middle, b, path, length);
+    }
+
+    /**
+     * @returns   the contracted node bridged by hierarchy edge a->b, or -1 if
+     *            a->b is an original edge.
+     */
+    private int middle(int a, int b)
+    {
+        if(rank[b] > rank[a])
+        {
+            for(int e = upOffsets[a]; e < upOffsets[a + 1]; e++)
+            {
+                if(upTargets[e] == b)
+                    return upMiddle[e];
+            }
+        }
+        else
+        {
+            for(int e = downOffsets[b]; e < downOffsets[b + 1]; e++)
+            {
+                if(downTargets[e] == a)
+                    return downMiddle[e];
+            }
+        }
+        throw new IllegalStateException("no hierarchy edge " + ids[a] + " -> " + ids[b]);
+    }
+
+    /**
+     * @param: out  The stream to write to.
+     * @effects   Writes this hierarchy in a versioned, checksummed binary
+     *            format.
+     * @throws    IOException if the stream cannot be written.
+     */
+    public void write(DataOutputStream out) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 24 * edgeCount());
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeLong(graphFingerprint);
+        payload.writeInt(ids.length);
+        for(String id: ids)
+            payload.writeUTF(id);
+        writeInts(payload, rank);
+        writeInts(payload, upOffsets);
+        writeInts(payload, upTargets);
+        writeDoubles(payload, upWeights);
+        writeInts(payload, upMiddle);
+        writeInts(payload, downOffsets);
+        writeInts(payload, downTargets);
+        writeDoubles(payload, downWeights);
+        writeInts(payload, downMiddle);
+        payload.flush();
+        CRC32C crc = new CRC32C();
+        crc.update(bytes.toByteArray());
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(bytes.size());
+        out.writeInt((int) crc.getValue());
+        bytes.writeTo(out);
+    }
+
+    /**
+     * @param: in  The stream to read from.
+     * @returns   The hierarchy written by write.
+     * @throws    IOException if the stream cannot be read, does not hold
+     *            a hierarchy in this version of the format, is truncated,
+     *            fails its checksum or holds arrays that do not fit together.
+     */
+    public static ContractionHierarchy read(DataInputStream in) throws IOException
+    {
+        if(in.readInt() != MAGIC)
+            throw new IOException("not a contraction hierarchy file");
+        int version = in.readInt();
+        if(version != VERSION)
+            throw new IOException("unsupported contraction hierarchy version " + version);
+        int length = in.readInt();
+        int checksum = in.readInt();
+        if(length < 0)
+            throw new IOException("not a contraction hierarchy file");
+        // readNBytes grows its buffer as data arrives, so a wrong length
+        // cannot make it allocate more than the stream holds
+        byte[] bytes = in.readNBytes(length);
+        if(bytes.length != length)
+            throw new IOException("contraction hierarchy file is truncated");
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        if((int) crc.getValue() != checksum)
+            throw new IOException("contraction hierarchy file fails its checksum");
+
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(bytes));
+        long graphFingerprint = payload.readLong();
+        int n = payload.readInt();
+        // every id takes at least its two length bytes
+        if(n < 0 || n > payload.available() / 2)
+            throw new IOException("malformed contraction hierarchy file");
+        String[] ids = new String[n];
+        for(int v = 0; v < n; v++)
+            ids[v] = payload.readUTF();
+        int[] rank = readInts(payload);
+        int[] upOffsets = readInts(payload);
+        int[] upTargets = readInts(payload);
+        double[] upWeights = readDoubles(payload);
+        int[] upMiddle = readInts(payload);
+        int[] downOffsets = readInts(payload);
+        int[] downTargets = readInts(payload);
+        double[] downWeights = readDoubles(payload);
+        int[] downMiddle = readInts(payload);
+        if(payload.available() != 0 || rank.length != n
+                || !fits(n, upOffsets, upTargets, upWeights, upMiddle)
+                || !fits(n, downOffsets, downTargets, downWeights, downMiddle))
+            throw new IOException("malformed contraction hierarchy file");
+        return new ContractionHierarchy(ids, graphFingerprint, rank,
+                upOffsets, upTargets, upWeights, upMiddle,
+                downOffsets, downTargets, downWeights, downMiddle);
+    }
+
+    // true if the arrays form a CSR graph over n nodes whose middle nodes
+    // are -1 or in range
+    private static boolean fits(int n, int[] offsets, int[] targets, double[] weights, int[] middle)
+    {
+        int m = targets.length;
+        if(offsets.length != n + 1 || weights.length != m || middle.length != m || offsets[0] != 0 || offsets[n] != m)
+            return false;
+        for(int v = 0; v < n; v++)
+        {
+            if(offsets[v] > offsets[v + 1])
+                return false;
+        }
+        for(int e = 0; e < m; e++)
+        {
+            if(targets[e] < 0 || targets[e] >= n || middle[e] < -1 || middle[e] >= n)
+                return false;
+        }
+        return true;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException
+    {
+        out.writeInt(values.length);
+        for(int value: values)
+            out.writeInt(value);
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException
+    {
+        out.writeInt(values.length);
+        for(double value: values)
+            out.writeDouble(value);
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException
+    {
+        int length = in.readInt();
+        if(length < 0 || length > in.available() / 4)
+            throw new IOException("malformed contraction hierarchy file");
+        int[] values = new int[length];
+        for(int i = 0; i < values.length; i++)
+            values[i] = in.readInt();
+        return values;
+    }
+
+    private static double[] readDoubles(DataInputStream in) throws IOException
+    {
+        int length = in.readInt();
+        if(length < 0 || length > in.available() / 8)
+            throw new IOException("malformed contraction hierarchy file");
+        double[] values = new double[length];
+        for(int i = 0; i < values.length; i++)
+            values[i] = in.readDouble();
+        return values;
+    }
+}
@@ -59,7 +59,10 @@ public class Coordinate {
 	 *            computed as sqrt( (x - other.x)^2 + (y - other.y)^2 ).
 	 */
 	public double distance(Coordinate other) {
-		return Math.sqrt(Math.pow(x - other.getX(), 2) + Math.pow(y - other.getY(), 2));
+		double dx = x - other.x;
+		double dy = y - other.y;
+		// dx * dx is what Math.pow(dx, 2) returns, without the call
+		return Math.sqrt(dx * dx + dy * dy);
 	}
 
 	/**
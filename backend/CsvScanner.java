@@ -0,0 +1,264 @@
+package backend;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <b>CsvScanner</b> reads a comma separated file through a read-only memory
+ * mapping and splits it into lines and fields in place. A field is only
+ * copied when it is asked for as a String, and numbers are parsed straight
+ * from the mapped bytes.
+ * Lines end at "\n", "\r" or "\r\n" as for BufferedReader.readLine, and the
+ * field count follows String.split(","): trailing empty fields are dropped
+ * and a line without a comma is one field. Large files are mapped one window
+ * at a time; a line may not be longer than a window. A scanner may also be
+ * given a byte range of the file, in which case it reads the lines that
+ * start inside the range, so scanners over adjacent ranges together read
+ * every line once.
+ * Not safe for use by more than one thread.
+ */
+final class CsvScanner implements Closeable {
+    private static final int WINDOW = 1 << 28;
+    private static final int MAX_FIELDS = 8;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final String filename;
+    private final FileChannel channel;
+    private final long size;
+    private final long end;
+    private final Charset charset = Charset.defaultCharset();
+    private MappedByteBuffer buffer;
+    private long base;
+    private int position;
+
+    private final int[] start = new int[MAX_FIELDS];
+    private final int[] stop = new int[MAX_FIELDS];
+    private int fields;
+    private byte[] scratch = new byte[64];
+
+    /**
+     * @param: filename  The path of the file to scan.
+     * @throws    IOException if the file cannot be opened.
+     */
+    CsvScanner(String filename) throws IOException
+    {
+        this(filename, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param: filename  The path of the file to scan.
+     * @param: from      The first byte of the range.
+     * @param: to        One past the last byte of the range.
+     * @throws    IOException if the file cannot be opened.
+     */
+    CsvScanner(String filename, long from, long to) throws IOException
+    {
+        this.filename = filename;
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        this.size = channel.size();
+        this.end = Math.min(to, size);
+        try{
+            map(lineStart(from));
+        }catch(IOException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @returns   the size of the file in bytes.
+     */
+    long size()
+    {
+        return size;
+    }
+
+    // the first line start at or after from
+    private long lineStart(long from) throws IOException
+    {
+        if(from <= 0)
+            return 0;
+        if(from >= size)
+            return size;
+        map(from - 1);
+        int limit = buffer.limit();
+        // the byte before from ends a line unless it is the "\r" of a "\r\n"
+        byte previous = buffer.get(0);
+        if(previous == '\n' || (previous == '\r' && (limit == 1 || buffer.get(1) != '\n')))
+            return from;
+        for(int i = 1; i < limit; i++)
+        {
+            byte c = buffer.get(i);
+            if(c == '\n')
+                return base + i + 1;
+            if(c == '\r' && i + 1 < limit)
+                return base + i + (buffer.get(i + 1) == '\n' ? 2 : 1);
+        }
+        if(base + limit == size)
+            return size;
+        throw new IOException("File " + filename + " has a line longer than " + WINDOW + " bytes.");
+    }
+
+    private void map(long offset) throws IOException
+    {
+        base = offset;
+        position = 0;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW, size - offset));
+    }
+
+    /**
+     * @effects   Advances to the next line and splits it into fields.
+     * @returns   false at the end of the file.
+     * @throws    IOException if the file cannot be read or a line is longer
+     *            than a mapping window.
+     */
+    boolean nextLine() throws IOException
+    {
+        while(true)
+        {
+            int limit = buffer.limit();
+            if(base + position >= end)
+                return false;
+            boolean last = base + limit == size;
+            int lineStart = position;
+            int i = lineStart;
+            int count = 0;
+            int fieldStart = i;
+            int nonEmpty = 0;
+            byte c = 0;
+            for(; i < limit; i++)
+            {
+                c = buffer.get(i);
+                if(c == '\n' || c == '\r')
+                    break;
+                if(c == ',')
+                {
+                    if(count < MAX_FIELDS)
+                    {
+                        start[count] = fieldStart;
+                        stop[count] = i;
+                    }
+                    count++;
+                    if(i > fieldStart)
+                        nonEmpty = count;
+                    fieldStart = i + 1;
+                }
+            }
+            // a line cut by the window, or a "\r" whose "\n" may be in the next one
+            if(!last && (i == limit || (c == '\r' && i + 1 == limit)))
+            {
+                if(lineStart == 0)
+                    throw new IOException("File " + filename + " has a line longer than " + WINDOW + " bytes.");
+                map(base + lineStart);
+                continue;
+            }
+            if(count < MAX_FIELDS)
+            {
+                start[count] = fieldStart;
+                stop[count] = i;
+            }
+            count++;
+            if(i > fieldStart)
+                nonEmpty = count;
+            // String.split keeps a lone empty field but drops trailing empty ones otherwise
+            fields = count == 1 ? 1 : nonEmpty;
+
+            if(i < limit && buffer.get(i) == '\r' && i + 1 < limit && buffer.get(i + 1) == '\n')
+                i++;
+            position = i < limit ? i + 1 : i;
+            return true;
+        }
+    }
+
+    /**
+     * @returns   the number of fields on the current line.
+     */
+    int fields()
+    {
+        return fields;
+    }
+
+    /**
+     * @param: field  A field index.
+     * @requires  0 <= field < min(fields(), 8)
+     * @returns   a new String holding the field.
+     */
+    String string(int field)
+    {
+        int length = copy(field);
+        return new String(scratch, 0, length, charset);
+    }
+
+    private int copy(int field)
+    {
+        int length = stop[field] - start[field];
+        if(scratch.length < length)
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        buffer.get(start[field], scratch, 0, length);
+        return length;
+    }
+
+    /**
+     * @param: field  A field index.
+     * @requires  0 <= field < min(fields(), 8)
+     * @returns   the field parsed as by Double.parseDouble. Plain decimals
+     *            with at most 15 significant digits are parsed from the
+     *            bytes directly, anything else goes through Double.parseDouble.
+     * @throws    NumberFormatException if the field is not a number.
+     */
+    double number(int field)
+    {
+        int i = start[field];
+        int e = stop[field];
+        boolean negative = false;
+        if(i < e && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+        {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significant = 0;
+        int scale = 0;
+        boolean digits = false;
+        boolean dot = false;
+        for(; i < e; i++)
+        {
+            byte c = buffer.get(i);
+            if(c >= '0' && c <= '9')
+            {
+                digits = true;
+                mantissa = mantissa * 10 + (c - '0');
+                if(mantissa != 0)
+                    significant++;
+                if(dot)
+                    scale++;
+                if(significant > 15)
+                    return Double.parseDouble(string(field));
+            }
+            else if(c == '.' && !dot)
+                dot = true;
+            else
+                return Double.parseDouble(string(field));
+        }
+        // both operands are exact doubles, so one division rounds correctly
+        if(!digits || scale >= POWERS_OF_TEN.length)
+            return Double.parseDouble(string(field));
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        buffer = null;
+        channel.close();
+    }
+}
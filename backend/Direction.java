@@ -0,0 +1,136 @@
+package backend;
+
+/**
+ * <b>Direction</b> is the compass direction of a step along a route, one of
+ * eight 45-degree sectors. Map y grows downwards, so a positive angle from
+ * the x-axis points South.
+ * A step is classified by comparing |dx| and |dy| against tan(22.5 degrees)
+ * and looking its band and signs up in a table; only steps within a hair of
+ * a sector boundary take the angle itself, so every step lands in the same
+ * sector as Coordinate.angle puts it.
+ */
+public enum Direction
+{
+    EAST("East"),
+    SOUTH_EAST("SouthEast"),
+    SOUTH("South"),
+    SOUTH_WEST("SouthWest"),
+    WEST("West"),
+    NORTH_WEST("NorthWest"),
+    NORTH("North"),
+    NORTH_EAST("NorthEast");
+
+    // tan(22.5 degrees): the sector boundaries are |dy| = T|dx| and |dx| = T|dy|
+    private static final double T = Math.tan(Math.toRadians(22.5));
+    // far wider than the rounding error of atan2 and toDegrees
+    private static final double BELOW = 1 - 1e-9;
+    private static final double ABOVE = 1 + 1e-9;
+    // by band (0 along the x-axis, 1 diagonal, 2 along the y-axis), then
+    // dx < 0, then dy < 0
+    private static final Direction[] TABLE = {
+        EAST, WEST, EAST, WEST,
+        SOUTH_EAST, SOUTH_WEST, NORTH_EAST, NORTH_WEST,
+        SOUTH, SOUTH, NORTH, NORTH,
+    };
+    private static final Direction[] VALUES = values();
+
+    private final String label;
+
+    Direction(String label)
+    {
+        this.label = label;
+    }
+
+    /**
+     * @returns   the name of this direction as printed in route directions,
+     *            e.g. "SouthEast".
+     */
+    public String label()
+    {
+        return label;
+    }
+
+    /**
+     * @param: parent  The starting coordinate of the step.
+     * @param: child   The ending coordinate of the step.
+     * @requires  parent != null && child != null
+     * @returns   the direction of travel from parent to child.
+     */
+    public static Direction of(Coordinate parent, Coordinate child)
+    {
+        return of(child.getX() - parent.getX(), child.getY() - parent.getY());
+    }
+
+    /**
+     * @param: dx  The change in x along a step.
+     * @param: dy  The change in y along a step.
+     * @returns   the direction of the step, the same as
+     *            ofAngle(toDegrees(atan2(dy, dx))).
+     */
+    public static Direction of(double dx, double dy)
+    {
+        double ax = Math.abs(dx);
+        double ay = Math.abs(dy);
+        int band;
+        if(ay < ax * T * BELOW)
+            band = 0;
+        else if(ay > ax * T * ABOVE && ax > ay * T * ABOVE)
+            band = 1;
+        else if(ax < ay * T * BELOW)
+            band = 2;
+        else
+            return ofAngle(Math.toDegrees(Math.atan2(dy, dx)));
+        return TABLE[band << 2 | (dx < 0 ? 1 : 0) | (dy < 0 ? 2 : 0)];
+    }
+
+    /**
+     * @param: code  A value returned by code().
+     * @returns   the direction with that code.
+     */
+    static Direction ofCode(byte code)
+    {
+        return VALUES[code];
+    }
+
+    /**
+     * @returns   this direction packed into a byte, for tables of them.
+     */
+    byte code()
+    {
+        return (byte) ordinal();
+    }
+
+    /**
+     * @param: angle  An angle in degrees from the positive x-axis, as
+     *                returned by Coordinate.angle.
+     * @returns   the sector angle falls in; sectors include their lower
+     *            bound, and West takes both ends of the range.
+     */
+    public static Direction ofAngle(double angle)
+    {
+        if (angle >= -22.5 && angle < 22.5) {
+            return EAST;
+        }
+        else if (angle >= 22.5 && angle < 67.5) {
+            return SOUTH_EAST;
+        }
+        else if (angle >= 67.5 && angle < 112.5) {
+            return SOUTH;
+        }
+        else if (angle >= 112.5 && angle < 157.5) {
+            return SOUTH_WEST;
+        }
+        else if (angle >= 157.5 || angle < -157.5) {
+            return WEST;
+        }
+        else if (angle >= -157.5 && angle < -112.5) {
+            return NORTH_WEST;
+        }
+        else if (angle >= -112.5 && angle < -67.5) {
+            return NORTH;
+        }
+        else {
+            return NORTH_EAST;
+        }
+    }
+}
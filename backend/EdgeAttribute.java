@@ -0,0 +1,59 @@
+package backend;
+
+import java.util.Locale;
+
+/**
+ * <b>EdgeAttribute</b> is a property of a walkway that routing profiles
+ * weigh, given by name in the optional columns after the two ids of an
+ * edge file line, e.g. "12,40,stairs,indoor". A walkway with no such
+ * columns has none. Every arc keeps its attributes as a bit set in a byte.
+ */
+public enum EdgeAttribute
+{
+    /** Steps that a wheelchair cannot take. */
+    STAIRS("stairs"),
+    /** A slope that is hard going in a wheelchair. */
+    STEEP("steep"),
+    /** A corridor inside a building. */
+    INDOOR("indoor"),
+    /** An outdoor path under a roof. */
+    COVERED("covered");
+
+    private final String label;
+
+    EdgeAttribute(String label)
+    {
+        this.label = label;
+    }
+
+    /**
+     * @returns   the name of this attribute in an edge file.
+     */
+    public String label()
+    {
+        return label;
+    }
+
+    /**
+     * @returns   the bit of this attribute in an attribute set.
+     */
+    public int bit()
+    {
+        return 1 << ordinal();
+    }
+
+    /**
+     * @param: label  An attribute name as an edge file gives it, in any case.
+     * @returns   the attribute of that name, or null if there is none.
+     */
+    public static EdgeAttribute of(String label)
+    {
+        String lower = label.trim().toLowerCase(Locale.ROOT);
+        for(EdgeAttribute attribute: values())
+        {
+            if(attribute.label.equals(lower))
+                return attribute;
+        }
+        return null;
+    }
+}
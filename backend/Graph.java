@@ -2,6 +2,7 @@ package backend;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -18,6 +19,8 @@ import java.util.stream.Collectors;
     [node1:[node1:[e1,e2],node2:[e3]:,node3:[e4,e5,e6]   
      node2:[node1:[e1,e2],node2:[e3]:,node3:[e4,e5,e6]
      node3:[node1:[e1,e2],node2:[e3]:,node3:[e4,e5,e6]]
+    A Graph is not safe for concurrent modification; freeze it into a
+    CompactGraph to share it between threads.
     @param <T1> Node name
     @param <T2> Edge label
  */
@@ -137,12 +140,12 @@ public class Graph<T1,T2> {
 
 
 
-    /** Returns an ArrayList which contains all the node in the graph
-        @return a ArrayList<Node> contains all the node.
+    /** Returns a read-only view of all the nodes in the graph
+        @return a Set<Node> contains all the node.
     */
     public Set<T1> getAllNodes()
     {
-        return matrix.keySet();
+        return Collections.unmodifiableSet(matrix.keySet());
     }
 
     public Double getEdge(T1 parent, T1 child)
@@ -183,5 +186,18 @@ public class Graph<T1,T2> {
         return allChildren;
     }
 
+    /**
+     * @effects   Interns every node to a dense int index and copies every
+     *            edge with a positive weight into compressed-sparse-row
+     *            arrays. Later changes to this graph are not reflected in
+     *            the returned graph.
+     * @returns   A frozen {@code CompactGraph} with the same nodes and
+     *            children as this graph.
+     */
+    public CompactGraph<T1> freeze()
+    {
+        return new CompactGraph<>(matrix);
+    }
+
 
 }
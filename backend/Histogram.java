@@ -0,0 +1,141 @@
+package backend;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <b>Histogram</b> is a lock-free histogram of non-negative long values
+ * with bounded relative error, laid out like HdrHistogram: values below
+ * 2^SUB_BITS have a bucket each, and every power of two above is split
+ * into 2^SUB_BITS equal buckets, so a percentile is off by at most
+ * 1 / 2^SUB_BITS (about 3%) of its value. Every bucket is an atomic
+ * counter, so any number of threads record without locking; a reader sees
+ * each counter at some moment during its read, not one snapshot of all.
+ */
+public final class Histogram
+{
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS + 1) * SUB);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    private static int bucket(long value)
+    {
+        if(value < SUB)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        return (shift + 1) * SUB + (int) (value >>> shift) - SUB;
+    }
+
+    // the largest value that falls in bucket
+    private static long highest(int bucket)
+    {
+        if(bucket < SUB)
+            return bucket;
+        int shift = bucket / SUB - 1;
+        long lowest = (long) (bucket % SUB + SUB) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * @param: value  The value to record; negative values count as 0.
+     * @modifies  this
+     * @effects   Adds value to this histogram.
+     */
+    public void record(long value)
+    {
+        value = Math.max(0, value);
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @modifies  this
+     * @effects   Forgets every value recorded.
+     */
+    public void reset()
+    {
+        for(int b = 0; b < counts.length(); b++)
+            counts.set(b, 0);
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * @returns   the number of values recorded.
+     */
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    /**
+     * @returns   the mean of the values recorded, or 0 if there are none.
+     */
+    public double getMean()
+    {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @returns   the largest value recorded, or 0 if there are none.
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * @param: p  A fraction between 0 and 1.
+     * @returns   the smallest value that at least fraction p of the values
+     *            recorded do not exceed, to within the bucket width; 0 if
+     *            there are none.
+     */
+    public long getPercentile(double p)
+    {
+        long total = 0;
+        for(int b = 0; b < counts.length(); b++)
+            total += counts.get(b);
+        if(total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for(int b = 0; b < counts.length(); b++)
+        {
+            seen += counts.get(b);
+            if(seen >= rank)
+                return Math.min(highest(b), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * @param: out  Where to write the summary.
+     * @effects   Appends {"count":..,"mean":..,"p50":..,"p90":..,"p99":..,
+     *            "p999":..,"max":..} to out.
+     * @returns   out
+     * @throws    IOException if out does.
+     */
+    public <A extends Appendable> A appendJson(A out) throws IOException
+    {
+        out.append("{\"count\":").append(Long.toString(getCount()));
+        out.append(",\"mean\":");
+        RouteResult.appendJsonNumber(out, getMean());
+        out.append(",\"p50\":").append(Long.toString(getPercentile(0.50)));
+        out.append(",\"p90\":").append(Long.toString(getPercentile(0.90)));
+        out.append(",\"p99\":").append(Long.toString(getPercentile(0.99)));
+        out.append(",\"p999\":").append(Long.toString(getPercentile(0.999)));
+        out.append(",\"max\":").append(Long.toString(getMax())).append('}');
+        return out;
+    }
+}
@@ -0,0 +1,183 @@
+package backend;
+
+import java.util.Arrays;
+
+/**
+ * <b>IndexedHeap</b> is a 4-ary min-heap over int node indices with double
+ * keys. Every node is in the heap at most once, so a better key for a node
+ * already in the heap is applied in place (decrease-key) instead of pushing
+ * a duplicate entry. The heap never allocates after construction.
+ */
+final class IndexedHeap
+{
+    private static final int ARITY = 4;
+
+    private final int[] nodes;
+    private final double[] keys;
+    private final int[] position;
+    private int size;
+
+    /**
+     * @param: capacity  The number of distinct node indices, [0, capacity).
+     * @effects   Constructs an empty heap.
+     */
+    IndexedHeap(int capacity)
+    {
+        nodes = new int[capacity];
+        keys = new double[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * @returns   the number of node indices this heap can hold.
+     */
+    int capacity()
+    {
+        return position.length;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * @returns   true if node is currently in the heap.
+     */
+    boolean contains(int node)
+    {
+        return position[node] >= 0;
+    }
+
+    /**
+     * @param: node  The node to insert or update.
+     * @param: key   The new key of node.
+     * @effects   Inserts node with key, or lowers its key if node is already
+     *            in the heap with a larger key.
+     */
+    void push(int node, double key)
+    {
+        int i = position[node];
+        if(i < 0)
+        {
+            i = size++;
+        }
+        else if(key >= keys[i])
+        {
+            return;
+        }
+        siftUp(i, node, key);
+    }
+
+    /**
+     * @param: node  The node to insert or update.
+     * @param: key   The new key of node.
+     * @effects   Inserts node with key, or moves it to key whether that is
+     *            lower or higher than its current key.
+     */
+    void update(int node, double key)
+    {
+        int i = position[node];
+        if(i >= 0 && key > keys[i])
+            siftDown(i, node, key);
+        else if(i < 0)
+            siftUp(size++, node, key);
+        else
+            siftUp(i, node, key);
+    }
+
+    /**
+     * @requires  !isEmpty()
+     * @returns   the key of the minimum node.
+     */
+    double peekKey()
+    {
+        return keys[0];
+    }
+
+    /**
+     * @requires  !isEmpty()
+     * @returns   the node with the minimum key.
+     */
+    int peek()
+    {
+        return nodes[0];
+    }
+
+    /**
+     * @requires  !isEmpty()
+     * @effects   Removes the node with the minimum key.
+     * @returns   the removed node.
+     */
+    int pop()
+    {
+        int top = nodes[0];
+        position[top] = -1;
+        int last = --size;
+        if(last > 0)
+            siftDown(0, nodes[last], keys[last]);
+        return top;
+    }
+
+    /**
+     * @effects   Removes every node; costs O(size()), not O(capacity()).
+     */
+    void clear()
+    {
+        for(int i = 0; i < size; i++)
+            position[nodes[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int i, int node, double key)
+    {
+        while(i > 0)
+        {
+            int parent = (i - 1) / ARITY;
+            if(keys[parent] <= key)
+                break;
+            place(i, nodes[parent], keys[parent]);
+            i = parent;
+        }
+        place(i, node, key);
+    }
+
+    private void siftDown(int i, int node, double key)
+    {
+        while(true)
+        {
+            int first = i * ARITY + 1;
+            if(first >= size)
+                break;
+            int best = first;
+            double bestKey = keys[first];
+            int end = Math.min(first + ARITY, size);
+            for(int c = first + 1; c < end; c++)
+            {
+                if(keys[c] < bestKey)
+                {
+                    best = c;
+                    bestKey = keys[c];
+                }
+            }
+            if(key <= bestKey)
+                break;
+            place(i, nodes[best], bestKey);
+            i = best;
+        }
+        place(i, node, key);
+    }
+
+    private void place(int i, int node, double key)
+    {
+        nodes[i] = node;
+        keys[i] = key;
+        position[node] = i;
+    }
+}
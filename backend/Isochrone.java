@@ -0,0 +1,270 @@
+package backend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * <b>Isochrone</b> is an <b>immutable</b> answer to "what lies within a
+ * given distance of a building": every building and intersection within
+ * the radius with its distance, nearest first, in parallel primitive
+ * arrays, and the boundary of the reachable area as a polygon.
+ * Distances are the cost under the routing profile searched, the walking
+ * distance for RoutingProfile.SHORTEST. The polygon is the convex hull of
+ * the nodes within the radius and of the points where the radius runs out
+ * part way along a walkway, counterclockwise in map coordinates.
+ */
+public final class Isochrone
+{
+    private final String from;
+    private final double radius;
+    private final String[] ids;
+    private final String[] names;
+    private final double[] distances;
+    private final double[] boundaryX;
+    private final double[] boundaryY;
+
+    private Isochrone(String from, double radius, String[] ids, String[] names, double[] distances,
+                      double[] boundaryX, double[] boundaryY)
+    {
+        this.from = from;
+        this.radius = radius;
+        this.ids = ids;
+        this.names = names;
+        this.distances = distances;
+        this.boundaryX = boundaryX;
+        this.boundaryY = boundaryY;
+    }
+
+    /**
+     * @param: map        The map to search.
+     * @param: weights    The weight of every arc of map.graph.
+     * @param: source     The node index of the centre.
+     * @param: radius     The largest distance wanted.
+     * @param: from       The printed name of source.
+     * @param: workspace  The per-thread state of the search.
+     * @modifies  workspace
+     * @returns   everything within radius of source.
+     */
+    static Isochrone of(CampusMap map, double[] weights, int source, double radius, String from,
+                        SearchWorkspace workspace)
+    {
+        CompactGraph<String> graph = map.graph;
+        int count = PathFinder.dijkstraWithin(graph, weights, source, radius, workspace);
+        String[] ids = new String[count];
+        String[] names = new String[count];
+        double[] distances = new double[count];
+        // the hull takes every node within the radius and the end of every
+        // walkway that leaves it
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        int points = 0;
+        for(int i = 0; i < count; i++)
+        {
+            int v = workspace.pathNode(i);
+            ids[i] = graph.node(v);
+            names[i] = map.coordinate(v).getName();
+            distances[i] = workspace.distance(v);
+            xs = grow(xs, points + 1);
+            ys = grow(ys, points + 1);
+            xs[points] = map.xs[v];
+            ys[points++] = map.ys[v];
+            for(int e = graph.firstEdge(v); e < graph.endEdge(v); e++)
+            {
+                double rest = radius - distances[i];
+                if(weights[e] > rest && weights[e] < Double.POSITIVE_INFINITY)
+                {
+                    int w = graph.target(e);
+                    double t = rest / weights[e];
+                    xs = grow(xs, points + 1);
+                    ys = grow(ys, points + 1);
+                    xs[points] = map.xs[v] + t * (map.xs[w] - map.xs[v]);
+                    ys[points++] = map.ys[v] + t * (map.ys[w] - map.ys[v]);
+                }
+            }
+        }
+        int[] hull = hull(xs, ys, points);
+        double[] boundaryX = new double[hull.length];
+        double[] boundaryY = new double[hull.length];
+        for(int i = 0; i < hull.length; i++)
+        {
+            boundaryX[i] = xs[hull[i]];
+            boundaryY[i] = ys[hull[i]];
+        }
+        return new Isochrone(from, radius, ids, names, distances, boundaryX, boundaryY);
+    }
+
+    private static double[] grow(double[] array, int size)
+    {
+        return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, 2 * array.length));
+    }
+
+    /**
+     * @returns   the positions among the first n points of the corners of
+     *            their convex hull, counterclockwise from the lowest x,
+     *            by Andrew's monotone chain; fewer than three corners if
+     *            the points are collinear.
+     */
+    static int[] hull(double[] xs, double[] ys, int n)
+    {
+        Integer[] order = new Integer[n];
+        for(int i = 0; i < n; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> xs[a] != xs[b] ? Double.compare(xs[a], xs[b]) : Double.compare(ys[a], ys[b]));
+        int[] hull = new int[2 * n];
+        int k = 0;
+        // the lower chain left to right, then the upper chain back
+        for(int i = 0; i < n; i++)
+        {
+            while(k >= 2 && turn(xs, ys, hull[k - 2], hull[k - 1], order[i]) <= 0)
+                k--;
+            hull[k++] = order[i];
+        }
+        for(int i = n - 2, lower = k + 1; i >= 0; i--)
+        {
+            while(k >= lower && turn(xs, ys, hull[k - 2], hull[k - 1], order[i]) <= 0)
+                k--;
+            hull[k++] = order[i];
+        }
+        // the last corner repeats the first
+        int corners = n > 1 ? k - 1 : k;
+        // identical points leave a single corner
+        if(corners == 2 && xs[hull[0]] == xs[hull[1]] && ys[hull[0]] == ys[hull[1]])
+            corners = 1;
+        return Arrays.copyOf(hull, corners);
+    }
+
+    // positive if o, a, b turn counterclockwise
+    private static double turn(double[] xs, double[] ys, int o, int a, int b)
+    {
+        return (xs[a] - xs[o]) * (ys[b] - ys[o]) - (ys[a] - ys[o]) * (xs[b] - xs[o]);
+    }
+
+    /**
+     * @returns   the printed name of the centre.
+     */
+    public String getFrom()
+    {
+        return from;
+    }
+
+    /**
+     * @returns   the radius searched.
+     */
+    public double getRadius()
+    {
+        return radius;
+    }
+
+    /**
+     * @returns   the number of nodes within the radius, the centre included.
+     */
+    public int size()
+    {
+        return ids.length;
+    }
+
+    /**
+     * @returns   the id of every node within the radius, nearest first.
+     */
+    public String[] getIds()
+    {
+        return ids.clone();
+    }
+
+    /**
+     * @returns   the building name of every node of getIds, "" for an
+     *            intersection.
+     */
+    public String[] getNames()
+    {
+        return names.clone();
+    }
+
+    /**
+     * @returns   the distance from the centre of every node of getIds.
+     */
+    public double[] getDistances()
+    {
+        return distances.clone();
+    }
+
+    /**
+     * @returns   the names of the buildings within the radius, nearest
+     *            first, the centre first.
+     */
+    public String[] getBuildings()
+    {
+        return Arrays.stream(names).filter(name -> !name.isEmpty()).toArray(String[]::new);
+    }
+
+    /**
+     * @returns   the x coordinates of the corners of the boundary.
+     */
+    public double[] getBoundaryX()
+    {
+        return boundaryX.clone();
+    }
+
+    /**
+     * @returns   the y coordinates of the corners of the boundary.
+     */
+    public double[] getBoundaryY()
+    {
+        return boundaryY.clone();
+    }
+
+    /**
+     * @param: out  Where to write the isochrone.
+     * @effects   Appends this isochrone to out as one JSON object:
+     *            {"from":..,"radius":..,"nodes":[{"id":..,"name":..,
+     *            "distance":..},..],"boundary":[[x,y],..]}, with "" as the
+     *            name of an intersection.
+     * @returns   out
+     * @throws    IOException if out does.
+     */
+    public <A extends Appendable> A appendJson(A out) throws IOException
+    {
+        out.append("{\"from\":");
+        RouteResult.appendJsonString(out, from);
+        out.append(",\"radius\":");
+        RouteResult.appendJsonNumber(out, radius);
+        out.append(",\"nodes\":[");
+        for(int i = 0; i < ids.length; i++)
+        {
+            out.append(i == 0 ? "{\"id\":" : ",{\"id\":");
+            RouteResult.appendJsonString(out, ids[i]);
+            out.append(",\"name\":");
+            RouteResult.appendJsonString(out, names[i]);
+            out.append(",\"distance\":");
+            RouteResult.appendJsonNumber(out, distances[i]);
+            out.append('}');
+        }
+        out.append("],\"boundary\":[");
+        for(int i = 0; i < boundaryX.length; i++)
+        {
+            out.append(i == 0 ? "[" : ",[");
+            RouteResult.appendJsonNumber(out, boundaryX[i]);
+            out.append(',');
+            RouteResult.appendJsonNumber(out, boundaryY[i]);
+            out.append(']');
+        }
+        out.append("]}");
+        return out;
+    }
+
+    /**
+     * @returns   this isochrone as appendJson writes it.
+     */
+    public String toJson()
+    {
+        try
+        {
+            return appendJson(new StringBuilder(64 + 64 * ids.length)).toString();
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package backend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+/**
+ * <b>MapBuilder</b> loads a campus map from its node and edge CSV files
+ * straight into a CompactGraph, in parallel:
+ *   the node file is parsed in one task while the edge file is split into
+ *   byte ranges parsed by the others;
+ *   each range then resolves its ids and writes both directed arcs of
+ *   every edge into its own slice of one key array;
+ *   the keys are sorted in parallel, duplicates dropped and the weights
+ *   computed in parallel from the coordinates;
+ *   the few edges with EdgeAttributes have them set on both arcs last.
+ * The result is the graph createGraph built through Graph.setEdge: same
+ * node indices, rows and weights. Parallel work runs in the fork-join pool
+ * of the calling thread, or the common pool.
+ */
+final class MapBuilder
+{
+    private static final long CHUNK = 4L << 20;
+
+    private MapBuilder()
+    {
+    }
+
+    /** The edges of one byte range of the edge file, in file order. */
+    private static final class EdgeChunk implements CampusParser.EdgeHandler
+    {
+        String[] parents = new String[256];
+        String[] children = new String[256];
+        // null until an edge of the chunk has attributes
+        byte[] attributes;
+        int size;
+
+        @Override
+        public void edge(String parent, String child)
+        {
+            edge(parent, child, 0);
+        }
+
+        @Override
+        public void edge(String parent, String child, int attributes)
+        {
+            if(size == parents.length)
+            {
+                parents = Arrays.copyOf(parents, size * 2);
+                children = Arrays.copyOf(children, size * 2);
+                if(this.attributes != null)
+                    this.attributes = Arrays.copyOf(this.attributes, size * 2);
+            }
+            if(attributes != 0 && this.attributes == null)
+                this.attributes = new byte[parents.length];
+            parents[size] = parent;
+            children[size] = child;
+            if(this.attributes != null)
+                this.attributes[size] = (byte) attributes;
+            size++;
+        }
+    }
+
+    /**
+     * @param: nodeFilename  Path to the node data file.
+     * @param: edgeFilename  Path to the edge data file.
+     * @param: routeCache    An empty cache for routes on the new map.
+     * @returns   the map described by the two files.
+     * @throws    IOException if either file cannot be read, has an invalid
+     *            format or an edge names an id missing from the node file.
+     */
+    static CampusMap build(String nodeFilename, String edgeFilename, RouteCache routeCache) throws IOException
+    {
+        // HashMap keeps the insertion history, and so the iteration order,
+        // that the Graph used to give; node indices follow that order
+        HashMap<String,String> id_name = new HashMap<>();
+        HashMap<String,String> name_id = new HashMap<>();
+        HashMap<String,Coordinate> id_cordinate = new HashMap<>();
+        long edgeBytes = Files.size(Paths.get(edgeFilename));
+        EdgeChunk[] chunks = new EdgeChunk[(int) Math.max(1, (edgeBytes + CHUNK - 1) / CHUNK)];
+        try{
+            ForkJoinTask<?> nodeTask = ForkJoinTask.adapt(() -> {
+                try{
+                    CampusParser.streamNodeData(nodeFilename, (name, id, x, y) -> {
+                        id_name.put(id, name);
+                        if(!name.isEmpty())
+                            name_id.put(name, id);
+                        id_cordinate.put(id, new Coordinate(name, id, x, y));
+                    });
+                }catch(IOException e){
+                    throw new UncheckedIOException(e);
+                }
+            }).fork();
+            IntStream.range(0, chunks.length).parallel().forEach(c -> {
+                EdgeChunk chunk = new EdgeChunk();
+                try{
+                    CampusParser.streamEdgeData(edgeFilename, c * CHUNK, (c + 1) * CHUNK, chunk);
+                }catch(IOException e){
+                    throw new UncheckedIOException(e);
+                }
+                chunks[c] = chunk;
+            });
+            nodeTask.join();
+        }catch(UncheckedIOException e){
+            throw e.getCause();
+        }
+
+        int n = id_name.size();
+        ArrayList<String> nodes = new ArrayList<>(id_name.keySet());
+        HashMap<String,Integer> index = new HashMap<>(n * 4 / 3 + 1);
+        Coordinate[] coordinates = new Coordinate[n];
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for(int i = 0; i < n; i++)
+        {
+            index.put(nodes.get(i), i);
+            coordinates[i] = id_cordinate.get(nodes.get(i));
+            xs[i] = coordinates[i].getX();
+            ys[i] = coordinates[i].getY();
+        }
+
+        // each chunk fills its own slice with (u << 32 | v) for both directions
+        int[] first = new int[chunks.length + 1];
+        for(int c = 0; c < chunks.length; c++)
+            first[c + 1] = first[c] + 2 * chunks[c].size;
+        long[] keys = new long[first[chunks.length]];
+        // the edges with attributes, by chunk: parent-to-child keys and their bits
+        long[][] attributed = new long[chunks.length][];
+        byte[][] attributeBits = new byte[chunks.length][];
+        boolean[] unknown = new boolean[1];
+        IntStream.range(0, chunks.length).parallel().forEach(c -> {
+            EdgeChunk chunk = chunks[c];
+            int k = first[c];
+            int a = 0;
+            if(chunk.attributes != null)
+            {
+                attributed[c] = new long[chunk.size];
+                attributeBits[c] = new byte[chunk.size];
+            }
+            for(int i = 0; i < chunk.size; i++)
+            {
+                Integer u = index.get(chunk.parents[i]);
+                Integer v = index.get(chunk.children[i]);
+                if(u == null || v == null)
+                {
+                    unknown[0] = true;
+                    return;
+                }
+                keys[k++] = (long) u << 32 | v;
+                keys[k++] = (long) v << 32 | u;
+                if(chunk.attributes != null && chunk.attributes[i] != 0)
+                {
+                    attributed[c][a] = (long) u << 32 | v;
+                    attributeBits[c][a++] = chunk.attributes[i];
+                }
+            }
+            if(chunk.attributes != null)
+            {
+                attributed[c] = Arrays.copyOf(attributed[c], a);
+                attributeBits[c] = Arrays.copyOf(attributeBits[c], a);
+            }
+            chunks[c] = null;
+        });
+        if(unknown[0])
+            throw new IOException("File " + edgeFilename + " names a node missing from " + nodeFilename + ".");
+        Arrays.parallelSort(keys);
+
+        int arcs = 0;
+        for(int k = 0; k < keys.length; k++)
+        {
+            if(k == 0 || keys[k] != keys[k - 1])
+                keys[arcs++] = keys[k];
+        }
+        // an edge is stored in both directions with the parent-to-child
+        // distance; Coordinate.distance is symmetric, so either end will do
+        double[] distance = new double[arcs];
+        IntStream.range(0, arcs).parallel().forEach(
+                a -> distance[a] = coordinates[(int) (keys[a] >>> 32)].distance(coordinates[(int) keys[a]]));
+
+        int[] offsets = new int[n + 1];
+        int kept = 0;
+        for(int a = 0; a < arcs; a++)
+        {
+            // like Graph.getAllChildren, only positive weights are edges
+            if(distance[a] > 0)
+            {
+                keys[kept] = keys[a];
+                distance[kept] = distance[a];
+                offsets[(int) (keys[a] >>> 32) + 1]++;
+                kept++;
+            }
+        }
+        for(int u = 0; u < n; u++)
+            offsets[u + 1] += offsets[u];
+        int[] targets = new int[kept];
+        for(int a = 0; a < kept; a++)
+            targets[a] = (int) keys[a];
+        double[] weights = Arrays.copyOf(distance, kept);
+
+        CompactGraph<String> graph = new CompactGraph<>(nodes, index, offsets, targets, weights);
+
+        // a walkway has the attributes of every line that names it, in
+        // either direction; arcs dropped above for zero length have none
+        byte[] attributes = null;
+        for(int c = 0; c < chunks.length; c++)
+        {
+            for(int i = 0; attributed[c] != null && i < attributed[c].length; i++)
+            {
+                if(attributes == null)
+                    attributes = new byte[kept];
+                int u = (int) (attributed[c][i] >>> 32);
+                int v = (int) attributed[c][i];
+                int forward = graph.findEdge(u, v);
+                int backward = graph.findEdge(v, u);
+                if(forward >= 0)
+                    attributes[forward] |= attributeBits[c][i];
+                if(backward >= 0)
+                    attributes[backward] |= attributeBits[c][i];
+            }
+        }
+        return new CampusMap(graph, xs, ys, attributes, id_cordinate, id_name, name_id, routeCache);
+    }
+}
@@ -0,0 +1,285 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * <b>MapEdits</b> is an <b>immutable</b> set of live changes to a frozen
+ * base graph: closed arcs, added or reweighted arcs and temporary nodes.
+ * Temporary node s has node index baseSize + s for as long as the edits
+ * last; a removed temporary node keeps its index, isolated, so indices
+ * held by caches and tables never shift. Every change returns a new
+ * MapEdits, or this one if nothing changed.
+ */
+final class MapEdits
+{
+    static final MapEdits NONE = new MapEdits(new ArrayList<>(), new double[0], new double[0], new boolean[0],
+            new HashMap<>(), new HashSet<>());
+
+    private final ArrayList<String> tempIds;
+    private final double[] tempX;
+    private final double[] tempY;
+    private final boolean[] tempRemoved;
+    private final HashMap<Long,Double> weights;
+    private final HashSet<Long> closed;
+
+    private MapEdits(ArrayList<String> tempIds, double[] tempX, double[] tempY, boolean[] tempRemoved,
+                     HashMap<Long,Double> weights, HashSet<Long> closed)
+    {
+        this.tempIds = tempIds;
+        this.tempX = tempX;
+        this.tempY = tempY;
+        this.tempRemoved = tempRemoved;
+        this.weights = weights;
+        this.closed = closed;
+    }
+
+    static long arc(int u, int v)
+    {
+        return (long) u << 32 | v;
+    }
+
+    static int from(long arc)
+    {
+        return (int) (arc >>> 32);
+    }
+
+    static int to(long arc)
+    {
+        return (int) arc;
+    }
+
+    /**
+     * @returns   true if there are no edits.
+     */
+    boolean isEmpty()
+    {
+        return tempIds.isEmpty() && weights.isEmpty() && closed.isEmpty();
+    }
+
+    /**
+     * @returns   the number of temporary nodes, removed ones included.
+     */
+    int tempCount()
+    {
+        return tempIds.size();
+    }
+
+    double tempX(int s)
+    {
+        return tempX[s];
+    }
+
+    double tempY(int s)
+    {
+        return tempY[s];
+    }
+
+    /**
+     * @param: node      A node index.
+     * @param: baseSize  The number of nodes of the base graph.
+     * @returns   true if node is a temporary node that has been removed.
+     */
+    boolean isRemoved(int node, int baseSize)
+    {
+        return node >= baseSize && tempRemoved[node - baseSize];
+    }
+
+    /**
+     * @returns   every arc these edits close, add or reweight.
+     */
+    HashSet<Long> touchedArcs()
+    {
+        HashSet<Long> arcs = new HashSet<>(weights.keySet());
+        arcs.addAll(closed);
+        return arcs;
+    }
+
+    MapEdits close(int u, int v)
+    {
+        if(closed.contains(arc(u, v)))
+            return this;
+        HashSet<Long> next = new HashSet<>(closed);
+        next.add(arc(u, v));
+        return new MapEdits(tempIds, tempX, tempY, tempRemoved, weights, next);
+    }
+
+    MapEdits reopen(int u, int v)
+    {
+        if(!closed.contains(arc(u, v)))
+            return this;
+        HashSet<Long> next = new HashSet<>(closed);
+        next.remove(arc(u, v));
+        return new MapEdits(tempIds, tempX, tempY, tempRemoved, weights, next);
+    }
+
+    MapEdits reweight(int u, int v, double weight)
+    {
+        Double current = weights.get(arc(u, v));
+        if(current != null && current == weight)
+            return this;
+        HashMap<Long,Double> next = new HashMap<>(weights);
+        next.put(arc(u, v), weight);
+        return new MapEdits(tempIds, tempX, tempY, tempRemoved, next, closed);
+    }
+
+    /**
+     * @param: id        The id of the node; not a node of the base graph.
+     * @param: baseSize  The number of nodes of the base graph.
+     * @returns   edits with id as a temporary node at (x, y); a removed
+     *            temporary node with the same id is brought back in its
+     *            old slot.
+     */
+    MapEdits addNode(String id, double x, double y, int baseSize)
+    {
+        int s = tempIds.indexOf(id);
+        if(s >= 0)
+        {
+            boolean[] removed = tempRemoved.clone();
+            double[] xs = tempX.clone();
+            double[] ys = tempY.clone();
+            removed[s] = false;
+            xs[s] = x;
+            ys[s] = y;
+            return new MapEdits(tempIds, xs, ys, removed, weights, closed);
+        }
+        ArrayList<String> ids = new ArrayList<>(tempIds);
+        ids.add(id);
+        int count = ids.size();
+        double[] xs = Arrays.copyOf(tempX, count);
+        double[] ys = Arrays.copyOf(tempY, count);
+        xs[count - 1] = x;
+        ys[count - 1] = y;
+        return new MapEdits(ids, xs, ys, Arrays.copyOf(tempRemoved, count), weights, closed);
+    }
+
+    /**
+     * @param: node      The index of a temporary node.
+     * @param: baseSize  The number of nodes of the base graph.
+     * @returns   edits where node is removed together with its arcs.
+     */
+    MapEdits removeNode(int node, int baseSize)
+    {
+        boolean[] removed = tempRemoved.clone();
+        removed[node - baseSize] = true;
+        HashMap<Long,Double> nextWeights = new HashMap<>(weights);
+        nextWeights.keySet().removeIf(a -> from(a) == node || to(a) == node);
+        HashSet<Long> nextClosed = new HashSet<>(closed);
+        nextClosed.removeIf(a -> from(a) == node || to(a) == node);
+        return new MapEdits(tempIds, tempX, tempY, removed, nextWeights, nextClosed);
+    }
+
+    /**
+     * @param: base  The frozen graph these edits apply to.
+     * @returns   base with the edits applied: temporary nodes are appended
+     *            to its dictionary and every row is copied from base unless
+     *            an edit touches it. base itself if there are no edits.
+     */
+    CompactGraph<String> apply(CompactGraph<String> base)
+    {
+        if(isEmpty())
+            return base;
+        int baseSize = base.size();
+        int n = baseSize + tempIds.size();
+        long[] touched = new long[weights.size() + closed.size()];
+        int t = 0;
+        for(long a: weights.keySet())
+            touched[t++] = a;
+        for(long a: closed)
+        {
+            if(!weights.containsKey(a))
+                touched[t++] = a;
+        }
+        touched = Arrays.copyOf(touched, t);
+        Arrays.sort(touched);
+
+        // first pass sizes the rows, second pass fills them
+        int[] offsets = new int[n + 1];
+        int[] targets = null;
+        double[] rowWeights = null;
+        for(int pass = 0; pass < 2; pass++)
+        {
+            int k = 0;
+            int out = 0;
+            for(int u = 0; u < n; u++)
+            {
+                int baseStart = u < baseSize ? base.offsets[u] : 0;
+                int baseEnd = u < baseSize ? base.offsets[u + 1] : 0;
+                if(k == touched.length || from(touched[k]) != u)
+                {
+                    if(pass == 1)
+                    {
+                        System.arraycopy(base.targets, baseStart, targets, out, baseEnd - baseStart);
+                        System.arraycopy(base.weights, baseStart, rowWeights, out, baseEnd - baseStart);
+                    }
+                    out += baseEnd - baseStart;
+                }
+                else
+                {
+                    // merge the sorted base row with the sorted edits of u
+                    int e = baseStart;
+                    while(e < baseEnd || (k < touched.length && from(touched[k]) == u))
+                    {
+                        int baseTarget = e < baseEnd ? base.targets[e] : Integer.MAX_VALUE;
+                        int editTarget = k < touched.length && from(touched[k]) == u ? to(touched[k]) : Integer.MAX_VALUE;
+                        int v = Math.min(baseTarget, editTarget);
+                        double w = baseTarget == v ? base.weights[e] : Double.NaN;
+                        if(baseTarget == v)
+                            e++;
+                        if(editTarget == v)
+                        {
+                            Double edited = weights.get(touched[k]);
+                            if(edited != null)
+                                w = edited;
+                            if(closed.contains(touched[k]))
+                                w = Double.NaN;
+                            k++;
+                        }
+                        if(w > 0)
+                        {
+                            if(pass == 1)
+                            {
+                                targets[out] = v;
+                                rowWeights[out] = w;
+                            }
+                            out++;
+                        }
+                    }
+                }
+                if(pass == 0)
+                    offsets[u + 1] = out;
+            }
+            if(pass == 0)
+            {
+                targets = new int[out];
+                rowWeights = new double[out];
+            }
+        }
+        return new CompactGraph<>(base, tempIds, offsets, targets, rowWeights);
+    }
+
+    /**
+     * @param: xs    The x coordinate of every node of the base graph.
+     * @returns   xs followed by the x coordinate of every temporary node.
+     */
+    double[] extendX(double[] xs)
+    {
+        return extend(xs, tempX);
+    }
+
+    double[] extendY(double[] ys)
+    {
+        return extend(ys, tempY);
+    }
+
+    private static double[] extend(double[] values, double[] temp)
+    {
+        if(temp.length == 0)
+            return values;
+        double[] extended = Arrays.copyOf(values, values.length + temp.length);
+        System.arraycopy(temp, 0, extended, values.length, temp.length);
+        return extended;
+    }
+}
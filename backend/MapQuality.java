@@ -0,0 +1,269 @@
+package backend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <b>MapQuality</b> is an <b>immutable</b> report on the connectivity of a
+ * loaded map, for finding mistakes in its node and edge files: how many
+ * connected components the walkways split it into and how large they are,
+ * the orphaned nodes that no walkway touches, the buildings outside the
+ * largest component, which no route from the rest of the campus reaches,
+ * and how many components every RoutingProfile leaves. It describes the
+ * map with its live edits; removed temporary nodes are left out.
+ */
+public final class MapQuality
+{
+    private final int nodes;
+    private final int walkways;
+    private final int[] sizes;
+    private final String[] orphans;
+    private final String[] cutOff;
+    private final int[] profileComponents;
+
+    private MapQuality(int nodes, int walkways, int[] sizes, String[] orphans, String[] cutOff,
+                       int[] profileComponents)
+    {
+        this.nodes = nodes;
+        this.walkways = walkways;
+        this.sizes = sizes;
+        this.orphans = orphans;
+        this.cutOff = cutOff;
+        this.profileComponents = profileComponents;
+    }
+
+    /**
+     * @returns   the report on map, from the components it keeps.
+     */
+    static MapQuality of(CampusMap map)
+    {
+        CompactGraph<String> graph = map.graph;
+        int baseSize = map.base.size();
+        Components components = map.components(RoutingProfile.SHORTEST);
+        int[] sizes = new int[components.count()];
+        int live = 0;
+        int walkways = 0;
+        ArrayList<String> orphans = new ArrayList<>();
+        for(int v = 0; v < graph.size(); v++)
+        {
+            if(map.edits.isRemoved(v, baseSize))
+                continue;
+            live++;
+            sizes[components.of(v)]++;
+            if(graph.firstEdge(v) == graph.endEdge(v))
+                orphans.add(graph.node(v));
+            for(int e = graph.firstEdge(v); e < graph.endEdge(v); e++)
+            {
+                if(v < graph.target(e))
+                    walkways++;
+            }
+        }
+        int largest = 0;
+        for(int c = 1; c < sizes.length; c++)
+        {
+            if(sizes[c] > sizes[largest])
+                largest = c;
+        }
+        ArrayList<String> cutOff = new ArrayList<>();
+        for(int v = 0; v < baseSize; v++)
+        {
+            String name = map.id_name.get(graph.node(v));
+            if(name != null && !name.isEmpty() && components.of(v) != largest)
+                cutOff.add(name);
+        }
+        Collections.sort(cutOff);
+        RoutingProfile[] profiles = RoutingProfile.values();
+        int[] profileComponents = new int[profiles.length];
+        for(RoutingProfile profile: profiles)
+            profileComponents[profile.ordinal()] = count(map, map.components(profile));
+        return new MapQuality(live, walkways, descending(sizes), orphans.toArray(new String[0]),
+                cutOff.toArray(new String[0]), profileComponents);
+    }
+
+    // the number of components with a node that is not removed
+    private static int count(CampusMap map, Components components)
+    {
+        boolean[] seen = new boolean[components.count()];
+        int count = 0;
+        for(int v = 0; v < map.graph.size(); v++)
+        {
+            if(!map.edits.isRemoved(v, map.base.size()) && !seen[components.of(v)])
+            {
+                seen[components.of(v)] = true;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // the non-zero sizes, largest first
+    private static int[] descending(int[] sizes)
+    {
+        int[] sorted = Arrays.stream(sizes).filter(size -> size > 0).sorted().toArray();
+        for(int i = 0, j = sorted.length - 1; i < j; i++, j--)
+        {
+            int swap = sorted[i];
+            sorted[i] = sorted[j];
+            sorted[j] = swap;
+        }
+        return sorted;
+    }
+
+    /**
+     * @returns   the number of nodes, buildings and intersections.
+     */
+    public int getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * @returns   the number of walkways, each counted once for both
+     *            directions.
+     */
+    public int getWalkways()
+    {
+        return walkways;
+    }
+
+    /**
+     * @returns   the number of connected components.
+     */
+    public int getComponents()
+    {
+        return sizes.length;
+    }
+
+    /**
+     * @returns   the number of nodes in every component, largest first.
+     */
+    public int[] getComponentSizes()
+    {
+        return sizes.clone();
+    }
+
+    /**
+     * @returns   the ids of the nodes no walkway touches.
+     */
+    public List<String> getOrphans()
+    {
+        return Collections.unmodifiableList(Arrays.asList(orphans));
+    }
+
+    /**
+     * @returns   the names of the buildings outside the largest component,
+     *            sorted.
+     */
+    public List<String> getCutOff()
+    {
+        return Collections.unmodifiableList(Arrays.asList(cutOff));
+    }
+
+    /**
+     * @returns   the number of components left by the walkways profile can
+     *            use; more than getComponents when it cannot use some.
+     */
+    public int getComponents(RoutingProfile profile)
+    {
+        return profileComponents[profile.ordinal()];
+    }
+
+    /**
+     * @param: out  Where to write the report.
+     * @effects   Appends this report to out as one JSON object:
+     *            {"nodes":..,"walkways":..,"components":..,
+     *            "componentSizes":[..],"orphans":[..],"cutOff":[..],
+     *            "profiles":{"shortest":..,..}}.
+     * @returns   out
+     * @throws    IOException if out does.
+     */
+    public <A extends Appendable> A appendJson(A out) throws IOException
+    {
+        out.append("{\"nodes\":").append(Integer.toString(nodes));
+        out.append(",\"walkways\":").append(Integer.toString(walkways));
+        out.append(",\"components\":").append(Integer.toString(sizes.length));
+        out.append(",\"componentSizes\":[");
+        for(int i = 0; i < sizes.length; i++)
+            out.append(i == 0 ? "" : ",").append(Integer.toString(sizes[i]));
+        out.append("],\"orphans\":");
+        appendJsonStrings(out, orphans);
+        out.append(",\"cutOff\":");
+        appendJsonStrings(out, cutOff);
+        out.append(",\"profiles\":{");
+        for(RoutingProfile profile: RoutingProfile.values())
+        {
+            out.append(profile.ordinal() == 0 ? "\"" : ",\"").append(label(profile)).append("\":");
+            out.append(Integer.toString(profileComponents[profile.ordinal()]));
+        }
+        out.append("}}");
+        return out;
+    }
+
+    /**
+     * @returns   this report as appendJson writes it.
+     */
+    public String toJson()
+    {
+        try
+        {
+            return appendJson(new StringBuilder(256)).toString();
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void appendJsonStrings(Appendable out, String[] strings) throws IOException
+    {
+        out.append('[');
+        for(int i = 0; i < strings.length; i++)
+        {
+            if(i > 0)
+                out.append(',');
+            RouteResult.appendJsonString(out, strings[i]);
+        }
+        out.append(']');
+    }
+
+    private static String label(RoutingProfile profile)
+    {
+        return profile.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @returns   the report for the console, one finding per line.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d nodes, %d walkways, %d components", nodes, walkways, sizes.length));
+        if(sizes.length > 0)
+            report.append(String.format(" (largest %d nodes)", sizes[0]));
+        report.append(System.lineSeparator());
+        if(sizes.length > 1)
+        {
+            report.append("Component sizes: ");
+            for(int i = 0; i < sizes.length; i++)
+                report.append(i == 0 ? "" : ", ").append(sizes[i]);
+            report.append(System.lineSeparator());
+        }
+        report.append(String.format("Orphaned nodes (%d): %s%n", orphans.length, String.join(", ", orphans)));
+        report.append(String.format("Buildings cut off from the largest component (%d): %s%n", cutOff.length,
+                String.join(", ", cutOff)));
+        report.append("Components by profile:");
+        for(RoutingProfile profile: RoutingProfile.values())
+        {
+            report.append(profile.ordinal() == 0 ? " " : ", ").append(label(profile)).append(' ')
+                    .append(profileComponents[profile.ordinal()]);
+        }
+        report.append(System.lineSeparator());
+        return report.toString();
+    }
+}
@@ -0,0 +1,237 @@
+package backend;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * <b>MapSnapshot</b> reads and writes a CampusMap in a binary format so a
+ * map can be loaded without parsing CSV or recomputing edge weights.
+ * The file is a 64 byte header followed by the payload:
+ *   magic "CMP1", version, the size and modification time of the node and
+ *   edge CSV files it was built from, node count, edge count, payload
+ *   length, CRC32C of the payload;
+ *   x[n], y[n], weights[m] as doubles; offsets[n+1], targets[m] as ints;
+ *   the number of arc attribute bytes, m or 0 if no arc has EdgeAttributes,
+ *   and the bytes;
+ *   for every node its id and name as length-prefixed UTF-8;
+ *   the node index behind every entry of the name to id table.
+ * Everything is big-endian and the arrays are copied out of the mapped
+ * file with bulk transfers. A snapshot is stale when either CSV file has
+ * changed size or modification time since it was written.
+ */
+final class MapSnapshot
+{
+    private static final int MAGIC = 0x434D5031; // "CMP1"
+    private static final int VERSION = 2;
+    private static final int HEADER = 64;
+
+    private MapSnapshot()
+    {
+    }
+
+    /**
+     * @param: nodeFilename  Path to the node data file.
+     * @param: edgeFilename  Path to the edge data file.
+     * @returns   the size and modification time of both files.
+     * @throws    IOException if either file cannot be examined.
+     */
+    static long[] fingerprint(String nodeFilename, String edgeFilename) throws IOException
+    {
+        Path nodes = Paths.get(nodeFilename);
+        Path edges = Paths.get(edgeFilename);
+        return new long[] {
+            Files.size(nodes), Files.getLastModifiedTime(nodes).toMillis(),
+            Files.size(edges), Files.getLastModifiedTime(edges).toMillis()
+        };
+    }
+
+    /**
+     * @param: map       The map to save.
+     * @param: source    The fingerprint of the CSV files map was built from.
+     * @param: filename  Path of the snapshot file.
+     * @effects   Writes the snapshot next to filename and renames it into
+     *            place, so a concurrent reader sees the old file or the new
+     *            one, never a partial one.
+     * @throws    IOException if the file cannot be written.
+     */
+    static void write(CampusMap map, long[] source, String filename) throws IOException
+    {
+        CompactGraph<String> graph = map.graph;
+        int n = graph.size();
+        int m = graph.edgeCount();
+        byte[][] ids = new byte[n][];
+        byte[][] names = new byte[n][];
+        long strings = 0;
+        for(int i = 0; i < n; i++)
+        {
+            ids[i] = graph.node(i).getBytes(StandardCharsets.UTF_8);
+            names[i] = map.id_name.get(graph.node(i)).getBytes(StandardCharsets.UTF_8);
+            strings += 8 + ids[i].length + names[i].length;
+        }
+        byte[] attributes = map.attributes;
+        int attributed = attributes == null ? 0 : m;
+        long payload = 8L * (2L * n + m) + 4L * (n + 1L + m) + 4L + attributed + strings + 4L
+                + 4L * map.name_id.size();
+        if(HEADER + payload > Integer.MAX_VALUE)
+            throw new IOException("map too large for a snapshot");
+
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try{
+            try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + payload);
+                buffer.position(HEADER);
+                buffer.asDoubleBuffer().put(map.xs);
+                skip(buffer, 8L * n);
+                buffer.asDoubleBuffer().put(map.ys);
+                skip(buffer, 8L * n);
+                buffer.asDoubleBuffer().put(graph.weights);
+                skip(buffer, 8L * m);
+                buffer.asIntBuffer().put(graph.offsets);
+                skip(buffer, 4L * (n + 1));
+                buffer.asIntBuffer().put(graph.targets);
+                skip(buffer, 4L * m);
+                buffer.putInt(attributed);
+                if(attributes != null)
+                    buffer.put(attributes);
+                for(int i = 0; i < n; i++)
+                {
+                    buffer.putInt(ids[i].length).put(ids[i]);
+                    buffer.putInt(names[i].length).put(names[i]);
+                }
+                buffer.putInt(map.name_id.size());
+                for(String id: map.name_id.values())
+                    buffer.putInt(graph.indexOf(id));
+
+                CRC32C crc = new CRC32C();
+                crc.update(buffer.duplicate().position(HEADER).limit((int) (HEADER + payload)));
+                buffer.position(0);
+                buffer.putInt(MAGIC).putInt(VERSION);
+                for(long value: source)
+                    buffer.putLong(value);
+                buffer.putInt(n).putInt(m).putLong(payload).putInt((int) crc.getValue());
+                buffer.force();
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }finally{
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void skip(ByteBuffer buffer, long bytes)
+    {
+        buffer.position((int) (buffer.position() + bytes));
+    }
+
+    /**
+     * @param: filename    Path of a file written by write.
+     * @param: source      The fingerprint of the CSV files the caller
+     *                     would otherwise load.
+     * @param: routeCache  An empty cache for routes on the loaded map.
+     * @returns   the saved map, or null if the file does not exist, has
+     *            another version or was built from different CSV files.
+     * @throws    IOException if the file cannot be read, is truncated or
+     *            fails its checksum.
+     */
+    static CampusMap read(String filename, long[] source, RouteCache routeCache) throws IOException
+    {
+        if(!new File(filename).isFile())
+            return null;
+        try(FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)){
+            long size = channel.size();
+            if(size < HEADER || size > Integer.MAX_VALUE)
+                throw new IOException("File " + filename + " is not a map snapshot.");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if(buffer.getInt() != MAGIC)
+                throw new IOException("File " + filename + " is not a map snapshot.");
+            if(buffer.getInt() != VERSION)
+                return null;
+            for(long value: source)
+            {
+                if(buffer.getLong() != value)
+                    return null;
+            }
+            int n = buffer.getInt();
+            int m = buffer.getInt();
+            long payload = buffer.getLong();
+            int checksum = buffer.getInt();
+            if(n < 0 || m < 0 || HEADER + payload != size)
+                throw new IOException("File " + filename + " is truncated.");
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.duplicate().position(HEADER).limit((int) size));
+            if((int) crc.getValue() != checksum)
+                throw new IOException("File " + filename + " fails its checksum.");
+
+            try{
+                buffer.position(HEADER);
+                double[] xs = new double[n];
+                double[] ys = new double[n];
+                double[] weights = new double[m];
+                int[] offsets = new int[n + 1];
+                int[] targets = new int[m];
+                buffer.asDoubleBuffer().get(xs);
+                skip(buffer, 8L * n);
+                buffer.asDoubleBuffer().get(ys);
+                skip(buffer, 8L * n);
+                buffer.asDoubleBuffer().get(weights);
+                skip(buffer, 8L * m);
+                buffer.asIntBuffer().get(offsets);
+                skip(buffer, 4L * (n + 1));
+                buffer.asIntBuffer().get(targets);
+                skip(buffer, 4L * m);
+                byte[] attributes = null;
+                int attributed = buffer.getInt();
+                if(attributed != 0)
+                {
+                    if(attributed != m)
+                        throw new IOException("File " + filename + " is not a map snapshot.");
+                    attributes = new byte[m];
+                    buffer.get(attributes);
+                }
+
+                ArrayList<String> nodes = new ArrayList<>(n);
+                HashMap<String,Coordinate> id_cordinate = new HashMap<>(n * 4 / 3 + 1);
+                HashMap<String,String> id_name = new HashMap<>(n * 4 / 3 + 1);
+                for(int i = 0; i < n; i++)
+                {
+                    String id = string(buffer);
+                    String name = string(buffer);
+                    nodes.add(id);
+                    id_name.put(id, name);
+                    id_cordinate.put(id, new Coordinate(name, id, xs[i], ys[i]));
+                }
+                HashMap<String,String> name_id = new HashMap<>();
+                for(int k = buffer.getInt(); k > 0; k--)
+                {
+                    String id = nodes.get(buffer.getInt());
+                    name_id.put(id_name.get(id), id);
+                }
+                CompactGraph<String> graph = new CompactGraph<>(nodes, offsets, targets, weights);
+                return new CampusMap(graph, xs, ys, attributes, id_cordinate, id_name, name_id, routeCache);
+            }catch(RuntimeException e){
+                // a checksum match on a malformed file means it was written wrongly
+                throw new IOException("File " + filename + " is not a map snapshot.", e);
+            }
+        }
+    }
+
+    private static String string(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,378 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <b>NameIndex</b> is an <b>immutable</b> index of the building names of a
+ * map, built once when the map is loaded:
+ *   listing   every "name,id" line, sorted once for listAllBuildings;
+ *   keys      the normalized name from every word start, sorted, so that
+ *             the names with a word starting with a prefix are one range
+ *             found by binary search, with a sparse table that finds the
+ *             best ranked keys of any range without scanning it;
+ *   postings  for every trigram, the buildings whose normalized name has
+ *             it, so that a misspelled name is found by counting the
+ *             trigrams it shares with each building.
+ * Names are normalized to lower case with every run of characters other
+ * than letters and digits turned into one space, so "blaw knox" finds
+ * "Blaw-Knox 1 & 2".
+ */
+final class NameIndex
+{
+    // a misspelled query must share this fraction of its trigrams
+    private static final double MIN_SHARED = 0.5;
+    private static final int[] NONE = new int[0];
+
+    private final List<String> listing;
+    // buildings are numbered by their position in listing
+    private final String[] ids;
+    private final String[] keys;
+    // name starts before later words, then shorter names, then by name,
+    // with the building in the low 32 bits
+    private final long[] rank;
+    // best[j][i] is the key of lowest rank among keys i to i + 2^j - 1
+    private final int[][] best;
+    private final HashMap<Long,int[]> postings;
+    // the number of distinct trigrams of every name
+    private final int[] gramCount;
+
+    /**
+     * @param: name_id  Building name to node id.
+     */
+    NameIndex(Map<String,String> name_id)
+    {
+        int count = name_id.size();
+        String[] lines = new String[count];
+        int b = 0;
+        for(Map.Entry<String,String> entry: name_id.entrySet())
+            lines[b++] = entry.getKey() + "," + entry.getValue();
+        // sorted as listAllBuildings always sorted them: by the whole line
+        Arrays.sort(lines);
+        listing = Collections.unmodifiableList(Arrays.asList(lines));
+        ids = new String[count];
+        gramCount = new int[count];
+
+        ArrayList<String> keyList = new ArrayList<>();
+        ArrayList<Long> rankList = new ArrayList<>();
+        HashMap<Long,ArrayList<Integer>> gramLists = new HashMap<>();
+        for(b = 0; b < count; b++)
+        {
+            int comma = lines[b].lastIndexOf(',');
+            ids[b] = lines[b].substring(comma + 1);
+            String normal = normalize(lines[b].substring(0, comma));
+            long length = Math.min(normal.length(), (1 << 20) - 1);
+            for(int i = 0; i < normal.length(); i++)
+            {
+                if(i == 0 || normal.charAt(i - 1) == ' ')
+                {
+                    keyList.add(normal.substring(i));
+                    rankList.add((i == 0 ? 0L : 1L) << 52 | length << 32 | b);
+                }
+            }
+            long[] grams = trigrams(normal);
+            gramCount[b] = grams.length;
+            for(long gram: grams)
+                gramLists.computeIfAbsent(gram, g -> new ArrayList<>()).add(b);
+        }
+
+        Integer[] order = new Integer[keyList.size()];
+        for(int k = 0; k < order.length; k++)
+            order[k] = k;
+        Arrays.sort(order, (x, y) -> keyList.get(x).compareTo(keyList.get(y)));
+        int n = order.length;
+        keys = new String[n];
+        rank = new long[n];
+        for(int k = 0; k < n; k++)
+        {
+            keys[k] = keyList.get(order[k]);
+            rank[k] = rankList.get(order[k]);
+        }
+        int levels = 1;
+        while(1 << levels <= n)
+            levels++;
+        best = new int[levels][];
+        best[0] = new int[n];
+        for(int k = 0; k < n; k++)
+            best[0][k] = k;
+        for(int j = 1; j < levels; j++)
+        {
+            int half = 1 << (j - 1);
+            best[j] = new int[n - (1 << j) + 1];
+            for(int k = 0; k < best[j].length; k++)
+                best[j][k] = lower(best[j - 1][k], best[j - 1][k + half]);
+        }
+
+        postings = new HashMap<>(gramLists.size() * 4 / 3 + 1);
+        for(Map.Entry<Long,ArrayList<Integer>> entry: gramLists.entrySet())
+            postings.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private int lower(int a, int b)
+    {
+        return rank[a] <= rank[b] ? a : b;
+    }
+
+    // the key of lowest rank among keys lo to hi - 1
+    private int lowest(int lo, int hi)
+    {
+        int j = 31 - Integer.numberOfLeadingZeros(hi - lo);
+        return lower(best[j][lo], best[j][hi - (1 << j)]);
+    }
+
+    /**
+     * @returns   every "name,id" line, sorted.
+     */
+    List<String> listing()
+    {
+        return listing;
+    }
+
+    /**
+     * @param: prefix  The start of a building name or of any word in it.
+     * @param: limit   The largest number of buildings to return.
+     * @returns   the ids of the buildings with a word starting with prefix,
+     *            best first: names starting with prefix, an exact name
+     *            first as the shortest, then names with a later word
+     *            starting with it; shorter names first within each, then
+     *            by name.
+     */
+    String[] complete(String prefix, int limit)
+    {
+        return ids(completeSlots(normalize(prefix), limit));
+    }
+
+    private int[] completeSlots(String query, int limit)
+    {
+        if(query.isEmpty() || limit <= 0)
+            return NONE;
+        // no more buildings can be found than there are
+        limit = Math.min(limit, ids.length);
+        int lo = search(query);
+        // no key has a character above the largest a prefix can continue with
+        int hi = search(query + Character.MAX_VALUE);
+        int[] slots = new int[limit];
+        int found = 0;
+        // ranges of keys not yet taken, each with its lowest ranked key;
+        // every step takes the lowest of them all and splits its range
+        int[] from = new int[2 * limit + 1];
+        int[] to = new int[from.length];
+        int[] low = new int[from.length];
+        int ranges = 0;
+        if(lo < hi)
+        {
+            from[0] = lo;
+            to[0] = hi;
+            low[0] = lowest(lo, hi);
+            ranges = 1;
+        }
+        while(found < limit && ranges > 0)
+        {
+            int r = 0;
+            for(int i = 1; i < ranges; i++)
+            {
+                if(rank[low[i]] < rank[low[r]])
+                    r = i;
+            }
+            int k = low[r];
+            int start = from[r];
+            int end = to[r];
+            ranges--;
+            from[r] = from[ranges];
+            to[r] = to[ranges];
+            low[r] = low[ranges];
+            int b = (int) rank[k];
+            boolean taken = false;
+            for(int i = 0; i < found; i++)
+                taken |= slots[i] == b;
+            if(!taken)
+                slots[found++] = b;
+            // a building taken twice takes no result, so ranges may pile up
+            if(ranges + 2 > from.length)
+            {
+                from = Arrays.copyOf(from, 2 * from.length);
+                to = Arrays.copyOf(to, from.length);
+                low = Arrays.copyOf(low, from.length);
+            }
+            if(start < k)
+            {
+                from[ranges] = start;
+                to[ranges] = k;
+                low[ranges++] = lowest(start, k);
+            }
+            if(k + 1 < end)
+            {
+                from[ranges] = k + 1;
+                to[ranges] = end;
+                low[ranges++] = lowest(k + 1, end);
+            }
+        }
+        return Arrays.copyOf(slots, found);
+    }
+
+    // the position of the first key not below query
+    private int search(String query)
+    {
+        int k = Arrays.binarySearch(keys, query);
+        return k < 0 ? -k - 1 : k;
+    }
+
+    /**
+     * @param: query  A building name, possibly misspelled or partial.
+     * @param: limit  The largest number of buildings to return.
+     * @returns   the ids of the buildings sharing at least half of the
+     *            trigrams of query, best first: by the number of trigrams
+     *            of query they share, then by the similarity of the whole
+     *            names, then by name.
+     */
+    String[] fuzzy(String query, int limit)
+    {
+        return ids(fuzzySlots(normalize(query), limit, new BitSet()));
+    }
+
+    private int[] fuzzySlots(String query, int limit, BitSet exclude)
+    {
+        if(query.isEmpty() || limit <= 0)
+            return NONE;
+        limit = Math.min(limit, ids.length);
+        long[] wanted = trigrams(query);
+        int need = (int) Math.ceil(MIN_SHARED * wanted.length);
+        int[] shared = new int[ids.length];
+        int[] touched = new int[ids.length];
+        int touchedCount = 0;
+        for(long gram: wanted)
+        {
+            for(int b: postings.getOrDefault(gram, NONE))
+            {
+                if(shared[b]++ == 0)
+                    touched[touchedCount++] = b;
+            }
+        }
+
+        // more shared trigrams first; for as many shared, fewer trigrams
+        // in the name means a higher similarity of the whole names
+        TopK top = new TopK(limit);
+        for(int t = 0; t < touchedCount; t++)
+        {
+            int b = touched[t];
+            if(shared[b] >= need && !exclude.get(b))
+                top.offer((long) (wanted.length - shared[b]) << 52 | (long) Math.min(gramCount[b], (1 << 20) - 1) << 32 | b);
+        }
+        return top.slots();
+    }
+
+    /**
+     * @param: query  What was typed into a search box.
+     * @param: limit  The largest number of buildings to return.
+     * @returns   the ids of the buildings complete returns for query,
+     *            followed by those fuzzy returns that are not among them.
+     */
+    String[] search(String query, int limit)
+    {
+        String normal = normalize(query);
+        int[] prefixed = completeSlots(normal, limit);
+        BitSet seen = new BitSet(ids.length);
+        for(int b: prefixed)
+            seen.set(b);
+        int[] fuzzy = fuzzySlots(normal, limit - prefixed.length, seen);
+        int[] slots = Arrays.copyOf(prefixed, prefixed.length + fuzzy.length);
+        System.arraycopy(fuzzy, 0, slots, prefixed.length, fuzzy.length);
+        return ids(slots);
+    }
+
+    /**
+     * The smallest keys offered, each holding a building in its low 32
+     * bits, in a sorted array; with the few results a query asks for,
+     * most keys are rejected by one compare.
+     */
+    private static final class TopK
+    {
+        private final long[] keys;
+        private int size;
+
+        TopK(int limit)
+        {
+            keys = new long[limit];
+        }
+
+        void offer(long key)
+        {
+            if(keys.length == 0 || (size == keys.length && key >= keys[size - 1]))
+                return;
+            int i = size < keys.length ? size++ : size - 1;
+            while(i > 0 && keys[i - 1] > key)
+            {
+                keys[i] = keys[i - 1];
+                i--;
+            }
+            keys[i] = key;
+        }
+
+        int[] slots()
+        {
+            int[] slots = new int[size];
+            for(int i = 0; i < size; i++)
+                slots[i] = (int) keys[i];
+            return slots;
+        }
+    }
+
+    private String[] ids(int[] slots)
+    {
+        String[] found = new String[slots.length];
+        for(int i = 0; i < slots.length; i++)
+            found[i] = ids[slots[i]];
+        return found;
+    }
+
+    /**
+     * @returns   name in lower case, with every run of characters other
+     *            than letters and digits turned into one space and no
+     *            space at either end.
+     */
+    static String normalize(String name)
+    {
+        StringBuilder normal = new StringBuilder(name.length());
+        boolean gap = false;
+        for(int i = 0; i < name.length(); i++)
+        {
+            char c = name.charAt(i);
+            if(Character.isLetterOrDigit(c))
+            {
+                if(gap && normal.length() > 0)
+                    normal.append(' ');
+                normal.append(c);
+                gap = false;
+            }
+            else
+            {
+                gap = true;
+            }
+        }
+        return normal.toString().toLowerCase(Locale.ROOT);
+    }
+
+    // the distinct trigrams of normal padded with two spaces in front and
+    // one behind, each packed into a long, sorted
+    private static long[] trigrams(String normal)
+    {
+        String padded = "  " + normal + " ";
+        long[] grams = new long[padded.length() - 2];
+        for(int i = 0; i < grams.length; i++)
+            grams[i] = (long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2);
+        Arrays.sort(grams);
+        int distinct = 0;
+        for(int i = 0; i < grams.length; i++)
+        {
+            if(i == 0 || grams[i] != grams[i - 1])
+                grams[distinct++] = grams[i];
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+}
@@ -1,5 +1,6 @@
 package backend;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -77,6 +78,441 @@ public class PathFinder
             }
         }
         return distance;
-    }   
-    
+    }
+
+    /**
+     * @param: graph     The frozen graph to search.
+     * @param: source    The index of the starting node.
+     * @param: target    The index of the destination node, or -1 to settle
+     *                   every node reachable from source.
+     * @param: workspace The per-thread state that receives distances and
+     *                   predecessors; see SearchWorkspace.forThread.
+     *
+     * @requires  graph != null && workspace != null && 0 <= source < graph.size()
+     *            && workspace.capacity() >= graph.size()
+     *
+     * @modifies  workspace
+     *
+     * @effects   Runs Dijkstra's algorithm from source on an indexed heap and
+     *            stops once target is settled. No objects are allocated.
+     *
+     * @returns   The shortest-path distance from source to target, or
+     *            Double.POSITIVE_INFINITY if target is unreachable or -1.
+     */
+    public static double dijkstra(CompactGraph<?> graph, int source, int target, SearchWorkspace workspace)
+    {
+        return dijkstra(graph, graph.weights, source, target, workspace);
+    }
+
+    /**
+     * @param: graph     The frozen graph to search.
+     * @param: weights   The weight of every arc of graph by arc position,
+     *                   used instead of graph's own, e.g. the layer of a
+     *                   RoutingProfile. No path found uses an arc weighing
+     *                   Double.POSITIVE_INFINITY.
+     *
+     * @requires  weights.length == graph.edgeCount(); plus the
+     *            requirements of dijkstra.
+     *
+     * @effects   Runs dijkstra on graph with weights; the loop is the same
+     *            whichever weights it is given.
+     */
+    public static double dijkstra(CompactGraph<?> graph, double[] weights, int source, int target,
+                                  SearchWorkspace workspace)
+    {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        IndexedHeap heap = workspace.heap;
+        double[] distance = workspace.distance;
+
+        workspace.reset();
+        workspace.set(source, 0.0, -1);
+        heap.push(source, 0.0);
+        while(!heap.isEmpty())
+        {
+            double currDistance = heap.peekKey();
+            int currNode = heap.pop();
+            workspace.settled++;
+            if(currNode == target)
+                return currDistance;
+
+            workspace.relaxed += offsets[currNode + 1] - offsets[currNode];
+            for(int e = offsets[currNode], end = offsets[currNode + 1]; e < end; e++)
+            {
+                int child = targets[e];
+                double newDistance = currDistance + weights[e];
+                if(!workspace.reached(child) || newDistance < distance[child])
+                {
+                    workspace.set(child, newDistance, currNode);
+                    heap.push(child, newDistance);
+                    workspace.updated++;
+                }
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param: graph     The frozen graph to search.
+     * @param: weights   The weight of every arc of graph by arc position.
+     * @param: source    The index of the starting node.
+     * @param: stops     The indices of the nodes wanted, sorted and distinct.
+     * @param: workspace The per-thread state that receives distances and
+     *                   predecessors.
+     *
+     * @requires  the requirements of the weighted dijkstra.
+     *
+     * @modifies  workspace
+     *
+     * @effects   Runs dijkstra from source and stops once every node of stops
+     *            is settled, instead of settling the whole graph; the
+     *            distance of each is then workspace.distance(stop).
+     *
+     * @returns   the number of nodes of stops reachable from source.
+     */
+    public static int dijkstra(CompactGraph<?> graph, double[] weights, int source, int[] stops,
+                               SearchWorkspace workspace)
+    {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        IndexedHeap heap = workspace.heap;
+        double[] distance = workspace.distance;
+        int found = 0;
+
+        workspace.reset();
+        workspace.set(source, 0.0, -1);
+        heap.push(source, 0.0);
+        // a node beyond every arc the profile can use is settled at infinity
+        while(!heap.isEmpty() && heap.peekKey() < Double.POSITIVE_INFINITY)
+        {
+            double currDistance = heap.peekKey();
+            int currNode = heap.pop();
+            workspace.settled++;
+            if(Arrays.binarySearch(stops, currNode) >= 0 && ++found == stops.length)
+                return found;
+
+            workspace.relaxed += offsets[currNode + 1] - offsets[currNode];
+            for(int e = offsets[currNode], end = offsets[currNode + 1]; e < end; e++)
+            {
+                int child = targets[e];
+                double newDistance = currDistance + weights[e];
+                if(!workspace.reached(child) || newDistance < distance[child])
+                {
+                    workspace.set(child, newDistance, currNode);
+                    heap.push(child, newDistance);
+                    workspace.updated++;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param: graph     The frozen graph to search.
+     * @param: weights   The weight of every arc of graph by arc position.
+     * @param: source    The index of the starting node.
+     * @param: limit     The largest distance from source wanted.
+     * @param: workspace The per-thread state that receives distances and
+     *                   predecessors.
+     *
+     * @requires  limit >= 0; plus the requirements of the weighted dijkstra.
+     *
+     * @modifies  workspace
+     *
+     * @effects   Runs dijkstra from source without ever labelling a node
+     *            farther than limit or crossing an arc of infinite weight,
+     *            so it settles exactly the reachable nodes within limit and
+     *            no more, even when limit is infinite. They are stored in the order they were
+     *            settled, nearest first, where tracePath stores a path; read
+     *            them with workspace.pathNode(i).
+     *
+     * @returns   the number of nodes within limit of source, source included.
+     */
+    public static int dijkstraWithin(CompactGraph<?> graph, double[] weights, int source, double limit,
+                                     SearchWorkspace workspace)
+    {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        IndexedHeap heap = workspace.heap;
+        double[] distance = workspace.distance;
+        int[] settled = workspace.path();
+        int count = 0;
+
+        workspace.reset();
+        workspace.set(source, 0.0, -1);
+        heap.push(source, 0.0);
+        while(!heap.isEmpty())
+        {
+            double currDistance = heap.peekKey();
+            int currNode = heap.pop();
+            workspace.settled++;
+            settled[count++] = currNode;
+
+            workspace.relaxed += offsets[currNode + 1] - offsets[currNode];
+            for(int e = offsets[currNode], end = offsets[currNode + 1]; e < end; e++)
+            {
+                int child = targets[e];
+                double newDistance = currDistance + weights[e];
+                // pruned at the radius; an unusable arc stays unusable even
+                // when the radius is infinite
+                if(newDistance <= limit && newDistance < Double.POSITIVE_INFINITY
+                        && (!workspace.reached(child) || newDistance < distance[child]))
+                {
+                    workspace.set(child, newDistance, currNode);
+                    heap.push(child, newDistance);
+                    workspace.updated++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static double straightLine(double dx, double dy)
+    {
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * @param: graph     The frozen graph to search.
+     * @param: x         The x-coordinate of every node, by node index.
+     * @param: y         The y-coordinate of every node, by node index.
+     * @param: source    The index of the starting node.
+     * @param: target    The index of the destination node.
+     * @param: workspace The per-thread state that receives distances and
+     *                   predecessors.
+     *
+     * @requires  every edge weight is at least the straight-line distance
+     *            between its endpoints, so the heuristic is admissible;
+     *            plus the requirements of dijkstra.
+     *
+     * @modifies  workspace
+     *
+     * @effects   Runs A* from source, ordering the heap by distance so far
+     *            plus the straight-line distance to target.
+     *
+     * @returns   The shortest-path distance from source to target, or
+     *            Double.POSITIVE_INFINITY if target is unreachable.
+     */
+    public static double astar(CompactGraph<?> graph, double[] x, double[] y, int source, int target, SearchWorkspace workspace)
+    {
+        return astar(graph, graph.weights, x, y, source, target, workspace);
+    }
+
+    /**
+     * @param: weights   The weight of every arc of graph, as for the
+     *                   weighted dijkstra.
+     *
+     * @requires  every weight is at least the straight-line distance
+     *            between the ends of its arc; plus the requirements of
+     *            the weighted dijkstra.
+     *
+     * @effects   Runs astar on graph with weights.
+     */
+    public static double astar(CompactGraph<?> graph, double[] weights, double[] x, double[] y, int source,
+                               int target, SearchWorkspace workspace)
+    {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        IndexedHeap heap = workspace.heap;
+        double[] distance = workspace.distance;
+        double tx = x[target];
+        double ty = y[target];
+
+        workspace.reset();
+        workspace.set(source, 0.0, -1);
+        heap.push(source, straightLine(x[source] - tx, y[source] - ty));
+        while(!heap.isEmpty())
+        {
+            int currNode = heap.pop();
+            workspace.settled++;
+            double currDistance = distance[currNode];
+            if(currNode == target)
+                return currDistance;
+
+            workspace.relaxed += offsets[currNode + 1] - offsets[currNode];
+            for(int e = offsets[currNode], end = offsets[currNode + 1]; e < end; e++)
+            {
+                int child = targets[e];
+                double newDistance = currDistance + weights[e];
+                if(!workspace.reached(child) || newDistance < distance[child])
+                {
+                    workspace.set(child, newDistance, currNode);
+                    heap.push(child, newDistance + straightLine(x[child] - tx, y[child] - ty));
+                    workspace.updated++;
+                }
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param: graph     The frozen graph to search.
+     * @param: weights   The weight of every arc of graph by arc position.
+     * @param: potential A finished search from target over the transpose of
+     *                   graph, possibly cut short; a node it did not reach
+     *                   is never expanded.
+     * @param: source    The index of the starting node.
+     * @param: target    The index of the destination node.
+     * @param: workspace The per-thread state that receives distances and
+     *                   predecessors; not potential.
+     *
+     * @requires  no weight is below the weight potential was found with,
+     *            so its distances are a consistent heuristic; plus the
+     *            requirements of the weighted dijkstra.
+     *
+     * @modifies  workspace
+     *
+     * @effects   Runs A* from source ordered by distance so far plus the
+     *            distance potential found to target. On the weights
+     *            potential was found with this settles little more than
+     *            the path itself; on larger ones it finds the shortest path
+     *            through the nodes potential reached.
+     *
+     * @returns   The shortest-path distance from source to target through
+     *            nodes potential reached, or Double.POSITIVE_INFINITY if
+     *            there is none.
+     */
+    public static double astar(CompactGraph<?> graph, double[] weights, SearchWorkspace potential, int source,
+                               int target, SearchWorkspace workspace)
+    {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        IndexedHeap heap = workspace.heap;
+        double[] distance = workspace.distance;
+
+        workspace.reset();
+        workspace.set(source, 0.0, -1);
+        heap.push(source, potential.distance(source));
+        while(!heap.isEmpty())
+        {
+            if(heap.peekKey() == Double.POSITIVE_INFINITY)
+                break;
+            int currNode = heap.pop();
+            workspace.settled++;
+            double currDistance = distance[currNode];
+            if(currNode == target)
+                return currDistance;
+
+            workspace.relaxed += offsets[currNode + 1] - offsets[currNode];
+            for(int e = offsets[currNode], end = offsets[currNode + 1]; e < end; e++)
+            {
+                int child = targets[e];
+                double newDistance = currDistance + weights[e];
+                if(!workspace.reached(child) || newDistance < distance[child])
+                {
+                    workspace.set(child, newDistance, currNode);
+                    heap.push(child, newDistance + potential.distance(child));
+                    workspace.updated++;
+                }
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param: forward   The frozen graph to search from source.
+     * @param: backward  The transpose of forward, searched from target. For
+     *                   an undirected graph this may be forward itself.
+     * @param: x         The x-coordinate of every node, by node index.
+     * @param: y         The y-coordinate of every node, by node index.
+     * @param: source    The index of the starting node.
+     * @param: target    The index of the destination node.
+     * @param: workspace The per-thread state; its backward half is used by
+     *                   the search from target.
+     *
+     * @requires  the requirements of astar
+     *
+     * @modifies  workspace
+     *
+     * @effects   Runs A* from both ends with the average potential
+     *            (dist(v,target) - dist(v,source)) / 2, so both directions
+     *            see consistent reduced weights. The search stops once the
+     *            two heap minima together cannot improve the best path seen.
+     *            workspace.tracePath(target) joins both halves.
+     *
+     * @returns   The shortest-path distance from source to target, or
+     *            Double.POSITIVE_INFINITY if target is unreachable.
+     */
+    public static double bidirectionalAstar(CompactGraph<?> forward, CompactGraph<?> backward, double[] x, double[] y,
+                                            int source, int target, SearchWorkspace workspace)
+    {
+        return bidirectionalAstar(forward, forward.weights, backward, backward.weights, x, y, source, target,
+                workspace);
+    }
+
+    /**
+     * @param: forwardWeights   The weight of every arc of forward, as for
+     *                          the weighted astar.
+     * @param: backwardWeights  The weight of every arc of backward; for an
+     *                          undirected graph and symmetric weights these
+     *                          may be forwardWeights.
+     *
+     * @requires  backwardWeights weigh every arc as forwardWeights weigh its
+     *            reverse; plus the requirements of the weighted astar.
+     *
+     * @effects   Runs bidirectionalAstar with those weights.
+     */
+    public static double bidirectionalAstar(CompactGraph<?> forward, double[] forwardWeights,
+                                            CompactGraph<?> backward, double[] backwardWeights,
+                                            double[] x, double[] y, int source, int target,
+                                            SearchWorkspace workspace)
+    {
+        SearchWorkspace fw = workspace;
+        SearchWorkspace bw = workspace.backward();
+        fw.reset();
+        bw.reset();
+        double sx = x[source];
+        double sy = y[source];
+        double tx = x[target];
+        double ty = y[target];
+
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        if(source == target)
+        {
+            best = 0.0;
+            meeting = source;
+        }
+        fw.set(source, 0.0, -1);
+        fw.heap.push(source, 0.5 * straightLine(sx - tx, sy - ty));
+        bw.set(target, 0.0, -1);
+        bw.heap.push(target, 0.5 * straightLine(tx - sx, ty - sy));
+
+        while(!fw.heap.isEmpty() && !bw.heap.isEmpty())
+        {
+            if(fw.heap.peekKey() + bw.heap.peekKey() >= best)
+                break;
+            boolean forwardTurn = fw.heap.size() <= bw.heap.size();
+            SearchWorkspace self = forwardTurn ? fw : bw;
+            SearchWorkspace other = forwardTurn ? bw : fw;
+            CompactGraph<?> graph = forwardTurn ? forward : backward;
+            double[] weights = forwardTurn ? forwardWeights : backwardWeights;
+            double sign = forwardTurn ? 0.5 : -0.5;
+
+            int currNode = self.heap.pop();
+            self.settled++;
+            double currDistance = self.distance[currNode];
+            self.relaxed += graph.offsets[currNode + 1] - graph.offsets[currNode];
+            for(int e = graph.offsets[currNode], end = graph.offsets[currNode + 1]; e < end; e++)
+            {
+                int child = graph.targets[e];
+                double newDistance = currDistance + weights[e];
+                if(!self.reached(child) || newDistance < self.distance[child])
+                {
+                    self.set(child, newDistance, currNode);
+                    double potential = straightLine(x[child] - tx, y[child] - ty) - straightLine(x[child] - sx, y[child] - sy);
+                    self.heap.push(child, newDistance + sign * potential);
+                    self.updated++;
+                    if(other.reached(child) && newDistance + other.distance[child] < best)
+                    {
+                        best = newDistance + other.distance[child];
+                        meeting = child;
+                    }
+                }
+            }
+        }
+        fw.meeting = meeting;
+        return best;
+    }
+
 }
@@ -0,0 +1,191 @@
+package backend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <b>QueryMetrics</b> collects what CampusGraph.findPath spends on every
+ * route query while it is enabled: the nodes the search settled, the arcs
+ * it scanned, its heap pushes and decrease-keys, and the time spent
+ * resolving names, searching and formatting, each in a lock-free
+ * Histogram. Routes served from the route cache count as cache hits and
+ * add only their resolution time.
+ * Searches keep their counters in the SearchWorkspace whether or not
+ * metrics are enabled, at a few adds per settled node; while disabled a
+ * query reads one volatile flag and takes no clock readings.
+ */
+public final class QueryMetrics
+{
+    private static final String[] NAMES = {
+        "settled", "relaxed", "pushes", "decreaseKeys", "resolveNanos", "searchNanos", "formatNanos"
+    };
+
+    private volatile boolean enabled;
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    // in the order of NAMES
+    private final Histogram[] histograms = new Histogram[NAMES.length];
+
+    QueryMetrics()
+    {
+        for(int i = 0; i < histograms.length; i++)
+            histograms[i] = new Histogram();
+    }
+
+    /**
+     * @returns   true if queries are being recorded.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @modifies  this
+     * @effects   Starts or stops recording queries; what was recorded is
+     *            kept.
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @modifies  this
+     * @effects   Forgets every query recorded.
+     */
+    public void reset()
+    {
+        queries.reset();
+        cacheHits.reset();
+        for(Histogram histogram: histograms)
+            histogram.reset();
+    }
+
+    /**
+     * @param: resolve    The nanoseconds spent resolving the ends.
+     * @param: search     The nanoseconds the search took.
+     * @param: format     The nanoseconds spent tracing and formatting.
+     * @param: workspace  The workspace the search ran on, or null if the
+     *                    route was read from the building table.
+     */
+    void record(long resolve, long search, long format, SearchWorkspace workspace)
+    {
+        queries.increment();
+        if(workspace != null)
+        {
+            histograms[0].record(workspace.settledCount());
+            histograms[1].record(workspace.relaxedCount());
+            histograms[2].record(workspace.pushCount());
+            histograms[3].record(workspace.decreaseCount());
+        }
+        histograms[4].record(resolve);
+        histograms[5].record(search);
+        histograms[6].record(format);
+    }
+
+    /**
+     * @param: resolve  The nanoseconds spent resolving the ends.
+     */
+    void recordCacheHit(long resolve)
+    {
+        queries.increment();
+        cacheHits.increment();
+        histograms[4].record(resolve);
+    }
+
+    /**
+     * @returns   the number of queries recorded, cache hits included.
+     */
+    public long getQueries()
+    {
+        return queries.sum();
+    }
+
+    /**
+     * @returns   the number of recorded queries answered from the route
+     *            cache.
+     */
+    public long getCacheHits()
+    {
+        return cacheHits.sum();
+    }
+
+    /**
+     * @param: name  One of settled, relaxed, pushes, decreaseKeys,
+     *               resolveNanos, searchNanos or formatNanos.
+     * @returns   the histogram of that quantity.
+     * @throws    IllegalArgumentException if name is none of them.
+     */
+    public Histogram getHistogram(String name)
+    {
+        for(int i = 0; i < NAMES.length; i++)
+        {
+            if(NAMES[i].equals(name))
+                return histograms[i];
+        }
+        throw new IllegalArgumentException("Unknown metric: [" + name + "]");
+    }
+
+    /**
+     * @param: out  Where to write the metrics.
+     * @effects   Appends {"enabled":..,"queries":..,"cacheHits":.., and one
+     *            Histogram summary per quantity by name} to out.
+     * @returns   out
+     * @throws    IOException if out does.
+     */
+    public <A extends Appendable> A appendJson(A out) throws IOException
+    {
+        out.append("{\"enabled\":").append(enabled ? "true" : "false");
+        out.append(",\"queries\":").append(Long.toString(getQueries()));
+        out.append(",\"cacheHits\":").append(Long.toString(getCacheHits()));
+        for(int i = 0; i < NAMES.length; i++)
+        {
+            out.append(",\"").append(NAMES[i]).append("\":");
+            histograms[i].appendJson(out);
+        }
+        out.append('}');
+        return out;
+    }
+
+    /**
+     * @returns   this as appendJson writes it.
+     */
+    public String toJson()
+    {
+        try
+        {
+            return appendJson(new StringBuilder(1024)).toString();
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @returns   a table of the metrics for the console, one row per
+     *            quantity with times in microseconds.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%d queries, %d from the route cache, recording %s%n",
+                getQueries(), getCacheHits(), enabled ? "on" : "off"));
+        table.append(String.format("%-14s %10s %10s %10s %10s %10s %10s%n",
+                "", "count", "mean", "p50", "p90", "p99", "max"));
+        for(int i = 0; i < NAMES.length; i++)
+        {
+            Histogram h = histograms[i];
+            boolean time = NAMES[i].endsWith("Nanos");
+            double scale = time ? 1e3 : 1;
+            String name = time ? NAMES[i].replace("Nanos", " us") : NAMES[i];
+            table.append(String.format("%-14s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n", name, h.getCount(),
+                    h.getMean() / scale, h.getPercentile(0.50) / scale, h.getPercentile(0.90) / scale,
+                    h.getPercentile(0.99) / scale, h.getMax() / scale));
+        }
+        return table.toString();
+    }
+}
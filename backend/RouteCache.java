@@ -0,0 +1,253 @@
+package backend;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * <b>RouteCache</b> is a bounded, thread-safe least-recently-used cache of
+ * computed routes, keyed by resolved (source, target) node indices, the
+ * search mode and the routing profile. It is split into independently locked segments so that
+ * concurrent lookups of different routes rarely wait on each other; each
+ * segment evicts its own least recently used route once it is full. The
+ * capacity is split exactly between the segments, with fewer segments for
+ * a small cache, so the cache never holds more routes than its capacity.
+ */
+public final class RouteCache
+{
+    private static final int SEGMENTS = 16;
+    private static final int MODES = SearchMode.values().length;
+
+    /**
+     * A route as it was computed by CampusGraph, with its directions
+     * formatted as findPath returns them.
+     */
+    public static final class Route
+    {
+        final int[] path;
+        final RouteResult result;
+        final String text;
+
+        /**
+         * @param: result  The route, or a route with no path.
+         * @param: text    The formatted directions.
+         */
+        Route(RouteResult result, String text)
+        {
+            this.path = result.path;
+            this.result = result;
+            this.text = text;
+        }
+
+        public double getDistance()
+        {
+            return result.getDistance();
+        }
+
+        public RouteResult getResult()
+        {
+            return result;
+        }
+
+        public String getText()
+        {
+            return text;
+        }
+    }
+
+    private final class Segment
+    {
+        // in access order, least recently used first
+        private final LinkedHashMap<Long, Route> routes = new LinkedHashMap<>(16, 0.75f, true);
+        private final int capacity;
+
+        Segment(int capacity)
+        {
+            this.capacity = capacity;
+        }
+
+        void put(long key, Route route)
+        {
+            routes.put(key, route);
+            if(routes.size() > capacity)
+            {
+                Iterator<Route> eldest = routes.values().iterator();
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private final Segment[] segments;
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    /**
+     * @param: capacity  The maximum number of routes kept; 0 disables caching.
+     * @throws    IllegalArgumentException if capacity is negative.
+     */
+    public RouteCache(int capacity)
+    {
+        this(capacity, new LongAdder(), new LongAdder(), new LongAdder());
+    }
+
+    private RouteCache(int capacity, LongAdder hits, LongAdder misses, LongAdder evictions)
+    {
+        if(capacity < 0)
+            throw new IllegalArgumentException("capacity should not be negative");
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        // a power of two no larger than the capacity, so no segment is empty
+        int count = Integer.highestOneBit(Math.max(1, Math.min(SEGMENTS, capacity)));
+        segments = new Segment[count];
+        for(int i = 0; i < count; i++)
+            segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+    }
+
+    /**
+     * @requires  source and target are below 2^30
+     * @returns   the key of the route from source to target found with mode
+     *            under profile; the top four bits tell the 5 modes under the
+     *            3 profiles apart.
+     */
+    static long key(int source, int target, SearchMode mode, RoutingProfile profile)
+    {
+        return ((long) (profile.ordinal() * MODES + mode.ordinal()) << 60) | ((long) source << 30) | target;
+    }
+
+    private Segment segment(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return segments[(int) (h >>> 60) & (segments.length - 1)];
+    }
+
+    /**
+     * @returns   the cached route for key, or null; counts a hit or a miss.
+     */
+    Route get(long key)
+    {
+        if(capacity == 0)
+        {
+            misses.increment();
+            return null;
+        }
+        Segment segment = segment(key);
+        Route route;
+        synchronized(segment)
+        {
+            route = segment.routes.get(key);
+        }
+        if(route == null)
+            misses.increment();
+        else
+            hits.increment();
+        return route;
+    }
+
+    /**
+     * @effects   Caches route under key, evicting the least recently used
+     *            route of its segment if that segment is full.
+     */
+    void put(long key, Route route)
+    {
+        if(capacity == 0)
+            return;
+        Segment segment = segment(key);
+        synchronized(segment)
+        {
+            segment.put(key, route);
+        }
+    }
+
+    /**
+     * @param: keep  Decides which routes are still valid.
+     * @returns   a new cache with the capacity and the counters of this one,
+     *            holding the routes keep accepts in their current recency
+     *            order. Routes put into this cache later are not carried
+     *            over, so readers of an older map cannot pollute it.
+     */
+    RouteCache retain(Predicate<Route> keep)
+    {
+        RouteCache retained = new RouteCache(capacity, hits, misses, evictions);
+        for(int i = 0; i < segments.length; i++)
+        {
+            synchronized(segments[i])
+            {
+                // iterating an access-ordered map does not reorder it
+                for(Map.Entry<Long, Route> entry: segments[i].routes.entrySet())
+                {
+                    if(keep.test(entry.getValue()))
+                        retained.segments[i].put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return retained;
+    }
+
+    /**
+     * @effects   Removes every cached route; the counters are kept.
+     */
+    public void clear()
+    {
+        for(Segment segment: segments)
+        {
+            synchronized(segment)
+            {
+                segment.routes.clear();
+            }
+        }
+    }
+
+    /**
+     * @returns   the number of routes currently cached.
+     */
+    public int size()
+    {
+        int size = 0;
+        for(Segment segment: segments)
+        {
+            synchronized(segment)
+            {
+                size += segment.routes.size();
+            }
+        }
+        return size;
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    public long getEvictions()
+    {
+        return evictions.sum();
+    }
+
+    /**
+     * @returns   hits / (hits + misses), or 0 if nothing was looked up yet.
+     */
+    public double getHitRate()
+    {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+}
@@ -0,0 +1,407 @@
+package backend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.DecimalFormatSymbols;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <b>RouteResult</b> is an <b>immutable</b> route found by CampusGraph: the
+ * printed names of its ends, its total distance and one Step for every
+ * walkway along it. Rendering is a separate stage that streams the route
+ * into any Appendable, as the directions findPath has always printed or as
+ * JSON, so a caller can reuse one StringBuilder or write straight to a
+ * Writer.
+ */
+public final class RouteResult
+{
+    /**
+     * One walkway of a route, from the node before it to node.
+     */
+    public static final class Step
+    {
+        private final Coordinate node;
+        private final Direction direction;
+        private final double length;
+        private final double distance;
+
+        Step(Coordinate node, Direction direction, double length, double distance)
+        {
+            this.node = node;
+            this.direction = direction;
+            this.length = length;
+            this.distance = distance;
+        }
+
+        /**
+         * @returns   the id of the node this step walks to.
+         */
+        public String getId()
+        {
+            return node.getId();
+        }
+
+        /**
+         * @returns   the printed name of the node this step walks to, its
+         *            building name or "Intersection id".
+         */
+        public String getName()
+        {
+            return node.printName();
+        }
+
+        public Direction getDirection()
+        {
+            return direction;
+        }
+
+        /**
+         * @returns   the length of this walkway.
+         */
+        public double getLength()
+        {
+            return length;
+        }
+
+        /**
+         * @returns   the distance walked from the start of the route to the
+         *            end of this step.
+         */
+        public double getDistance()
+        {
+            return distance;
+        }
+    }
+
+    private static final int[] NO_PATH = new int[0];
+
+    // the node indices of the route in the map it was found on, kept for
+    // the route cache to tell which routes a live edit affects
+    final int[] path;
+    private final String from;
+    private final String to;
+    private final double distance;
+    private final Coordinate[] nodes;
+    private final Direction[] directions;
+    private final double[] lengths;
+    // the distance walked to the end of every step
+    private final double[] distances;
+
+    private RouteResult(int[] path, String from, String to, double distance,
+                        Coordinate[] nodes, Direction[] directions, double[] lengths)
+    {
+        this.path = path;
+        this.from = from;
+        this.to = to;
+        this.distance = distance;
+        this.nodes = nodes;
+        this.directions = directions;
+        this.lengths = lengths;
+        distances = new double[lengths.length];
+        double sum = 0;
+        for(int i = 0; i < lengths.length; i++)
+            distances[i] = sum += lengths[i];
+    }
+
+    /**
+     * @param: map       The map the route was found on.
+     * @param: path      The node indices of the route, source first.
+     * @param: distance  The length of the route as the search added it up.
+     * @param: from      The printed name of the source.
+     * @param: to        The printed name of the target.
+     * @returns   the route along path.
+     */
+    static RouteResult of(CampusMap map, int[] path, double distance, String from, String to)
+    {
+        int steps = Math.max(0, path.length - 1);
+        Coordinate[] nodes = new Coordinate[steps];
+        Direction[] directions = new Direction[steps];
+        double[] lengths = new double[steps];
+        CompactGraph<String> graph = map.graph;
+        for(int i = 0; i < steps; i++)
+        {
+            int e = graph.findEdge(path[i], path[i + 1]);
+            nodes[i] = map.coordinate(path[i + 1]);
+            directions[i] = map.direction(e);
+            lengths[i] = graph.weight(e);
+        }
+        return new RouteResult(path, from, to, distance, nodes, directions, lengths);
+    }
+
+    /**
+     * @param: from  The printed name of the source.
+     * @param: to    The printed name of the target.
+     * @returns   the result of a search that found no path from the source
+     *            to the target.
+     */
+    static RouteResult noPath(String from, String to)
+    {
+        return new RouteResult(NO_PATH, from, to, Double.POSITIVE_INFINITY,
+                new Coordinate[0], new Direction[0], new double[0]);
+    }
+
+    /**
+     * @returns   the printed name of the start of the route.
+     */
+    public String getFrom()
+    {
+        return from;
+    }
+
+    /**
+     * @returns   the printed name of the end of the route.
+     */
+    public String getTo()
+    {
+        return to;
+    }
+
+    /**
+     * @returns   true if a path was found.
+     */
+    public boolean isFound()
+    {
+        return distance != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @returns   the length of the route, or positive infinity if no path
+     *            was found. It is added up in the order the search ran, so
+     *            it may differ in its last bits from the distance of the
+     *            last step.
+     */
+    public double getDistance()
+    {
+        return distance;
+    }
+
+    /**
+     * @returns   the steps of the route, in order; empty if no path was
+     *            found or the route starts where it ends.
+     */
+    public List<Step> getSteps()
+    {
+        return new AbstractList<Step>()
+        {
+            @Override
+            public Step get(int i)
+            {
+                return new Step(nodes[i], directions[i], lengths[i], distances[i]);
+            }
+
+            @Override
+            public int size()
+            {
+                return nodes.length;
+            }
+        };
+    }
+
+    /**
+     * @param: out  Where to write the directions.
+     * @effects   Appends the directions of this route to out, byte for
+     *            byte as findPath returns them.
+     * @returns   out
+     * @throws    IOException if out does.
+     */
+    public <A extends Appendable> A appendText(A out) throws IOException
+    {
+        if(!isFound())
+        {
+            out.append("There is no path from ").append(from).append(" to ").append(to).append(".\n");
+            return out;
+        }
+        out.append("Path from ").append(from).append(" to ").append(to).append(":\n");
+        for(int i = 0; i < nodes.length; i++)
+        {
+            out.append("\tWalk ").append(directions[i].label()).append(" to (");
+            appendName(out, nodes[i]);
+            out.append(")\n");
+        }
+        out.append("Total distance: ");
+        appendFixed3(out, distance);
+        out.append(" pixel units.\n");
+        return out;
+    }
+
+    /**
+     * @returns   the directions of this route as findPath returns them.
+     */
+    public String toText()
+    {
+        try
+        {
+            return appendText(new StringBuilder(64 + 48 * nodes.length)).toString();
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param: out  Where to write the route.
+     * @effects   Appends this route to out as one JSON object:
+     *            {"from":..,"to":..,"found":..,"distance":..,"steps":[..]},
+     *            with every step as {"id":..,"name":..,"direction":..,
+     *            "length":..,"distance":..}. The distance of a route with
+     *            no path is null.
+     * @returns   out
+     * @throws    IOException if out does.
+     */
+    public <A extends Appendable> A appendJson(A out) throws IOException
+    {
+        out.append("{\"from\":");
+        appendJsonString(out, from);
+        out.append(",\"to\":");
+        appendJsonString(out, to);
+        out.append(",\"found\":").append(isFound() ? "true" : "false");
+        out.append(",\"distance\":");
+        appendJsonNumber(out, distance);
+        out.append(",\"steps\":[");
+        for(int i = 0; i < nodes.length; i++)
+        {
+            out.append(i == 0 ? "{\"id\":" : ",{\"id\":");
+            appendJsonString(out, nodes[i].getId());
+            out.append(",\"name\":");
+            appendJsonString(out, nodes[i].printName());
+            out.append(",\"direction\":\"").append(directions[i].label());
+            out.append("\",\"length\":");
+            appendJsonNumber(out, lengths[i]);
+            out.append(",\"distance\":");
+            appendJsonNumber(out, distances[i]);
+            out.append('}');
+        }
+        out.append("]}");
+        return out;
+    }
+
+    /**
+     * @returns   this route as a JSON object, as appendJson writes it.
+     */
+    public String toJson()
+    {
+        try
+        {
+            return appendJson(new StringBuilder(96 + 96 * nodes.length)).toString();
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // appends node.printName() without building it
+    private static void appendName(Appendable out, Coordinate node) throws IOException
+    {
+        if(node.getName().isEmpty())
+            out.append("Intersection ").append(node.getId());
+        else
+            out.append(node.getName());
+    }
+
+    /**
+     * @effects   Appends s to out as a quoted JSON string.
+     */
+    static void appendJsonString(Appendable out, String s) throws IOException
+    {
+        out.append('"');
+        int start = 0;
+        for(int i = 0; i < s.length(); i++)
+        {
+            char c = s.charAt(i);
+            if(c >= 0x20 && c != '"' && c != '\\')
+                continue;
+            out.append(s, start, i);
+            switch(c)
+            {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    out.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 15, 16));
+            }
+            start = i + 1;
+        }
+        out.append(s, start, s.length()).append('"');
+    }
+
+    /**
+     * @effects   Appends value to out as a JSON number, or null if it is
+     *            not finite.
+     */
+    static void appendJsonNumber(Appendable out, double value) throws IOException
+    {
+        if(Double.isFinite(value))
+            out.append(Double.toString(value));
+        else
+            out.append("null");
+    }
+
+    // the locale "%.3f" was last checked against, and whether it writes
+    // numbers with plain digits and a '.'
+    private static volatile Locale plainLocale;
+    private static volatile boolean plainDigits;
+
+    /**
+     * @effects   Appends value to out as String.format("%.3f", value) does.
+     *            Formatter rounds the shortest decimal string of value half
+     *            up, so that string is rounded here the same way, without
+     *            parsing a format or building a Formatter.
+     */
+    static void appendFixed3(Appendable out, double value) throws IOException
+    {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        if(locale != plainLocale)
+        {
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+            plainDigits = symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.';
+            plainLocale = locale;
+        }
+        String digits = Double.toString(value);
+        int point = digits.indexOf('.');
+        // Double.toString writes values below 1e-3 or from 1e7 up with an exponent
+        if(!plainDigits || point < 0 || digits.indexOf('E') >= 0)
+        {
+            out.append(String.format("%.3f", value));
+            return;
+        }
+        int decimals = digits.length() - point - 1;
+        if(decimals <= 3)
+        {
+            out.append(digits);
+            for(int i = decimals; i < 3; i++)
+                out.append('0');
+            return;
+        }
+        char[] kept = digits.substring(0, point + 4).toCharArray();
+        if(digits.charAt(point + 4) >= '5')
+        {
+            int i = kept.length - 1;
+            for(; i >= 0; i--)
+            {
+                if(kept[i] == '.')
+                    continue;
+                if(kept[i] == '-' || kept[i] != '9')
+                    break;
+                kept[i] = '0';
+            }
+            if(i >= 0 && kept[i] != '-')
+            {
+                kept[i]++;
+            }
+            else
+            {
+                // every digit was a 9: one more digit in front
+                int sign = i < 0 ? 0 : 1;
+                out.append(new String(kept, 0, sign)).append('1').append(new String(kept, sign, kept.length - sign));
+                return;
+            }
+        }
+        out.append(new String(kept));
+    }
+}
@@ -0,0 +1,471 @@
+package backend;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <b>RouteServer</b> answers route queries for a CampusGraph over HTTP in
+ * the same process, so clients no longer queue up behind one console:
+ *   GET /route?from=..&to=..[&mode=..][&profile=..][&format=text]
+ *       the route between two buildings as RouteResult JSON, or as the
+ *       findPath text, under a RoutingProfile, SHORTEST by default;
+ *       x1, y1, x2, y2 instead of from and to snap two points to their
+ *       nearest nodes;
+ *   GET /alternatives?from=..&to=..[&k=..][&profile=..]
+ *       {"from":..,"to":..,"routes":[..]} with up to k (3 by default, at
+ *       most 10) meaningfully different routes as findAlternatives finds
+ *       them, best first, each as RouteResult JSON;
+ *   GET /distances?from=..&to=..&to=..
+ *       {"from":..,"distances":[..]} from one building to every to, in
+ *       order, null where there is no path;
+ *   GET /reachable?from=..[&from=..]&radius=..[&profile=..]
+ *       {"areas":[..]} with everything within radius of every from, in
+ *       order, each as Isochrone JSON;
+ *   GET /buildings[?q=..&limit=..]
+ *       [{"name":..,"id":..},..] for every building, or for the first
+ *       limit (10 by default, at most 1000) that findBuildings finds for q;
+ *   GET /metrics
+ *       the query metrics of the graph as QueryMetrics JSON;
+ *   GET /quality
+ *       the connectivity of the map as MapQuality JSON.
+ * Responses are streamed as they are written, and connections are kept
+ * alive between requests. Handlers run on a fixed pool of worker threads
+ * with a bounded queue of waiting exchanges. Once both are full the pool
+ * hands the exchange back to the accepting thread, which answers 503 with
+ * Retry-After and closes the connection without running a query, so
+ * overload sheds requests at once instead of queueing them without bound.
+ * Errors are JSON {"error":..}: 400 for a malformed query, 404 for an
+ * unknown building or path, 405 for anything but GET, 409 if the mode
+ * needs a search structure that has not been built, 500 for anything else
+ * that fails before the response has started.
+ */
+public final class RouteServer
+{
+    // the most buildings one /buildings search returns
+    private static final int MAX_LIMIT = 1000;
+
+    static
+    {
+        // the JDK server reads this once; without it a streamed response
+        // stalls on Nagle's algorithm against the client's delayed ack
+        if(System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private interface Endpoint
+    {
+        void answer(Map<String,List<String>> query, HttpExchange exchange) throws IOException;
+    }
+
+    // a thread of the pool; an exchange running on any other thread is one
+    // the full pool handed back to the accepting thread
+    private static final class Worker extends Thread
+    {
+        Worker(Runnable task, String name)
+        {
+            super(task, name);
+        }
+    }
+
+    private final CampusGraph graph;
+    private final SearchMode mode;
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+    private final LongAdder served = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param: graph    The populated campus graph to serve.
+     * @param: mode     The search mode of routes that name none.
+     * @param: address  The address to listen on; port 0 picks a free port.
+     * @param: threads  The number of requests handled at once.
+     * @param: queued   The number of requests waiting for a worker before
+     *                  more are turned away.
+     * @throws    IllegalArgumentException if threads is not positive or
+     *            queued is negative.
+     * @throws    IOException if address cannot be bound.
+     */
+    public RouteServer(CampusGraph graph, SearchMode mode, InetSocketAddress address, int threads, int queued)
+            throws IOException
+    {
+        if(threads <= 0)
+            throw new IllegalArgumentException("threads should be positive");
+        if(queued < 0)
+            throw new IllegalArgumentException("queued should not be negative");
+        this.graph = graph;
+        this.mode = mode;
+        BlockingQueue<Runnable> queue = queued == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queued);
+        AtomicInteger count = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, task -> {
+            Thread thread = new Worker(task, "route-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        server = HttpServer.create(address, threads + queued);
+        server.setExecutor(workers);
+        server.createContext("/route", exchange -> serve(exchange, this::route));
+        server.createContext("/alternatives", exchange -> serve(exchange, this::alternatives));
+        server.createContext("/distances", exchange -> serve(exchange, this::distances));
+        server.createContext("/reachable", exchange -> serve(exchange, this::reachable));
+        server.createContext("/buildings", exchange -> serve(exchange, this::buildings));
+        server.createContext("/metrics", exchange -> serve(exchange, this::metrics));
+        server.createContext("/quality", exchange -> serve(exchange, this::quality));
+    }
+
+    /**
+     * @effects   Starts accepting requests in the background.
+     */
+    public void start()
+    {
+        server.start();
+    }
+
+    /**
+     * @param: delaySeconds  The longest time to wait for requests in
+     *                       progress to finish.
+     * @effects   Stops accepting requests, then stops the workers.
+     */
+    public void stop(int delaySeconds)
+    {
+        server.stop(delaySeconds);
+        workers.shutdown();
+    }
+
+    /**
+     * @returns   the port the server listens on.
+     */
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @returns   the number of requests an endpoint answered, errors
+     *            included.
+     */
+    public long getServed()
+    {
+        return served.sum();
+    }
+
+    /**
+     * @returns   the number of requests turned away with 503.
+     */
+    public long getRejected()
+    {
+        return rejected.sum();
+    }
+
+    private void serve(HttpExchange exchange, Endpoint endpoint) throws IOException
+    {
+        try
+        {
+            if(!(Thread.currentThread() instanceof Worker))
+            {
+                // the body is left unread, so the connection cannot be reused
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.getResponseHeaders().set("Connection", "close");
+                error(exchange, 503, "too many requests in progress");
+                return;
+            }
+            // a connection is only reused once its request has been read
+            exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+            if(!exchange.getRequestMethod().equals("GET"))
+            {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                error(exchange, 405, "only GET is supported");
+                return;
+            }
+            try
+            {
+                endpoint.answer(query(exchange.getRequestURI()), exchange);
+            }
+            catch(IllegalArgumentException e)
+            {
+                String message = String.valueOf(e.getMessage());
+                error(exchange, message.startsWith("Unknown building") ? 404 : 400, message);
+            }
+            catch(IllegalStateException e)
+            {
+                error(exchange, 409, e.getMessage());
+            }
+            catch(RuntimeException | Error e)
+            {
+                // once the headers are out the response can only be cut short
+                if(exchange.getResponseCode() >= 0)
+                    return;
+                error(exchange, 500, "internal error");
+            }
+            served.increment();
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    private void route(Map<String,List<String>> query, HttpExchange exchange) throws IOException
+    {
+        SearchMode searchMode = constant(query, "mode", SearchMode.class, mode);
+        RoutingProfile profile = constant(query, "profile", RoutingProfile.class, RoutingProfile.SHORTEST);
+        RouteResult route;
+        if(query.containsKey("from") || !query.containsKey("x1"))
+            route = graph.findRoute(single(query, "from"), single(query, "to"), searchMode, profile);
+        else
+            route = graph.findRoute(coordinate(query, "x1"), coordinate(query, "y1"), coordinate(query, "x2"),
+                    coordinate(query, "y2"), searchMode, profile);
+        boolean text = query.containsKey("format") && single(query, "format").equals("text");
+        try(Writer out = open(exchange, route.isFound() ? 200 : 404,
+                text ? "text/plain; charset=utf-8" : "application/json; charset=utf-8"))
+        {
+            if(text)
+                route.appendText(out);
+            else
+                route.appendJson(out);
+        }
+    }
+
+    private void alternatives(Map<String,List<String>> query, HttpExchange exchange) throws IOException
+    {
+        String from = single(query, "from");
+        String to = single(query, "to");
+        int k = integer(query, "k", 3, 1, AlternativeRoutes.MAX_ROUTES);
+        RoutingProfile profile = constant(query, "profile", RoutingProfile.class, RoutingProfile.SHORTEST);
+        List<RouteResult> routes = graph.findAlternatives(from, to, k, profile);
+        try(Writer out = open(exchange, routes.isEmpty() ? 404 : 200, "application/json; charset=utf-8"))
+        {
+            out.write("{\"from\":");
+            RouteResult.appendJsonString(out, from);
+            out.write(",\"to\":");
+            RouteResult.appendJsonString(out, to);
+            out.write(",\"routes\":[");
+            for(int i = 0; i < routes.size(); i++)
+            {
+                if(i > 0)
+                    out.write(',');
+                routes.get(i).appendJson(out);
+            }
+            out.write("]}");
+        }
+    }
+
+    private void distances(Map<String,List<String>> query, HttpExchange exchange) throws IOException
+    {
+        String from = single(query, "from");
+        List<String> to = query.getOrDefault("to", Collections.emptyList());
+        double[] distances = graph.distancesFrom(from, to.toArray(new String[0]));
+        try(Writer out = open(exchange, 200, "application/json; charset=utf-8"))
+        {
+            out.write("{\"from\":");
+            RouteResult.appendJsonString(out, from);
+            out.write(",\"distances\":[");
+            for(int i = 0; i < distances.length; i++)
+            {
+                if(i > 0)
+                    out.write(',');
+                RouteResult.appendJsonNumber(out, distances[i]);
+            }
+            out.write("]}");
+        }
+    }
+
+    private void reachable(Map<String,List<String>> query, HttpExchange exchange) throws IOException
+    {
+        List<String> from = query.getOrDefault("from", Collections.emptyList());
+        double radius = number(query, "radius");
+        RoutingProfile profile = constant(query, "profile", RoutingProfile.class, RoutingProfile.SHORTEST);
+        List<Isochrone> areas = graph.reachableWithin(from.toArray(new String[0]), radius, profile);
+        try(Writer out = open(exchange, 200, "application/json; charset=utf-8"))
+        {
+            out.write("{\"areas\":[");
+            for(int i = 0; i < areas.size(); i++)
+            {
+                if(i > 0)
+                    out.write(',');
+                areas.get(i).appendJson(out);
+            }
+            out.write("]}");
+        }
+    }
+
+    private void buildings(Map<String,List<String>> query, HttpExchange exchange) throws IOException
+    {
+        if(query.containsKey("q"))
+        {
+            int limit = integer(query, "limit", 10, 1, MAX_LIMIT);
+            String[] ids = graph.findBuildings(single(query, "q"), limit);
+            try(Writer out = open(exchange, 200, "application/json; charset=utf-8"))
+            {
+                out.write('[');
+                for(int i = 0; i < ids.length; i++)
+                    building(out, i, graph.buildingName(ids[i]), ids[i]);
+                out.write(']');
+            }
+            return;
+        }
+        Iterator<String> lines = graph.listAllBuildings();
+        try(Writer out = open(exchange, 200, "application/json; charset=utf-8"))
+        {
+            out.write('[');
+            for(int i = 0; lines.hasNext(); i++)
+            {
+                String line = lines.next();
+                int comma = line.lastIndexOf(',');
+                building(out, i, line.substring(0, comma), line.substring(comma + 1));
+            }
+            out.write(']');
+        }
+    }
+
+    private void metrics(Map<String,List<String>> query, HttpExchange exchange) throws IOException
+    {
+        try(Writer out = open(exchange, 200, "application/json; charset=utf-8"))
+        {
+            graph.getMetrics().appendJson(out);
+        }
+    }
+
+    private void quality(Map<String,List<String>> query, HttpExchange exchange) throws IOException
+    {
+        try(Writer out = open(exchange, 200, "application/json; charset=utf-8"))
+        {
+            graph.getMapQuality().appendJson(out);
+        }
+    }
+
+    private static void building(Writer out, int i, String name, String id) throws IOException
+    {
+        out.write(i == 0 ? "{\"name\":" : ",{\"name\":");
+        RouteResult.appendJsonString(out, name);
+        out.write(",\"id\":");
+        RouteResult.appendJsonString(out, id);
+        out.write('}');
+    }
+
+    // sends the headers of a response whose body is streamed in chunks
+    private static Writer open(HttpExchange exchange, int status, String contentType) throws IOException
+    {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, 0);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 8192);
+    }
+
+    private static void error(HttpExchange exchange, int status, String message) throws IOException
+    {
+        StringBuilder body = new StringBuilder("{\"error\":");
+        RouteResult.appendJsonString(body, message);
+        byte[] bytes = body.append("}").toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static Map<String,List<String>> query(URI uri)
+    {
+        HashMap<String,List<String>> query = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if(raw == null || raw.isEmpty())
+            return query;
+        for(String pair: raw.split("&"))
+        {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            query.computeIfAbsent(name, n -> new ArrayList<>()).add(value);
+        }
+        return query;
+    }
+
+    private static String single(Map<String,List<String>> query, String name)
+    {
+        List<String> values = query.get(name);
+        if(values == null)
+            throw new IllegalArgumentException("missing parameter: " + name);
+        if(values.size() > 1)
+            throw new IllegalArgumentException("repeated parameter: " + name);
+        return values.get(0);
+    }
+
+    // the constant named by parameter name in any case, or fallback if there is none
+    private static <E extends Enum<E>> E constant(Map<String,List<String>> query, String name, Class<E> type,
+                                                  E fallback)
+    {
+        if(!query.containsKey(name))
+            return fallback;
+        String value = single(query, name);
+        try
+        {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        }
+        catch(IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("unknown " + name + ": [" + value + "]");
+        }
+    }
+
+    // the whole number of parameter name, or fallback if there is none
+    private static int integer(Map<String,List<String>> query, String name, int fallback, int min, int max)
+    {
+        if(!query.containsKey(name))
+            return fallback;
+        String value = single(query, name);
+        int number;
+        try
+        {
+            number = Integer.parseInt(value);
+        }
+        catch(NumberFormatException e)
+        {
+            throw new IllegalArgumentException("parameter " + name + " is not a whole number: [" + value + "]");
+        }
+        if(number < min || number > max)
+            throw new IllegalArgumentException("parameter " + name + " should be between " + min + " and " + max);
+        return number;
+    }
+
+    private static double coordinate(Map<String,List<String>> query, String name)
+    {
+        double number = number(query, name);
+        if(!Double.isFinite(number))
+            throw new IllegalArgumentException("parameter " + name + " should be a finite number");
+        return number;
+    }
+
+    private static double number(Map<String,List<String>> query, String name)
+    {
+        String value = single(query, name);
+        try
+        {
+            return Double.parseDouble(value);
+        }
+        catch(NumberFormatException e)
+        {
+            throw new IllegalArgumentException("parameter " + name + " is not a number: [" + value + "]");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package backend;
+
+/**
+ * <b>RoutingProfile</b> selects what CampusGraph.findPath minimizes. Each
+ * profile scales the length of every walkway by a factor that depends only
+ * on its EdgeAttributes; when a map is loaded every profile gets its own
+ * weight array, parallel to the arcs, so a search reads its weights from
+ * one array and never looks at attributes. Factors are at least 1, so the
+ * straight-line distance stays an admissible A* heuristic; a walkway a
+ * profile cannot use costs Double.POSITIVE_INFINITY. Lengths and totals in
+ * routes are always the walking distance.
+ */
+public enum RoutingProfile
+{
+    /** The shortest walk, whatever the walkways are like. */
+    SHORTEST,
+    /** No stairs; steep walkways count twice their length. */
+    ACCESSIBLE,
+    /** Walkways neither indoor nor covered count three times their length. */
+    SHELTERED;
+
+    private static final int SETS = 1 << EdgeAttribute.values().length;
+
+    /**
+     * @param: attributes  A set of EdgeAttribute bits.
+     * @returns   what this profile multiplies the length of a walkway with
+     *            those attributes by.
+     */
+    double factor(int attributes)
+    {
+        switch(this)
+        {
+            case ACCESSIBLE:
+                if((attributes & EdgeAttribute.STAIRS.bit()) != 0)
+                    return Double.POSITIVE_INFINITY;
+                return (attributes & EdgeAttribute.STEEP.bit()) != 0 ? 2.0 : 1.0;
+            case SHELTERED:
+                return (attributes & (EdgeAttribute.INDOOR.bit() | EdgeAttribute.COVERED.bit())) != 0 ? 1.0 : 3.0;
+            default:
+                return 1.0;
+        }
+    }
+
+    /**
+     * @param: weights     The length of every arc of a graph.
+     * @param: attributes  The attribute bits of every arc, or null if no arc
+     *                     has any.
+     * @returns   the weight of every arc under this profile. Weights is
+     *            returned itself for SHORTEST and for a map without
+     *            attributes, where every profile finds the shortest routes.
+     */
+    double[] layer(double[] weights, byte[] attributes)
+    {
+        if(this == SHORTEST || attributes == null)
+            return weights;
+        double[] factors = new double[SETS];
+        for(int set = 0; set < SETS; set++)
+            factors[set] = factor(set);
+        double[] layer = new double[weights.length];
+        for(int e = 0; e < weights.length; e++)
+            layer[e] = weights[e] * factors[attributes[e]];
+        return layer;
+    }
+}
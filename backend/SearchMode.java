@@ -0,0 +1,21 @@
+package backend;
+
+/**
+ * <b>SearchMode</b> selects the shortest-path algorithm used by
+ * CampusGraph.findPath. All modes return paths of the same length.
+ */
+public enum SearchMode
+{
+    /** Plain Dijkstra, expanding nodes in order of distance from the source. */
+    DIJKSTRA,
+    /** A* guided by the straight-line distance to the target. */
+    ASTAR,
+    /** A* run from both ends at once, meeting in the middle. */
+    BIDIRECTIONAL_ASTAR,
+    /** Bidirectional upward search over a prebuilt ContractionHierarchy;
+        see CampusGraph.createHierarchy and CampusGraph.loadHierarchy. */
+    CONTRACTION_HIERARCHY,
+    /** A walk along the precomputed all-pairs building table, with no search;
+        see CampusGraph.createBuildingTable. */
+    BUILDING_TABLE
+}
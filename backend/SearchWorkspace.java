@@ -0,0 +1,248 @@
+package backend;
+
+import java.util.Arrays;
+
+/**
+ * <b>SearchWorkspace</b> holds the per-query state of a primitive shortest
+ * path search: tentative distances, predecessors and the heap. Entries are
+ * valid only when their stamp equals the current generation, so starting a
+ * new query costs O(1) plus the size of the heap left over from the previous
+ * one instead of refilling arrays sized to the whole graph.
+ * A workspace is not thread-safe; use {@link #forThread(int)} to get one per
+ * thread.
+ */
+public final class SearchWorkspace
+{
+    private static final ThreadLocal<SearchWorkspace> LOCAL = new ThreadLocal<>();
+
+    final double[] distance;
+    final int[] predecessor;
+    private final int[] stamp;
+    private int generation;
+    final IndexedHeap heap;
+    int settled;
+    // the arcs scanned from settled nodes, and the labels they improved,
+    // each improvement a push or a decrease-key on the heap
+    int relaxed;
+    int updated;
+    int meeting;
+    private SearchWorkspace backward;
+    private final int[] path;
+
+    /**
+     * @param: size  The number of nodes of the graphs this workspace serves.
+     * @effects   Constructs a workspace for graphs with at most size nodes.
+     */
+    public SearchWorkspace(int size)
+    {
+        distance = new double[size];
+        predecessor = new int[size];
+        stamp = new int[size];
+        heap = new IndexedHeap(size);
+        path = new int[size];
+        meeting = -1;
+    }
+
+    /**
+     * @param: size  The number of nodes of the graph to be searched.
+     * @returns   The calling thread's workspace, replaced by a larger one if
+     *            it cannot hold size nodes.
+     */
+    public static SearchWorkspace forThread(int size)
+    {
+        SearchWorkspace workspace = LOCAL.get();
+        if(workspace == null || workspace.capacity() < size)
+        {
+            workspace = new SearchWorkspace(size);
+            LOCAL.set(workspace);
+        }
+        return workspace;
+    }
+
+    /**
+     * @returns   the number of nodes this workspace can hold.
+     */
+    public int capacity()
+    {
+        return stamp.length;
+    }
+
+    /**
+     * @effects   Forgets every distance and predecessor of the last query.
+     */
+    void reset()
+    {
+        heap.clear();
+        settled = 0;
+        relaxed = 0;
+        updated = 0;
+        meeting = -1;
+        // a search that leaves the backward half alone must not count it
+        if(backward != null)
+        {
+            backward.settled = 0;
+            backward.relaxed = 0;
+            backward.updated = 0;
+        }
+        if(++generation == 0)
+        {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * @effects   Records distance d and predecessor p for node v.
+     */
+    void set(int v, double d, int p)
+    {
+        stamp[v] = generation;
+        distance[v] = d;
+        predecessor[v] = p;
+    }
+
+    /**
+     * @returns   true if node v was reached by the last query.
+     */
+    public boolean reached(int v)
+    {
+        return stamp[v] == generation;
+    }
+
+    /**
+     * @returns   true if the shortest distance to v is final.
+     */
+    public boolean isSettled(int v)
+    {
+        return stamp[v] == generation && !heap.contains(v);
+    }
+
+    /**
+     * @returns   the tentative distance to v, or positive infinity if v was
+     *            not reached by the last query.
+     */
+    public double distance(int v)
+    {
+        return stamp[v] == generation ? distance[v] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @requires  reached(v)
+     * @returns   the node before v on its shortest path, or -1 for the source.
+     */
+    public int predecessor(int v)
+    {
+        return predecessor[v];
+    }
+
+    /**
+     * @returns   the number of nodes settled by the last query, counting
+     *            both directions of a bidirectional search.
+     */
+    public int settledCount()
+    {
+        return backward == null ? settled : settled + backward.settled;
+    }
+
+    /**
+     * @returns   the number of arcs scanned by the last query, counting both
+     *            directions of a bidirectional search.
+     */
+    public int relaxedCount()
+    {
+        return backward == null ? relaxed : relaxed + backward.relaxed;
+    }
+
+    /**
+     * @returns   the number of heap pushes of the last query, decrease-keys
+     *            included, counting both directions.
+     */
+    public int pushCount()
+    {
+        return backward == null ? updated : updated + backward.updated;
+    }
+
+    /**
+     * @returns   the number of pushes of the last query that lowered the
+     *            key of a node already on the heap. The heap is indexed, so
+     *            these take the place of the stale entries a heap without
+     *            decrease-key would push and later skip.
+     */
+    public int decreaseCount()
+    {
+        return backward == null ? decreases() : decreases() + backward.decreases();
+    }
+
+    // every node reached is settled or still queued, and every node but
+    // the source was pushed once before any decrease-key
+    private int decreases()
+    {
+        return settled == 0 ? 0 : updated - (settled + heap.size() - 1);
+    }
+
+    /**
+     * @returns   the workspace used by the backward half of a bidirectional
+     *            search started on this workspace; created on first use.
+     */
+    SearchWorkspace backward()
+    {
+        if(backward == null)
+            backward = new SearchWorkspace(capacity());
+        return backward;
+    }
+
+    /**
+     * @param: target  The destination of the last query.
+     * @requires  distance(target) is finite
+     * @effects   Stores the node indices of the shortest path of the last
+     *            query, from its source to target, in this workspace.
+     *            For a bidirectional search the two halves are joined at
+     *            the node where the searches met.
+     * @returns   the number of nodes on the path, both endpoints included.
+     */
+    public int tracePath(int target)
+    {
+        int length = 0;
+        int curr = meeting >= 0 ? meeting : target;
+        while(curr >= 0)
+        {
+            path[length++] = curr;
+            curr = predecessor[curr];
+        }
+        for(int i = 0, j = length - 1; i < j; i++, j--)
+        {
+            int swap = path[i];
+            path[i] = path[j];
+            path[j] = swap;
+        }
+        if(meeting >= 0)
+        {
+            curr = backward.predecessor[meeting];
+            while(curr >= 0)
+            {
+                path[length++] = curr;
+                curr = backward.predecessor[curr];
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @returns   the buffer that tracePath fills, for searches that rewrite
+     *            the traced path in place.
+     */
+    int[] path()
+    {
+        return path;
+    }
+
+    /**
+     * @param: i  A position on the traced path.
+     * @requires  0 <= i < the value returned by the last tracePath
+     * @returns   the index of the i-th node on the traced path.
+     */
+    public int pathNode(int i)
+    {
+        return path[i];
+    }
+}
@@ -0,0 +1,363 @@
+package backend;
+
+import java.util.Arrays;
+
+/**
+ * <b>SpatialIndex</b> is an <b>immutable</b> k-d tree over the positions of
+ * the nodes of a map, answering nearest, k-nearest and radius queries in
+ * logarithmic time instead of a scan over every coordinate.
+ * The tree is implicit: the nodes are permuted so that the median of every
+ * range [lo, hi) sits at its middle and splits the range along the axis of
+ * larger spread, with small ranges left as unsorted leaves. Coordinates are
+ * copied in tree order so a query walks contiguous memory.
+ * Distances are compared squared; ties go to the smaller node index, so
+ * every query returns the same nodes however the tree was built.
+ */
+final class SpatialIndex
+{
+    private static final int LEAF = 8;
+
+    // node[i] is the node index at tree position i, at (x[i], y[i])
+    private final int[] node;
+    private final double[] x;
+    private final double[] y;
+    // the split axis of the range whose middle is i: 0 for x, 1 for y
+    private final byte[] axis;
+
+    private SpatialIndex(int[] node, double[] x, double[] y, byte[] axis)
+    {
+        this.node = node;
+        this.x = x;
+        this.y = y;
+        this.axis = axis;
+    }
+
+    /**
+     * @param: xs  The x coordinate of every node, by node index.
+     * @param: ys  The y coordinate of every node, by node index.
+     * @param: n   The number of nodes to index: nodes 0 to n - 1.
+     * @returns   an index over the first n nodes.
+     */
+    static SpatialIndex build(double[] xs, double[] ys, int n)
+    {
+        int[] node = new int[n];
+        for(int i = 0; i < n; i++)
+            node[i] = i;
+        byte[] axis = new byte[n];
+        split(node, xs, ys, axis, 0, n);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for(int i = 0; i < n; i++)
+        {
+            x[i] = xs[node[i]];
+            y[i] = ys[node[i]];
+        }
+        return new SpatialIndex(node, x, y, axis);
+    }
+
+    private static void split(int[] node, double[] xs, double[] ys, byte[] axis, int lo, int hi)
+    {
+        while(hi - lo > LEAF)
+        {
+            double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for(int i = lo; i < hi; i++)
+            {
+                minX = Math.min(minX, xs[node[i]]);
+                maxX = Math.max(maxX, xs[node[i]]);
+                minY = Math.min(minY, ys[node[i]]);
+                maxY = Math.max(maxY, ys[node[i]]);
+            }
+            int mid = (lo + hi) >>> 1;
+            double[] key = maxX - minX >= maxY - minY ? xs : ys;
+            axis[mid] = (byte) (key == xs ? 0 : 1);
+            select(node, key, lo, hi - 1, mid);
+            split(node, xs, ys, axis, lo, mid);
+            lo = mid + 1;
+        }
+    }
+
+    // rearranges node[lo..hi] so that node[k] has the k-th smallest key,
+    // with no larger key before it and no smaller key after it
+    private static void select(int[] node, double[] key, int lo, int hi, int k)
+    {
+        while(lo < hi)
+        {
+            double pivot = key[node[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while(i <= j)
+            {
+                while(key[node[i]] < pivot)
+                    i++;
+                while(key[node[j]] > pivot)
+                    j--;
+                if(i <= j)
+                {
+                    int t = node[i];
+                    node[i++] = node[j];
+                    node[j--] = t;
+                }
+            }
+            if(k <= j)
+                hi = j;
+            else if(k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    /**
+     * @returns   the number of indexed nodes.
+     */
+    int size()
+    {
+        return node.length;
+    }
+
+    /**
+     * @returns   the indexed node nearest to (qx, qy), or -1 if the index
+     *            is empty.
+     */
+    int nearest(double qx, double qy)
+    {
+        int[] best = {-1};
+        double[] bestDistance = {Double.POSITIVE_INFINITY};
+        nearest(qx, qy, 0, node.length, best, bestDistance);
+        return best[0];
+    }
+
+    private void nearest(double qx, double qy, int lo, int hi, int[] best, double[] bestDistance)
+    {
+        if(hi - lo <= LEAF)
+        {
+            for(int i = lo; i < hi; i++)
+            {
+                double d = squared(qx - x[i], qy - y[i]);
+                if(closer(d, node[i], bestDistance[0], best[0]))
+                {
+                    bestDistance[0] = d;
+                    best[0] = node[i];
+                }
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double d = squared(qx - x[mid], qy - y[mid]);
+        if(closer(d, node[mid], bestDistance[0], best[0]))
+        {
+            bestDistance[0] = d;
+            best[0] = node[mid];
+        }
+        double diff = axis[mid] == 0 ? qx - x[mid] : qy - y[mid];
+        if(diff < 0)
+        {
+            nearest(qx, qy, lo, mid, best, bestDistance);
+            if(diff * diff <= bestDistance[0])
+                nearest(qx, qy, mid + 1, hi, best, bestDistance);
+        }
+        else
+        {
+            nearest(qx, qy, mid + 1, hi, best, bestDistance);
+            if(diff * diff <= bestDistance[0])
+                nearest(qx, qy, lo, mid, best, bestDistance);
+        }
+    }
+
+    /**
+     * @param: k  The number of nodes wanted.
+     * @requires  k > 0
+     * @returns   the min(k, size()) indexed nodes nearest to (qx, qy),
+     *            nearest first.
+     */
+    int[] nearest(double qx, double qy, int k)
+    {
+        Candidates found = new Candidates(Math.min(k, node.length));
+        nearest(qx, qy, 0, node.length, found);
+        return found.sorted();
+    }
+
+    private void nearest(double qx, double qy, int lo, int hi, Candidates found)
+    {
+        if(hi - lo <= LEAF)
+        {
+            for(int i = lo; i < hi; i++)
+                found.offer(node[i], squared(qx - x[i], qy - y[i]));
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        found.offer(node[mid], squared(qx - x[mid], qy - y[mid]));
+        double diff = axis[mid] == 0 ? qx - x[mid] : qy - y[mid];
+        if(diff < 0)
+        {
+            nearest(qx, qy, lo, mid, found);
+            if(diff * diff <= found.bound())
+                nearest(qx, qy, mid + 1, hi, found);
+        }
+        else
+        {
+            nearest(qx, qy, mid + 1, hi, found);
+            if(diff * diff <= found.bound())
+                nearest(qx, qy, lo, mid, found);
+        }
+    }
+
+    /**
+     * @param: radius  The largest distance from (qx, qy) to report.
+     * @returns   every indexed node within radius of (qx, qy), nearest first.
+     */
+    int[] within(double qx, double qy, double radius)
+    {
+        Candidates found = new Candidates(0);
+        within(qx, qy, radius * radius, 0, node.length, found);
+        return found.sorted();
+    }
+
+    private void within(double qx, double qy, double limit, int lo, int hi, Candidates found)
+    {
+        while(hi - lo > LEAF)
+        {
+            int mid = (lo + hi) >>> 1;
+            double d = squared(qx - x[mid], qy - y[mid]);
+            if(d <= limit)
+                found.add(node[mid], d);
+            double diff = axis[mid] == 0 ? qx - x[mid] : qy - y[mid];
+            boolean both = diff * diff <= limit;
+            if(diff < 0)
+            {
+                if(both)
+                    within(qx, qy, limit, mid + 1, hi, found);
+                hi = mid;
+            }
+            else
+            {
+                if(both)
+                    within(qx, qy, limit, lo, mid, found);
+                lo = mid + 1;
+            }
+        }
+        for(int i = lo; i < hi; i++)
+        {
+            double d = squared(qx - x[i], qy - y[i]);
+            if(d <= limit)
+                found.add(node[i], d);
+        }
+    }
+
+    private static double squared(double dx, double dy)
+    {
+        return dx * dx + dy * dy;
+    }
+
+    // true if node a at squared distance da comes before node b at db
+    static boolean closer(double da, int a, double db, int b)
+    {
+        return da < db || (da == db && a < b);
+    }
+
+    /**
+     * Nodes with their squared distances. With a limit it keeps only the
+     * limit closest offered, in a max-heap on (distance, node); without
+     * one it keeps everything added.
+     */
+    static final class Candidates
+    {
+        private final int limit;
+        private int[] nodes;
+        private double[] distances;
+        private int size;
+
+        /**
+         * @param: limit  The number of nodes to keep; 0 keeps every node.
+         */
+        Candidates(int limit)
+        {
+            this.limit = limit;
+            nodes = new int[limit > 0 ? limit : 16];
+            distances = new double[nodes.length];
+        }
+
+        /**
+         * @returns   the squared distance a node must not exceed to be kept.
+         */
+        double bound()
+        {
+            if(limit == 0 || size < limit)
+                return Double.POSITIVE_INFINITY;
+            return distances[0];
+        }
+
+        /**
+         * @effects   Appends node; for a collection without a limit.
+         */
+        void add(int node, double distance)
+        {
+            if(size == nodes.length)
+            {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+            nodes[size] = node;
+            distances[size] = distance;
+            size++;
+        }
+
+        /**
+         * @effects   Keeps node if it is among the limit closest so far.
+         */
+        void offer(int node, double distance)
+        {
+            if(limit == 0)
+                return;
+            if(size < limit)
+            {
+                int i = size++;
+                while(i > 0 && closer(distances[(i - 1) / 2], nodes[(i - 1) / 2], distance, node))
+                {
+                    nodes[i] = nodes[(i - 1) / 2];
+                    distances[i] = distances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                nodes[i] = node;
+                distances[i] = distance;
+                return;
+            }
+            if(!closer(distance, node, distances[0], nodes[0]))
+                return;
+            // replace the farthest and sift it down
+            int i = 0;
+            while(true)
+            {
+                int child = 2 * i + 1;
+                if(child >= size)
+                    break;
+                if(child + 1 < size && closer(distances[child], nodes[child], distances[child + 1], nodes[child + 1]))
+                    child++;
+                if(!closer(distance, node, distances[child], nodes[child]))
+                    break;
+                nodes[i] = nodes[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+            nodes[i] = node;
+            distances[i] = distance;
+        }
+
+        /**
+         * @returns   the kept nodes, nearest first.
+         */
+        int[] sorted()
+        {
+            Integer[] order = new Integer[size];
+            for(int i = 0; i < size; i++)
+                order[i] = i;
+            Arrays.sort(order, (a, b) -> closer(distances[a], nodes[a], distances[b], nodes[b]) ? -1
+                    : a.equals(b) ? 0 : 1);
+            int[] sorted = new int[size];
+            for(int i = 0; i < size; i++)
+                sorted[i] = nodes[order[i]];
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package backend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <b>Tour</b> is an <b>immutable</b> walk planned by CampusGraph.planTour
+ * that visits every stop asked for: the stops in visiting order, the
+ * route through them as one RouteResult, and how good the order is known
+ * to be. The order minimizes the routing profile's cost; it is exact when
+ * isOptimal says so and otherwise the best a heuristic found in the time
+ * allowed, no better than getLowerBound. getCosts and getNanos show how
+ * the best order improved over that time.
+ */
+public final class Tour
+{
+    private final String[] stops;
+    private final boolean roundTrip;
+    private final RouteResult route;
+    private final double cost;
+    private final double lowerBound;
+    private final boolean optimal;
+    private final long[] nanos;
+    private final double[] costs;
+
+    Tour(String[] stops, boolean roundTrip, RouteResult route, double cost, double lowerBound, boolean optimal,
+         long[] nanos, double[] costs)
+    {
+        this.stops = stops;
+        this.roundTrip = roundTrip;
+        this.route = route;
+        this.cost = cost;
+        this.lowerBound = lowerBound;
+        this.optimal = optimal;
+        this.nanos = nanos;
+        this.costs = costs;
+    }
+
+    /**
+     * @returns   the printed names of the stops in visiting order, the first
+     *            stop asked for first; a round trip does not repeat it at
+     *            the end.
+     */
+    public List<String> getStops()
+    {
+        return Collections.unmodifiableList(Arrays.asList(stops));
+    }
+
+    /**
+     * @returns   true if the tour returns to its first stop.
+     */
+    public boolean isRoundTrip()
+    {
+        return roundTrip;
+    }
+
+    /**
+     * @returns   true if every stop can be reached from the first; otherwise
+     *            there is no tour and the route has no path.
+     */
+    public boolean isFound()
+    {
+        return route.isFound();
+    }
+
+    /**
+     * @returns   the route through every stop in order, its legs joined.
+     */
+    public RouteResult getRoute()
+    {
+        return route;
+    }
+
+    /**
+     * @returns   the walking distance of the tour, or positive infinity if
+     *            there is none.
+     */
+    public double getDistance()
+    {
+        return route.getDistance();
+    }
+
+    /**
+     * @returns   the cost of the tour under the profile it was planned
+     *            with, the walking distance for RoutingProfile.SHORTEST.
+     */
+    public double getCost()
+    {
+        return cost;
+    }
+
+    /**
+     * @returns   a cost no order of the stops beats: the weight of a minimum
+     *            spanning tree over them.
+     */
+    public double getLowerBound()
+    {
+        return lowerBound;
+    }
+
+    /**
+     * @returns   true if no order of the stops costs less.
+     */
+    public boolean isOptimal()
+    {
+        return optimal;
+    }
+
+    /**
+     * @returns   the nanoseconds after solving started at which the best
+     *            order got better, the first order found first.
+     */
+    public long[] getNanos()
+    {
+        return nanos.clone();
+    }
+
+    /**
+     * @returns   the cost of the best order at each of getNanos.
+     */
+    public double[] getCosts()
+    {
+        return costs.clone();
+    }
+
+    /**
+     * @param: out  Where to write the tour.
+     * @effects   Appends "Tour of n stops: A, B, ...\n" and then the
+     *            directions of the route as RouteResult.appendText does.
+     * @returns   out
+     * @throws    IOException if out does.
+     */
+    public <A extends Appendable> A appendText(A out) throws IOException
+    {
+        out.append("Tour of ").append(Integer.toString(stops.length)).append(" stops: ");
+        for(int i = 0; i < stops.length; i++)
+        {
+            if(i > 0)
+                out.append(", ");
+            out.append(stops[i]);
+        }
+        out.append('\n');
+        return route.appendText(out);
+    }
+
+    /**
+     * @returns   the tour as appendText writes it.
+     */
+    public String toText()
+    {
+        try
+        {
+            return appendText(new StringBuilder(256)).toString();
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
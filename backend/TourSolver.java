@@ -0,0 +1,400 @@
+package backend;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <b>TourSolver</b> orders the stops of a walking tour given the distance
+ * between every two of them. Stop 0 is always first; the tour either ends
+ * at any stop or returns to stop 0.
+ *   Up to HELD_KARP_MAX stops are solved exactly by Held-Karp dynamic
+ *   programming over subsets, O(2^n n^2);
+ *   more are started by nearest neighbour and improved by 2-opt (reversing
+ *   a stretch of the tour) and Or-opt (moving a run of up to three stops,
+ *   either way round) until neither improves, then kicked by a random
+ *   double bridge and improved again, keeping the best tour, until the
+ *   time limit or STALL kicks in a row fail.
+ * The first local optimum is always reached, however short the limit;
+ * Held-Karp gives up at the time limit, leaving that tour. Every
+ * improvement of the best tour is recorded with its time, and the weight
+ * of a minimum spanning tree over the stops bounds every tour from below.
+ * Distances must be finite and symmetric.
+ * Kicks come from a fixed seed, so the same input and enough time give
+ * the same tour.
+ */
+final class TourSolver
+{
+    static final int HELD_KARP_MAX = 16;
+    // kicks in a row without a better tour before giving up, per stop
+    private static final int STALL = 100;
+    private static final int OR_OPT_MAX = 3;
+
+    private final double[][] d;
+    private final int n;
+    private final boolean roundTrip;
+    private final long started;
+    private final long deadline;
+    private int[] best;
+    private double bestCost;
+    private boolean optimal;
+    private long[] improvedNanos = new long[16];
+    private double[] improvedCosts = new double[16];
+    private int improvements;
+
+    /**
+     * @param: d          The distance between every two stops.
+     * @param: roundTrip  Whether the tour returns to stop 0.
+     * @param: limitNanos The longest time to spend.
+     * @requires  d is square, symmetric and finite with at least one stop.
+     */
+    TourSolver(double[][] d, boolean roundTrip, long limitNanos)
+    {
+        this.d = d;
+        this.n = d.length;
+        this.roundTrip = roundTrip;
+        this.started = System.nanoTime();
+        this.deadline = started + limitNanos;
+    }
+
+    /**
+     * @modifies  this
+     * @effects   Finds the best tour it can in the time given.
+     * @returns   the stops in visiting order, starting with 0.
+     */
+    int[] solve()
+    {
+        int[] order = nearestNeighbour();
+        improve(order);
+        record(order, cost(order));
+        if(n <= HELD_KARP_MAX && heldKarp())
+            return best;
+        Random random = new Random(42);
+        int[] current = best.clone();
+        double currentCost = bestCost;
+        for(int stall = 0; n > 3 && stall < STALL * n && System.nanoTime() < deadline; stall++)
+        {
+            int[] kicked = doubleBridge(current, random);
+            improve(kicked);
+            double kickedCost = cost(kicked);
+            if(kickedCost < currentCost)
+            {
+                current = kicked;
+                currentCost = kickedCost;
+                if(currentCost < bestCost)
+                {
+                    record(current, currentCost);
+                    stall = -1;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @returns   the length of the best tour found.
+     */
+    double cost()
+    {
+        return bestCost;
+    }
+
+    /**
+     * @returns   true if the tour found is known to be the shortest.
+     */
+    boolean isOptimal()
+    {
+        return optimal;
+    }
+
+    /**
+     * @returns   the nanoseconds after the start at which the best tour got
+     *            better, first the starting tour.
+     */
+    long[] improvedNanos()
+    {
+        return Arrays.copyOf(improvedNanos, improvements);
+    }
+
+    /**
+     * @returns   the length of the best tour at each improvedNanos.
+     */
+    double[] improvedCosts()
+    {
+        return Arrays.copyOf(improvedCosts, improvements);
+    }
+
+    /**
+     * @returns   the weight of a minimum spanning tree over the stops; no
+     *            tour, open or round, is shorter.
+     */
+    double lowerBound()
+    {
+        double[] link = new double[n];
+        boolean[] joined = new boolean[n];
+        Arrays.fill(link, Double.POSITIVE_INFINITY);
+        link[0] = 0;
+        double weight = 0;
+        for(int round = 0; round < n; round++)
+        {
+            int next = -1;
+            for(int v = 0; v < n; v++)
+            {
+                if(!joined[v] && (next < 0 || link[v] < link[next]))
+                    next = v;
+            }
+            joined[next] = true;
+            weight += link[next];
+            for(int v = 0; v < n; v++)
+            {
+                if(!joined[v] && d[next][v] < link[v])
+                    link[v] = d[next][v];
+            }
+        }
+        return weight;
+    }
+
+    private void record(int[] order, double cost)
+    {
+        best = order.clone();
+        bestCost = cost;
+        if(improvements == improvedNanos.length)
+        {
+            improvedNanos = Arrays.copyOf(improvedNanos, 2 * improvements);
+            improvedCosts = Arrays.copyOf(improvedCosts, 2 * improvements);
+        }
+        improvedNanos[improvements] = System.nanoTime() - started;
+        improvedCosts[improvements] = cost;
+        improvements++;
+    }
+
+    double cost(int[] order)
+    {
+        double cost = 0;
+        for(int i = 1; i < n; i++)
+            cost += d[order[i - 1]][order[i]];
+        if(roundTrip && n > 1)
+            cost += d[order[n - 1]][order[0]];
+        return cost;
+    }
+
+    // the distance from the stop at position i to the one after it, 0
+    // after the last stop of an open tour
+    private double after(int[] order, int i)
+    {
+        if(i + 1 < n)
+            return d[order[i]][order[i + 1]];
+        return roundTrip ? d[order[i]][order[0]] : 0;
+    }
+
+    private int[] nearestNeighbour()
+    {
+        int[] order = new int[n];
+        boolean[] visited = new boolean[n];
+        visited[0] = true;
+        for(int i = 1; i < n; i++)
+        {
+            int from = order[i - 1];
+            int next = -1;
+            for(int v = 0; v < n; v++)
+            {
+                if(!visited[v] && (next < 0 || d[from][v] < d[from][next]))
+                    next = v;
+            }
+            order[i] = next;
+            visited[next] = true;
+        }
+        return order;
+    }
+
+    // applies improving 2-opt and Or-opt moves to order until there are none
+    private void improve(int[] order)
+    {
+        boolean improved = true;
+        while(improved)
+        {
+            improved = twoOpt(order) | orOpt(order);
+        }
+    }
+
+    // reverses order[i..j] wherever that shortens the tour
+    private boolean twoOpt(int[] order)
+    {
+        boolean improved = false;
+        for(int i = 1; i < n - 1; i++)
+        {
+            for(int j = i + 1; j < n; j++)
+            {
+                int a = order[i - 1];
+                int b = order[i];
+                int c = order[j];
+                double removed = d[a][b] + after(order, j);
+                double added = d[a][c] + (j + 1 < n ? d[b][order[j + 1]] : roundTrip ? d[b][order[0]] : 0);
+                if(added < removed - 1e-9)
+                {
+                    reverse(order, i, j);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    private static void reverse(int[] order, int i, int j)
+    {
+        for(; i < j; i++, j--)
+        {
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+
+    // moves a run order[i..i+len-1] between two other neighbours, either
+    // way round, wherever that shortens the tour
+    private boolean orOpt(int[] order)
+    {
+        boolean improved = false;
+        int[] moved = new int[n];
+        for(int len = 1; len <= OR_OPT_MAX; len++)
+        {
+            for(int i = 1; i + len <= n; i++)
+            {
+                int first = order[i];
+                int last = order[i + len - 1];
+                int prev = order[i - 1];
+                double cut = d[prev][first] + after(order, i + len - 1)
+                        - (i + len < n ? d[prev][order[i + len]] : roundTrip ? d[prev][order[0]] : 0);
+                // insert between the stops at positions p and p + 1, outside the run
+                for(int p = 0; p < n; p++)
+                {
+                    if(p >= i - 1 && p < i + len)
+                        continue;
+                    int x = order[p];
+                    int y = p + 1 < n ? order[p + 1] : roundTrip ? order[0] : -1;
+                    double gap = y < 0 ? 0 : d[x][y];
+                    double forward = d[x][first] + (y < 0 ? 0 : d[last][y]) - gap;
+                    double backward = d[x][last] + (y < 0 ? 0 : d[first][y]) - gap;
+                    boolean reversed = backward < forward;
+                    if(Math.min(forward, backward) < cut - 1e-9)
+                    {
+                        move(order, moved, i, len, p, reversed);
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return improved;
+    }
+
+    // order with the run at i moved to just after position p
+    private void move(int[] order, int[] moved, int i, int len, int p, boolean reversed)
+    {
+        int k = 0;
+        for(int q = 0; q < n; q++)
+        {
+            if(q >= i && q < i + len)
+                continue;
+            moved[k++] = order[q];
+            if(q == p)
+            {
+                for(int r = 0; r < len; r++)
+                    moved[k++] = order[reversed ? i + len - 1 - r : i + r];
+            }
+        }
+        System.arraycopy(moved, 0, order, 0, n);
+    }
+
+    // splits the tour after stop 0 into A B C D and returns A C B D
+    private int[] doubleBridge(int[] order, Random random)
+    {
+        int[] cuts = {1 + random.nextInt(n - 1), 1 + random.nextInt(n - 1), 1 + random.nextInt(n - 1)};
+        Arrays.sort(cuts);
+        int[] kicked = new int[n];
+        int k = 0;
+        for(int q = 0; q < cuts[0]; q++)
+            kicked[k++] = order[q];
+        for(int q = cuts[1]; q < cuts[2]; q++)
+            kicked[k++] = order[q];
+        for(int q = cuts[0]; q < cuts[1]; q++)
+            kicked[k++] = order[q];
+        for(int q = cuts[2]; q < n; q++)
+            kicked[k++] = order[q];
+        return kicked;
+    }
+
+    /**
+     * @effects   Finds the shortest tour by dynamic programming over the
+     *            subsets of stops 1..n-1, recording it if it is shorter
+     *            than the best.
+     * @returns   false if the time ran out first.
+     */
+    private boolean heldKarp()
+    {
+        int m = n - 1;
+        if(m == 0)
+        {
+            optimal = true;
+            return true;
+        }
+        int full = (1 << m) - 1;
+        // cost[mask * m + j]: the shortest walk from stop 0 through the
+        // stops in mask ending at stop j + 1, which is in mask
+        double[] cost = new double[(full + 1) * m];
+        byte[] parent = new byte[(full + 1) * m];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        for(int j = 0; j < m; j++)
+        {
+            cost[(1 << j) * m + j] = d[0][j + 1];
+            parent[(1 << j) * m + j] = -1;
+        }
+        for(int mask = 1; mask <= full; mask++)
+        {
+            if((mask & 1023) == 0 && System.nanoTime() > deadline)
+                return false;
+            for(int j = 0; j < m; j++)
+            {
+                double c = cost[mask * m + j];
+                if((mask & 1 << j) == 0 || c == Double.POSITIVE_INFINITY)
+                    continue;
+                for(int k = 0; k < m; k++)
+                {
+                    if((mask & 1 << k) != 0)
+                        continue;
+                    int next = (mask | 1 << k) * m + k;
+                    double through = c + d[j + 1][k + 1];
+                    if(through < cost[next])
+                    {
+                        cost[next] = through;
+                        parent[next] = (byte) j;
+                    }
+                }
+            }
+        }
+        int end = 0;
+        double shortest = Double.POSITIVE_INFINITY;
+        for(int j = 0; j < m; j++)
+        {
+            double c = cost[full * m + j] + (roundTrip ? d[j + 1][0] : 0);
+            if(c < shortest)
+            {
+                shortest = c;
+                end = j;
+            }
+        }
+        int[] order = new int[n];
+        int mask = full;
+        for(int i = n - 1, j = end; i >= 1; i--)
+        {
+            order[i] = j + 1;
+            int p = parent[mask * m + j];
+            mask &= ~(1 << j);
+            j = p;
+        }
+        optimal = true;
+        // the heuristic may have found an equally short tour already
+        if(shortest < bestCost)
+            record(order, cost(order));
+        return true;
+    }
+}
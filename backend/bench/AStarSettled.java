@@ -0,0 +1,96 @@
+package backend.bench;
+
+import backend.CompactGraph;
+import backend.Coordinate;
+import backend.PathFinder;
+import backend.SearchWorkspace;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * <b>AStarSettled</b> runs Dijkstra, A* and bidirectional A* on the same
+ * point-to-point queries, checks that all three agree on the path length and
+ * reports how many nodes each settles and how long each takes.
+ * The RPI queries are every pair of named buildings; the grid queries are
+ * random pairs.
+ * Usage: java backend.bench.AStarSettled [gridSide]
+ */
+public class AStarSettled
+{
+    private static void run(String label, BenchMaps map, int[] from, int[] to)
+    {
+        CompactGraph<String> compact = map.graph.freeze();
+        int n = compact.size();
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for(int i = 0; i < n; i++)
+        {
+            Coordinate coordinate = map.coordinates.get(compact.node(i));
+            x[i] = coordinate.getX();
+            y[i] = coordinate.getY();
+        }
+        SearchWorkspace workspace = SearchWorkspace.forThread(n);
+        long[] settled = new long[3];
+        long[] nanos = new long[3];
+        for(int q = 0; q < from.length; q++)
+        {
+            long t0 = System.nanoTime();
+            double d0 = PathFinder.dijkstra(compact, from[q], to[q], workspace);
+            long t1 = System.nanoTime();
+            settled[0] += workspace.settledCount();
+            double d1 = PathFinder.astar(compact, x, y, from[q], to[q], workspace);
+            long t2 = System.nanoTime();
+            settled[1] += workspace.settledCount();
+            double d2 = PathFinder.bidirectionalAstar(compact, compact, x, y, from[q], to[q], workspace);
+            long t3 = System.nanoTime();
+            settled[2] += workspace.settledCount();
+            nanos[0] += t1 - t0;
+            nanos[1] += t2 - t1;
+            nanos[2] += t3 - t2;
+            if(Math.abs(d0 - d1) > 1e-6 * Math.max(1, d0) || Math.abs(d0 - d2) > 1e-6 * Math.max(1, d0))
+                throw new AssertionError("length mismatch " + compact.node(from[q]) + " -> " + compact.node(to[q])
+                        + ": " + d0 + " " + d1 + " " + d2);
+        }
+        String[] names = {"dijkstra", "astar", "bidirectional astar"};
+        System.out.printf("%s: %d queries, all lengths identical%n", label, from.length);
+        for(int m = 0; m < 3; m++)
+        {
+            System.out.printf("  %-20s %10.1f settled/query (%5.1f%% of dijkstra) %10.1f us/query%n", names[m],
+                    (double) settled[m] / from.length, 100.0 * settled[m] / settled[0], nanos[m] / 1e3 / from.length);
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        BenchMaps rpi = BenchMaps.rpi();
+        CompactGraph<String> compact = rpi.graph.freeze();
+        ArrayList<Integer> buildings = new ArrayList<>();
+        for(int i = 0; i < compact.size(); i++)
+        {
+            String name = rpi.idName.get(compact.node(i));
+            if(name != null && !name.isEmpty())
+                buildings.add(i);
+        }
+        int pairs = buildings.size() * buildings.size();
+        int[] from = new int[pairs];
+        int[] to = new int[pairs];
+        for(int i = 0; i < pairs; i++)
+        {
+            from[i] = buildings.get(i / buildings.size());
+            to[i] = buildings.get(i % buildings.size());
+        }
+        run("RPI buildings", rpi, from, to);
+
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        Random random = new Random(11);
+        from = new int[200];
+        to = new int[200];
+        for(int i = 0; i < from.length; i++)
+        {
+            from[i] = random.nextInt(side * side);
+            to[i] = random.nextInt(side * side);
+        }
+        run("grid " + side + "x" + side, BenchMaps.of(SyntheticCampus.grid(side, side, 42)), from, to);
+    }
+}
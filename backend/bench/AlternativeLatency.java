@@ -0,0 +1,162 @@
+package backend.bench;
+
+import backend.AlternativeRoutes;
+import backend.CompactGraph;
+import backend.PathFinder;
+import backend.SearchWorkspace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <b>AlternativeLatency</b> times finding k alternative routes as k grows,
+ * on the RPI map and on a synthetic one: AlternativeRoutes, whose searches
+ * share one bounded search tree as their A* potential, against the same
+ * penalty method restarting a full Dijkstra for every search. It reports
+ * the routes kept per query, the stretch of the last over the best route
+ * and how many queries kept routes of different costs: ties between
+ * equally good routes, and routes beyond the stretch bound that only the
+ * restarting searches take and penalize, send the two apart.
+ * Usage: java backend.bench.AlternativeLatency [grid:SIDE|geometric:N] [queries]
+ */
+public class AlternativeLatency
+{
+    private static final int[] KS = {1, 2, 3, 5, 8};
+    // as AlternativeRoutes
+    private static final double PENALTY = 0.5;
+    private static final int ATTEMPTS = 8;
+    private static final int STALL = 8;
+
+    public static void main(String[] args)
+    {
+        String spec = args.length > 0 ? args[0] : "grid:300";
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        run("rpi", BenchMaps.rpi().graph.freeze(), 2000);
+        run(spec, BenchMaps.of(SyntheticCampus.parse(spec)).graph.freeze(), queries);
+    }
+
+    private static void run(String name, CompactGraph<String> graph, int queries)
+    {
+        double[] weights = new double[graph.edgeCount()];
+        for(int e = 0; e < weights.length; e++)
+            weights[e] = graph.weight(e);
+        Random random = new Random(5);
+        int[] from = new int[queries];
+        int[] to = new int[queries];
+        for(int q = 0; q < queries; q++)
+        {
+            from[q] = random.nextInt(graph.size());
+            to[q] = random.nextInt(graph.size());
+        }
+        SearchWorkspace workspace = new SearchWorkspace(graph.size());
+        System.out.printf("%s nodes=%d queries=%d%n", name, graph.size(), queries);
+        for(int k: KS)
+        {
+            long[] nanos = new long[2];
+            long kept = 0;
+            double stretch = 0;
+            int differ = 0;
+            for(int warm = 0; warm < 3; warm++)
+            {
+                Arrays.fill(nanos, 0);
+                kept = 0;
+                stretch = 0;
+                differ = 0;
+                for(int q = 0; q < queries; q++)
+                {
+                    long t0 = System.nanoTime();
+                    List<int[]> shared = AlternativeRoutes.find(graph, weights, from[q], to[q], k,
+                            AlternativeRoutes.MAX_SHARED, AlternativeRoutes.MAX_STRETCH, workspace);
+                    long t1 = System.nanoTime();
+                    List<int[]> restarted = restarting(graph, weights, from[q], to[q], k, workspace);
+                    long t2 = System.nanoTime();
+                    nanos[0] += t1 - t0;
+                    nanos[1] += t2 - t1;
+                    if(!costs(graph, weights, shared).equals(costs(graph, weights, restarted)))
+                        differ++;
+                    kept += shared.size();
+                    List<Double> costs = costs(graph, weights, shared);
+                    if(!costs.isEmpty() && costs.get(0) > 0)
+                        stretch += costs.get(costs.size() - 1) / costs.get(0);
+                    else
+                        stretch += 1;
+                }
+            }
+            System.out.printf("  k=%d  shared tree %9.1f us/query  restarted %10.1f us/query (%5.1fx)"
+                            + "  %.2f routes, last %.2fx best, %d differ%n",
+                    k, nanos[0] / 1e3 / queries, nanos[1] / 1e3 / queries, (double) nanos[1] / Math.max(1, nanos[0]),
+                    (double) kept / queries, kept == 0 ? 0 : stretch / queries, differ);
+        }
+    }
+
+    // the cost of every route, for comparing the two methods
+    private static List<Double> costs(CompactGraph<String> graph, double[] weights, List<int[]> routes)
+    {
+        ArrayList<Double> costs = new ArrayList<>();
+        for(int[] path: routes)
+        {
+            double cost = 0;
+            for(int i = 1; i < path.length; i++)
+                cost += weights[graph.findEdge(path[i - 1], path[i])];
+            costs.add(Math.rint(cost * 1e6) / 1e6);
+        }
+        return costs;
+    }
+
+    // the penalty method of AlternativeRoutes with a plain Dijkstra per search
+    private static List<int[]> restarting(CompactGraph<String> graph, double[] weights, int source, int target,
+                                          int k, SearchWorkspace workspace)
+    {
+        ArrayList<int[]> routes = new ArrayList<>();
+        double best = PathFinder.dijkstra(graph, weights, source, target, workspace);
+        if(best == Double.POSITIVE_INFINITY)
+            return routes;
+        double limit = best * AlternativeRoutes.MAX_STRETCH;
+        double[] penalized = weights.clone();
+        ArrayList<int[]> keptArcs = new ArrayList<>();
+        int rejected = 0;
+        for(int attempt = 0; attempt < ATTEMPTS * k && routes.size() < k && rejected < STALL; attempt++)
+        {
+            if(PathFinder.dijkstra(graph, penalized, source, target, workspace) == Double.POSITIVE_INFINITY)
+                break;
+            int[] path = new int[workspace.tracePath(target)];
+            for(int i = 0; i < path.length; i++)
+                path[i] = workspace.pathNode(i);
+            int[] arcs = new int[path.length - 1];
+            double cost = 0;
+            for(int i = 1; i < path.length; i++)
+            {
+                arcs[i - 1] = graph.findEdge(path[i - 1], path[i]);
+                cost += weights[arcs[i - 1]];
+            }
+            boolean distinct = true;
+            for(int[] kept: keptArcs)
+            {
+                double shared = 0;
+                for(int e: arcs)
+                {
+                    if(Arrays.binarySearch(kept, e) >= 0)
+                        shared += weights[e];
+                }
+                distinct &= shared <= AlternativeRoutes.MAX_SHARED * cost;
+            }
+            if(attempt == 0 || cost <= limit && distinct)
+            {
+                routes.add(path);
+                int[] sorted = arcs.clone();
+                Arrays.sort(sorted);
+                keptArcs.add(sorted);
+                rejected = 0;
+            }
+            else
+            {
+                rejected++;
+            }
+            for(int e: arcs)
+                penalized[e] += PENALTY * weights[e];
+        }
+        return routes;
+    }
+}
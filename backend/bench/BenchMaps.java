@@ -0,0 +1,83 @@
+package backend.bench;
+
+import backend.CampusParser;
+import backend.Coordinate;
+import backend.Graph;
+
+import java.io.IOException;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * <b>BenchMaps</b> loads the bundled RPI map for the benchmarks without going
+ * through CampusGraph, so that the raw Graph and its coordinates are visible.
+ * Paths are relative to the backend directory, like CampusPaths.
+ */
+public class BenchMaps
+{
+    public static final String RPI_NODES = "data/RPI_map_data_Nodes.csv";
+    public static final String RPI_EDGES = "data/RPI_map_data_Edges.csv";
+
+    public final Graph<String,String> graph;
+    public final HashMap<String,Coordinate> coordinates;
+    public final HashMap<String,String> idName;
+
+    private BenchMaps(Graph<String,String> graph, HashMap<String,Coordinate> coordinates, HashMap<String,String> idName)
+    {
+        this.graph = graph;
+        this.coordinates = coordinates;
+        this.idName = idName;
+    }
+
+    /**
+     * @returns   The RPI map, built the same way as CampusGraph.createGraph.
+     * @throws    RuntimeException if the data files cannot be read.
+     */
+    public static BenchMaps rpi()
+    {
+        return rpi(RPI_NODES, RPI_EDGES);
+    }
+
+    /**
+     * @param: nodeFilename  Path to the RPI node file.
+     * @param: edgeFilename  Path to the RPI edge file.
+     * @returns   The RPI map read from the given files.
+     * @throws    RuntimeException if the data files cannot be read.
+     */
+    public static BenchMaps rpi(String nodeFilename, String edgeFilename)
+    {
+        HashMap<String,String> idName = new HashMap<>();
+        HashMap<String,Coordinate> coordinates = new HashMap<>();
+        LinkedList<Map.Entry<String,String>> idPairs = new LinkedList<>();
+        try {
+            CampusParser.readNodeData(nodeFilename, idName, new HashMap<>(), coordinates);
+            CampusParser.readEdgeData(edgeFilename, idPairs);
+        } catch(IOException e) {
+            throw new RuntimeException("run the benchmarks from the backend directory", e);
+        }
+        Graph<String,String> graph = new Graph<>();
+        graph.addNodes(idName.keySet());
+        for(Map.Entry<String,String> entry: idPairs)
+        {
+            double distance = coordinates.get(entry.getKey()).distance(coordinates.get(entry.getValue()));
+            graph.setEdge(entry.getKey(), entry.getValue(), distance);
+            graph.setEdge(entry.getValue(), entry.getKey(), distance);
+        }
+        return new BenchMaps(graph, coordinates, idName);
+    }
+
+    /**
+     * @param: campus  A synthetic map.
+     * @returns   The synthetic map as a Graph with its coordinates.
+     */
+    public static BenchMaps of(SyntheticCampus campus)
+    {
+        HashMap<String,Coordinate> coordinates = campus.coordinates();
+        HashMap<String,String> idName = new HashMap<>(coordinates.size() * 4 / 3 + 1);
+        for(Coordinate c: coordinates.values())
+            idName.put(c.getId(), c.getName());
+        return new BenchMaps(campus.toGraph(), coordinates, idName);
+    }
+}
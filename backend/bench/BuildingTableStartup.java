@@ -0,0 +1,76 @@
+package backend.bench;
+
+import backend.BuildingTable;
+import backend.CompactGraph;
+import backend.PathFinder;
+import backend.SearchWorkspace;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * <b>BuildingTableStartup</b> measures the startup time and memory of the
+ * all-pairs building table, sequentially and in parallel, and compares a
+ * table walk with an on-demand Dijkstra between random building pairs.
+ * Usage: java backend.bench.BuildingTableStartup [gridSide]
+ */
+public class BuildingTableStartup
+{
+    private static void run(String label, BenchMaps map, int queries)
+    {
+        CompactGraph<String> compact = map.graph.freeze();
+        ArrayList<Integer> named = new ArrayList<>();
+        for(int v = 0; v < compact.size(); v++)
+        {
+            String name = map.idName.get(compact.node(v));
+            if(name != null && !name.isEmpty())
+                named.add(v);
+        }
+        int[] buildings = new int[named.size()];
+        for(int i = 0; i < buildings.length; i++)
+            buildings[i] = named.get(i);
+
+        BuildingTable.build(compact, compact, buildings, true);
+        long start = System.nanoTime();
+        BuildingTable.build(compact, compact, buildings, false);
+        long sequentialNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        BuildingTable table = BuildingTable.build(compact, compact, buildings, true);
+        long parallelNanos = System.nanoTime() - start;
+
+        System.out.printf("%s: nodes=%d buildings=%d table=%d KB startup sequential=%.1f ms parallel=%.1f ms (%d cores)%n",
+                label, compact.size(), buildings.length, table.footprint() / 1024, sequentialNanos / 1e6,
+                parallelNanos / 1e6, Runtime.getRuntime().availableProcessors());
+
+        Random random = new Random(9);
+        SearchWorkspace workspace = SearchWorkspace.forThread(compact.size());
+        long searchNanos = 0;
+        long tableNanos = 0;
+        for(int q = 0; q < queries; q++)
+        {
+            int s = buildings[random.nextInt(buildings.length)];
+            int t = buildings[random.nextInt(buildings.length)];
+            long t0 = System.nanoTime();
+            double expected = PathFinder.dijkstra(compact, s, t, workspace);
+            if(!Double.isInfinite(expected))
+                workspace.tracePath(t);
+            long t1 = System.nanoTime();
+            double walked = table.pathDistance(workspace, table.tracePath(s, t, workspace));
+            long t2 = System.nanoTime();
+            searchNanos += t1 - t0;
+            tableNanos += t2 - t1;
+            if(Math.abs(expected - walked) > 1e-6 * Math.max(1, expected))
+                throw new AssertionError("length mismatch " + s + " -> " + t + ": " + expected + " " + walked);
+        }
+        System.out.printf("  on-demand dijkstra %10.2f us/route%n", searchNanos / 1e3 / queries);
+        System.out.printf("  table walk         %10.2f us/route (%.0fx faster)%n",
+                tableNanos / 1e3 / queries, (double) searchNanos / tableNanos);
+    }
+
+    public static void main(String[] args)
+    {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        run("RPI", BenchMaps.rpi(), 20000);
+        run("grid " + side + "x" + side, BenchMaps.of(SyntheticCampus.grid(side, side, 42)), 2000);
+    }
+}
@@ -0,0 +1,172 @@
+package backend.bench;
+
+import backend.CampusGraph;
+import backend.SearchMode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <b>ConcurrentQueryStress</b> hammers one CampusGraph from many threads
+ * while another thread keeps rebuilding the map and its search structures,
+ * and checks every answer against a single-threaded reference. It then
+ * measures query throughput for a growing number of threads.
+ * Usage: java backend.bench.ConcurrentQueryStress [seconds] [maxThreads]
+ */
+public class ConcurrentQueryStress
+{
+    private static ArrayList<String> buildings(CampusGraph campus)
+    {
+        ArrayList<String> names = new ArrayList<>();
+        Iterator<String> it = campus.listAllBuildings();
+        while(it.hasNext())
+        {
+            String line = it.next();
+            names.add(line.substring(0, line.lastIndexOf(',')));
+        }
+        return names;
+    }
+
+    private static void stress(int seconds, int threads) throws InterruptedException
+    {
+        CampusGraph campus = new CampusGraph(64);
+        campus.createGraph(BenchMaps.RPI_NODES, BenchMaps.RPI_EDGES);
+        campus.createHierarchy();
+        campus.createBuildingTable();
+        ArrayList<String> names = buildings(campus);
+        HashMap<String,String> expected = new HashMap<>();
+        for(String from: names)
+        {
+            for(String to: names)
+                expected.put(from + "|" + to, campus.findPath(from, to));
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong queries = new AtomicLong();
+        AtomicLong lengthMismatches = new AtomicLong();
+        AtomicLong rebuilds = new AtomicLong();
+        AtomicLong unbuiltModes = new AtomicLong();
+        ArrayList<Throwable> failures = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(threads + 1);
+
+        Thread rebuilder = new Thread(() -> {
+            try {
+                while(running.get())
+                {
+                    campus.createGraph(BenchMaps.RPI_NODES, BenchMaps.RPI_EDGES);
+                    campus.createHierarchy();
+                    campus.createBuildingTable();
+                    rebuilds.incrementAndGet();
+                }
+            } catch(Throwable t) {
+                synchronized(failures) { failures.add(t); }
+            } finally {
+                done.countDown();
+            }
+        });
+        rebuilder.start();
+        SearchMode[] modes = SearchMode.values();
+        for(int t = 0; t < threads; t++)
+        {
+            int seed = t;
+            new Thread(() -> {
+                try {
+                    int i = seed * 7919;
+                    while(running.get())
+                    {
+                        String from = names.get(i % names.size());
+                        String to = names.get((i / names.size()) % names.size());
+                        SearchMode mode = modes[i % modes.length];
+                        i += 31;
+                        String result;
+                        try {
+                            result = campus.findPath(from, to, mode);
+                        } catch(IllegalStateException e) {
+                            // the rebuilder swapped in a map whose hierarchy or table is not built yet
+                            unbuiltModes.incrementAndGet();
+                            continue;
+                        }
+                        String reference = expected.get(from + "|" + to);
+                        if(!result.equals(reference) && !total(result).equals(total(reference)))
+                            lengthMismatches.incrementAndGet();
+                        queries.incrementAndGet();
+                    }
+                } catch(Throwable e) {
+                    synchronized(failures) { failures.add(e); }
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        done.await();
+        System.out.printf("stress: %d threads, %d queries, %d rebuilds, %d queries hit an unbuilt structure, "
+                + "%d wrong lengths, %d exceptions%n", threads, queries.get(), rebuilds.get(), unbuiltModes.get(),
+                lengthMismatches.get(), failures.size());
+        for(Throwable failure: failures)
+            failure.printStackTrace();
+        if(lengthMismatches.get() > 0 || !failures.isEmpty())
+            throw new AssertionError("concurrent queries disagreed with the reference");
+    }
+
+    private static String total(String route)
+    {
+        int at = route.lastIndexOf("Total");
+        return at < 0 ? route : route.substring(at);
+    }
+
+    private static void scaling(int seconds, int maxThreads) throws InterruptedException
+    {
+        CampusGraph campus = new CampusGraph(0);
+        campus.createGraph(BenchMaps.RPI_NODES, BenchMaps.RPI_EDGES);
+        ArrayList<String> names = buildings(campus);
+        System.out.printf("scaling (%d cores, route cache off):%n", Runtime.getRuntime().availableProcessors());
+        double single = 0;
+        // the first round at one thread only warms up the JIT
+        for(int threads = 1, round = 0; threads <= maxThreads; threads = round++ == 0 ? 1 : threads * 2)
+        {
+            AtomicBoolean running = new AtomicBoolean(true);
+            AtomicLong queries = new AtomicLong();
+            Thread[] workers = new Thread[threads];
+            for(int t = 0; t < threads; t++)
+            {
+                int seed = t;
+                workers[t] = new Thread(() -> {
+                    int i = seed * 7919;
+                    long count = 0;
+                    while(running.get())
+                    {
+                        campus.findPath(names.get(i % names.size()), names.get((i / names.size()) % names.size()));
+                        i += 31;
+                        count++;
+                    }
+                    queries.addAndGet(count);
+                });
+                workers[t].start();
+            }
+            Thread.sleep(seconds * 1000L);
+            running.set(false);
+            for(Thread worker: workers)
+                worker.join();
+            double perSecond = queries.get() / (double) seconds;
+            if(round == 0)
+                continue;
+            if(threads == 1)
+                single = perSecond;
+            System.out.printf("  %3d threads %12.0f queries/s  %5.2fx%n", threads, perSecond, perSecond / single);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        stress(seconds, maxThreads);
+        scaling(seconds, maxThreads);
+    }
+}
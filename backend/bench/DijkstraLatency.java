@@ -0,0 +1,80 @@
+package backend.bench;
+
+import backend.CompactGraph;
+import backend.PathFinder;
+import backend.SearchWorkspace;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * <b>DijkstraLatency</b> compares the boxed HashMap Dijkstra with the
+ * primitive indexed-heap Dijkstra on random point-to-point queries, and
+ * reports the bytes allocated per query by each.
+ * Usage: java backend.bench.DijkstraLatency [gridSide]
+ * The grid defaults to 1000 x 1000 (1M nodes); the boxed variant is only run
+ * on grids of up to 250k nodes because it needs several GB of heap beyond that.
+ */
+public class DijkstraLatency
+{
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long allocated()
+    {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void run(String label, BenchMaps map, int queries, boolean boxed)
+    {
+        CompactGraph<String> compact = map.graph.freeze();
+        int n = compact.size();
+        Random random = new Random(7);
+        int[] from = new int[queries];
+        int[] to = new int[queries];
+        for(int i = 0; i < queries; i++)
+        {
+            from[i] = random.nextInt(n);
+            to[i] = random.nextInt(n);
+        }
+
+        SearchWorkspace workspace = SearchWorkspace.forThread(n);
+        double check = 0;
+        for(int i = 0; i < Math.min(queries, 50); i++)
+            check += PathFinder.dijkstra(compact, from[i], to[i], workspace);
+        long bytes = allocated();
+        long start = System.nanoTime();
+        for(int i = 0; i < queries; i++)
+            check += PathFinder.dijkstra(compact, from[i], to[i], workspace);
+        long primitiveNanos = System.nanoTime() - start;
+        long primitiveBytes = allocated() - bytes;
+
+        System.out.printf("%-12s nodes=%d queries=%d%n", label, n, queries);
+        System.out.printf("  primitive  %10.1f us/query %10d bytes/query%n",
+                primitiveNanos / 1e3 / queries, primitiveBytes / queries);
+        if(boxed)
+        {
+            for(int i = 0; i < Math.min(queries, 10); i++)
+                PathFinder.dijkstra(compact.node(from[i]), compact.node(to[i]), map.graph, new HashMap<>(), false);
+            bytes = allocated();
+            start = System.nanoTime();
+            for(int i = 0; i < queries; i++)
+                PathFinder.dijkstra(compact.node(from[i]), compact.node(to[i]), map.graph, new HashMap<>(), false);
+            long boxedNanos = System.nanoTime() - start;
+            long boxedBytes = allocated() - bytes;
+            System.out.printf("  boxed      %10.1f us/query %10d bytes/query  (%.1fx slower)%n",
+                    boxedNanos / 1e3 / queries, boxedBytes / queries, (double) boxedNanos / primitiveNanos);
+        }
+        if(Double.isNaN(check))
+            System.out.println(check);
+    }
+
+    public static void main(String[] args)
+    {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        run("RPI", BenchMaps.rpi(), 20000, true);
+        SyntheticCampus grid = SyntheticCampus.grid(side, side, 42);
+        run("grid " + side + "x" + side, BenchMaps.of(grid), 50, side * side <= 250_000);
+    }
+}
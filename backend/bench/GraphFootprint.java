@@ -0,0 +1,54 @@
+package backend.bench;
+
+import backend.CompactGraph;
+import backend.Graph;
+
+/**
+ * <b>GraphFootprint</b> compares the retained heap of the mutable
+ * HashMap-of-HashMap Graph with the frozen CSR CompactGraph for synthetic
+ * grids of growing size. The id Strings are shared by both graphs, so they
+ * are counted only in the Graph column.
+ * Usage: java backend.bench.GraphFootprint [side ...]
+ */
+public class GraphFootprint
+{
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 4; i++)
+        {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args)
+    {
+        int[] sides = args.length == 0 ? new int[]{100, 300, 500} : new int[args.length];
+        for(int i = 0; i < args.length; i++)
+            sides[i] = Integer.parseInt(args[i]);
+
+        System.out.printf("%10s %10s %14s %14s %8s%n", "nodes", "edges", "Graph bytes", "Compact bytes", "ratio");
+        for(int side: sides)
+        {
+            SyntheticCampus campus = SyntheticCampus.grid(side, side, 42);
+            long base = usedHeap();
+            Graph<String,String> graph = campus.toGraph();
+            long withGraph = usedHeap();
+            CompactGraph<String> compact = graph.freeze();
+            long withBoth = usedHeap();
+            long graphBytes = withGraph - base;
+            long compactBytes = withBoth - withGraph;
+            System.out.printf("%10d %10d %14d %14d %7.1fx%n", compact.size(), compact.edgeCount(),
+                    graphBytes, compactBytes, (double) graphBytes / compactBytes);
+            // keep both reachable until after the last measurement
+            if(graph.getAllNodes().size() != compact.size())
+                throw new AssertionError();
+        }
+    }
+}
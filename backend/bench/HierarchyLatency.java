@@ -0,0 +1,84 @@
+package backend.bench;
+
+import backend.CompactGraph;
+import backend.ContractionHierarchy;
+import backend.PathFinder;
+import backend.SearchWorkspace;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * <b>HierarchyLatency</b> measures contraction hierarchy preprocessing time,
+ * size and reload time, then compares its query latency with Dijkstra on
+ * random pairs, checking that both agree on every length and that the
+ * unpacked path has that length.
+ * Usage: java backend.bench.HierarchyLatency [gridSide]
+ */
+public class HierarchyLatency
+{
+    private static void run(String label, CompactGraph<String> compact, int queries) throws IOException
+    {
+        long start = System.nanoTime();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(compact);
+        long buildNanos = System.nanoTime() - start;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        hierarchy.write(new DataOutputStream(bytes));
+        start = System.nanoTime();
+        hierarchy = ContractionHierarchy.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        long readNanos = System.nanoTime() - start;
+
+        System.out.printf("%s: nodes=%d edges=%d hierarchy edges=%d build=%.1f ms file=%d KB reload=%.1f ms%n",
+                label, compact.size(), compact.edgeCount(), hierarchy.edgeCount(), buildNanos / 1e6,
+                bytes.size() / 1024, readNanos / 1e6);
+
+        Random random = new Random(3);
+        int n = compact.size();
+        SearchWorkspace workspace = SearchWorkspace.forThread(n);
+        long dijkstraNanos = 0;
+        long hierarchyNanos = 0;
+        long dijkstraSettled = 0;
+        long hierarchySettled = 0;
+        for(int q = 0; q < queries; q++)
+        {
+            int s = random.nextInt(n);
+            int t = random.nextInt(n);
+            long t0 = System.nanoTime();
+            double expected = PathFinder.dijkstra(compact, s, t, workspace);
+            long t1 = System.nanoTime();
+            dijkstraSettled += workspace.settledCount();
+            double actual = hierarchy.query(s, t, workspace);
+            long t2 = System.nanoTime();
+            hierarchySettled += workspace.settledCount();
+            dijkstraNanos += t1 - t0;
+            hierarchyNanos += t2 - t1;
+            if(Math.abs(expected - actual) > 1e-6 * Math.max(1, expected))
+                throw new AssertionError("length mismatch " + s + " -> " + t + ": " + expected + " " + actual);
+            if(!Double.isInfinite(actual))
+            {
+                int length = hierarchy.tracePath(workspace, t);
+                double walked = 0;
+                for(int i = 1; i < length; i++)
+                    walked += compact.weight(compact.findEdge(workspace.pathNode(i - 1), workspace.pathNode(i)));
+                if(Math.abs(walked - actual) > 1e-6 * Math.max(1, actual))
+                    throw new AssertionError("unpacked path " + s + " -> " + t + " has length " + walked);
+            }
+        }
+        System.out.printf("  dijkstra   %10.1f us/query %10.1f settled/query%n",
+                dijkstraNanos / 1e3 / queries, (double) dijkstraSettled / queries);
+        System.out.printf("  hierarchy  %10.1f us/query %10.1f settled/query (%.0fx faster)%n",
+                hierarchyNanos / 1e3 / queries, (double) hierarchySettled / queries, (double) dijkstraNanos / hierarchyNanos);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        run("RPI", BenchMaps.rpi().graph.freeze(), 5000);
+        run("grid " + side + "x" + side, SyntheticCampus.grid(side, side, 42).toGraph().freeze(), 200);
+    }
+}
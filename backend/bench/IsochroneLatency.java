@@ -0,0 +1,149 @@
+package backend.bench;
+
+import backend.CampusGraph;
+import backend.CompactGraph;
+import backend.Coordinate;
+import backend.Isochrone;
+import backend.PathFinder;
+import backend.RoutingProfile;
+import backend.SearchWorkspace;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <b>IsochroneLatency</b> times finding every node within a radius as the
+ * radius grows, on the RPI map and on a synthetic one: dijkstraWithin,
+ * which never labels a node beyond the radius, against a full Dijkstra
+ * filtered afterwards. The radius is a fraction of the map's diagonal.
+ * It then times reachableWithin for every building at once, boundary
+ * polygons included.
+ * Usage: java backend.bench.IsochroneLatency [grid:SIDE|geometric:N] [queries]
+ */
+public class IsochroneLatency
+{
+    private static final double[] FRACTIONS = {0.02, 0.05, 0.1, 0.25, 0.5};
+
+    public static void main(String[] args) throws IOException
+    {
+        String spec = args.length > 0 ? args[0] : "grid:300";
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        run("rpi", BenchMaps.rpi(), 2000);
+        SyntheticCampus campus = SyntheticCampus.parse(spec);
+        run(spec, BenchMaps.of(campus), queries);
+
+        CampusGraph rpi = new CampusGraph(0);
+        rpi.createGraph(BenchMaps.RPI_NODES, BenchMaps.RPI_EDGES);
+        batch("rpi", rpi, 200, 50);
+        File nodes = File.createTempFile("campus-nodes", ".csv");
+        File edges = File.createTempFile("campus-edges", ".csv");
+        nodes.deleteOnExit();
+        edges.deleteOnExit();
+        campus.writeCsv(nodes.getPath(), edges.getPath());
+        CampusGraph synthetic = new CampusGraph(0);
+        synthetic.createGraph(nodes.getPath(), edges.getPath());
+        batch(spec, synthetic, 200, 3);
+    }
+
+    private static void run(String name, BenchMaps maps, int queries)
+    {
+        CompactGraph<String> graph = maps.graph.freeze();
+        double[] weights = new double[graph.edgeCount()];
+        for(int e = 0; e < weights.length; e++)
+            weights[e] = graph.weight(e);
+        double diagonal = diagonal(maps);
+        Random random = new Random(11);
+        int[] sources = new int[queries];
+        for(int q = 0; q < queries; q++)
+            sources[q] = random.nextInt(graph.size());
+        SearchWorkspace workspace = new SearchWorkspace(graph.size());
+        System.out.printf("%s nodes=%d queries=%d%n", name, graph.size(), queries);
+        for(double fraction: FRACTIONS)
+        {
+            double radius = fraction * diagonal;
+            long bounded = 0;
+            long full = 0;
+            long within = 0;
+            for(int warm = 0; warm < 3; warm++)
+            {
+                bounded = 0;
+                full = 0;
+                within = 0;
+                for(int source: sources)
+                {
+                    long t0 = System.nanoTime();
+                    int count = PathFinder.dijkstraWithin(graph, weights, source, radius, workspace);
+                    long t1 = System.nanoTime();
+                    PathFinder.dijkstra(graph, weights, source, -1, workspace);
+                    int filtered = 0;
+                    for(int v = 0; v < graph.size(); v++)
+                    {
+                        if(workspace.distance(v) <= radius)
+                            filtered++;
+                    }
+                    long t2 = System.nanoTime();
+                    if(filtered != count)
+                        throw new AssertionError("bounded search found " + count + " nodes, not " + filtered);
+                    bounded += t1 - t0;
+                    full += t2 - t1;
+                    within += count;
+                }
+            }
+            System.out.printf("  radius %4.0f%% of diagonal  %8.0f nodes  bounded %9.1f us/query"
+                            + "  full search %9.1f us/query (%5.1fx)%n",
+                    100 * fraction, (double) within / queries, bounded / 1e3 / queries, full / 1e3 / queries,
+                    (double) full / Math.max(1, bounded));
+        }
+    }
+
+    // the areas within radius of every building, in one batch
+    private static void batch(String name, CampusGraph graph, double radius, int rounds)
+    {
+        ArrayList<String> ids = new ArrayList<>();
+        Iterator<String> buildings = graph.listAllBuildings();
+        while(buildings.hasNext())
+        {
+            String line = buildings.next();
+            ids.add(line.substring(line.lastIndexOf(',') + 1));
+        }
+        String[] all = ids.toArray(new String[0]);
+        long nanos = 0;
+        long found = 0;
+        for(int warm = 0; warm < 2; warm++)
+        {
+            found = 0;
+            long start = System.nanoTime();
+            for(int r = 0; r < rounds; r++)
+            {
+                List<Isochrone> areas = graph.reachableWithin(all, radius, RoutingProfile.SHORTEST);
+                for(Isochrone area: areas)
+                    found += area.getBuildings().length;
+            }
+            nanos = System.nanoTime() - start;
+        }
+        System.out.printf("%s reachableWithin %d buildings, radius %.0f: %.2f ms/batch, %.1f buildings each, "
+                        + "%d threads%n",
+                name, all.length, radius, nanos / 1e6 / rounds, (double) found / rounds / all.length,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    private static double diagonal(BenchMaps maps)
+    {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for(Coordinate c: maps.coordinates.values())
+        {
+            minX = Math.min(minX, c.getX());
+            minY = Math.min(minY, c.getY());
+            maxX = Math.max(maxX, c.getX());
+            maxY = Math.max(maxY, c.getY());
+        }
+        return Math.hypot(maxX - minX, maxY - minY);
+    }
+}
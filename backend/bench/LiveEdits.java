@@ -0,0 +1,83 @@
+package backend.bench;
+
+import backend.CampusGraph;
+import backend.RouteCache;
+import backend.SearchMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * <b>LiveEdits</b> times live walkway closures, reopenings and reweights on
+ * a generated map with a building table and a warm route cache, against
+ * rebuilding the table, and reports how many cached routes survive a
+ * closure.
+ * Usage: java backend.bench.LiveEdits [grid:N|geometric:N] [edits]
+ */
+public class LiveEdits
+{
+    public static void main(String[] args) throws IOException
+    {
+        String spec = args.length > 0 ? args[0] : "grid:200";
+        int edits = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        SyntheticCampus campus = SyntheticCampus.parse(spec);
+        File nodes = File.createTempFile("campus-nodes", ".csv");
+        File edges = File.createTempFile("campus-edges", ".csv");
+        nodes.deleteOnExit();
+        edges.deleteOnExit();
+        campus.writeCsv(nodes.getPath(), edges.getPath());
+
+        CampusGraph graph = new CampusGraph(4096);
+        graph.createGraph(nodes.getPath(), edges.getPath());
+        long start = System.nanoTime();
+        graph.createBuildingTable();
+        double tableMs = (System.nanoTime() - start) / 1e6;
+        ArrayList<String> buildings = new ArrayList<>();
+        Iterator<String> it = graph.listAllBuildings();
+        while(it.hasNext())
+        {
+            String line = it.next();
+            buildings.add(line.substring(0, line.lastIndexOf(',')));
+        }
+        System.out.printf("%s: nodes=%d buildings=%d, building table built in %.1f ms%n",
+                spec, campus.size, buildings.size(), tableMs);
+
+        Random random = new Random(5);
+        long closeNanos = 0;
+        long reopenNanos = 0;
+        long reweightNanos = 0;
+        long kept = 0;
+        long before = 0;
+        for(int i = 0; i < edits; i++)
+        {
+            for(int q = 0; q < 2000; q++)
+                graph.findPath(buildings.get(random.nextInt(buildings.size())),
+                        buildings.get(random.nextInt(buildings.size())), SearchMode.BUILDING_TABLE);
+            int e = random.nextInt(campus.edgeFrom.length);
+            String a = String.valueOf(campus.edgeFrom[e]);
+            String b = String.valueOf(campus.edgeTo[e]);
+            before += graph.getRouteCache().size();
+            long t0 = System.nanoTime();
+            graph.closeEdge(a, b);
+            long t1 = System.nanoTime();
+            kept += graph.getRouteCache().size();
+            graph.reopenEdge(a, b);
+            long t2 = System.nanoTime();
+            graph.setEdge(a, b, 1e6);
+            long t3 = System.nanoTime();
+            graph.clearEdits();
+            closeNanos += t1 - t0;
+            reopenNanos += t2 - t1;
+            reweightNanos += t3 - t2;
+        }
+        RouteCache cache = graph.getRouteCache();
+        System.out.printf("  closeEdge  %8.2f ms/edit, %.1f%% of cached routes kept%n",
+                closeNanos / 1e6 / edits, 100.0 * kept / Math.max(1, before));
+        System.out.printf("  reopenEdge %8.2f ms/edit%n", reopenNanos / 1e6 / edits);
+        System.out.printf("  setEdge    %8.2f ms/edit%n", reweightNanos / 1e6 / edits);
+        System.out.printf("  route cache hit rate %.1f%%%n", 100 * cache.getHitRate());
+    }
+}
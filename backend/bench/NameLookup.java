@@ -0,0 +1,96 @@
+package backend.bench;
+
+import backend.CampusGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * <b>NameLookup</b> times the building name index on a generated map:
+ * listAllBuildings against sorting the names on every call as it used to,
+ * completeBuilding at every keystroke of a name, and findBuildings on
+ * misspelled names.
+ * Usage: java backend.bench.NameLookup [grid:N|geometric:N] [rounds]
+ */
+public class NameLookup
+{
+    public static void main(String[] args) throws IOException
+    {
+        String spec = args.length > 0 ? args[0] : "geometric:300000";
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        SyntheticCampus campus = SyntheticCampus.parse(spec);
+        File nodes = File.createTempFile("campus-nodes", ".csv");
+        File edges = File.createTempFile("campus-edges", ".csv");
+        nodes.deleteOnExit();
+        edges.deleteOnExit();
+        campus.writeCsv(nodes.getPath(), edges.getPath());
+        CampusGraph graph = new CampusGraph(0);
+        graph.createGraph(nodes.getPath(), edges.getPath());
+        ArrayList<String> names = new ArrayList<>();
+        Iterator<String> it = graph.listAllBuildings();
+        while(it.hasNext())
+        {
+            String line = it.next();
+            names.add(line.substring(0, line.lastIndexOf(',')));
+        }
+
+        long found = 0;
+        long start = System.nanoTime();
+        for(int r = 0; r < 20; r++)
+        {
+            ArrayList<String> sorted = new ArrayList<>(names.size());
+            for(String name: names)
+                sorted.add(name + "," + r);
+            Collections.sort(sorted);
+            found += sorted.size();
+        }
+        double sortMs = (System.nanoTime() - start) / 1e6 / 20;
+        start = System.nanoTime();
+        for(int r = 0; r < 20; r++)
+        {
+            for(it = graph.listAllBuildings(); it.hasNext(); it.next())
+                found++;
+        }
+        double listMs = (System.nanoTime() - start) / 1e6 / 20;
+
+        Random random = new Random(3);
+        long keystrokes = 0;
+        start = System.nanoTime();
+        for(int r = 0; r < rounds; r++)
+        {
+            String name = names.get(random.nextInt(names.size()));
+            for(int end = 1; end <= name.length(); end++)
+                found += graph.completeBuilding(name.substring(0, end), 10).length;
+            keystrokes += name.length();
+        }
+        double completeNanos = (double) (System.nanoTime() - start) / keystrokes;
+
+        int hits = 0;
+        start = System.nanoTime();
+        for(int r = 0; r < rounds; r++)
+        {
+            String name = names.get(random.nextInt(names.size()));
+            // swap two neighbouring letters
+            int i = 1 + random.nextInt(name.length() - 2);
+            String typo = name.substring(0, i) + name.charAt(i + 1) + name.charAt(i) + name.substring(i + 2);
+            String[] ids = graph.findBuildings(typo, 10);
+            for(String id: ids)
+            {
+                if(name.endsWith(" " + id))
+                    hits++;
+            }
+        }
+        double searchNanos = (double) (System.nanoTime() - start) / rounds;
+
+        System.out.printf("%s: %d buildings (%d)%n", spec, names.size(), found);
+        System.out.printf("  sort on every call %10.2f ms/call%n", sortMs);
+        System.out.printf("  listAllBuildings   %10.2f ms/call%n", listMs);
+        System.out.printf("  completeBuilding   %10.2f us/keystroke%n", completeNanos / 1e3);
+        System.out.printf("  findBuildings      %10.2f us/query, misspelled name in the top 10 for %d of %d%n",
+                searchNanos / 1e3, hits, rounds);
+    }
+}
@@ -0,0 +1,122 @@
+package backend.bench;
+
+import backend.CampusGraph;
+import backend.CampusParser;
+import backend.Coordinate;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * <b>NearestNode</b> compares snapping random points to the nearest node
+ * with a scan over every Coordinate against the spatial index behind
+ * CampusGraph.nearestNode, and times k-nearest and radius queries.
+ * Usage: java backend.bench.NearestNode [grid:N|geometric:N] [queries]
+ */
+public class NearestNode
+{
+    public static void main(String[] args) throws IOException
+    {
+        String spec = args.length > 0 ? args[0] : "geometric:200000";
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        SyntheticCampus campus = SyntheticCampus.parse(spec);
+        File nodes = File.createTempFile("campus-nodes", ".csv");
+        File edges = File.createTempFile("campus-edges", ".csv");
+        nodes.deleteOnExit();
+        edges.deleteOnExit();
+        campus.writeCsv(nodes.getPath(), edges.getPath());
+        CampusGraph graph = new CampusGraph(0);
+        graph.createGraph(nodes.getPath(), edges.getPath());
+        // the CSV holds whole-pixel positions, so scan what was loaded
+        HashMap<String,Coordinate> loaded = new HashMap<>();
+        CampusParser.readNodeData(nodes.getPath(), new HashMap<>(), new HashMap<>(), loaded);
+        Coordinate[] coordinates = loaded.values().toArray(new Coordinate[0]);
+
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < campus.size; i++)
+        {
+            minX = Math.min(minX, campus.x[i]);
+            maxX = Math.max(maxX, campus.x[i]);
+            minY = Math.min(minY, campus.y[i]);
+            maxY = Math.max(maxY, campus.y[i]);
+        }
+        Random random = new Random(11);
+        double[] qx = new double[queries];
+        double[] qy = new double[queries];
+        for(int q = 0; q < queries; q++)
+        {
+            qx[q] = minX + random.nextDouble() * (maxX - minX);
+            qy[q] = minY + random.nextDouble() * (maxY - minY);
+        }
+
+        long start = System.nanoTime();
+        graph.nearestNode(qx[0], qy[0]);
+        double buildMs = (System.nanoTime() - start) / 1e6;
+        // the scan is far slower, so it gets a fraction of the queries
+        int scanned = Math.max(1, queries / 100);
+        int mismatches = 0;
+        long scanNanos = 0;
+        long indexNanos = 0;
+        for(int q = 0; q < scanned; q++)
+        {
+            long t0 = System.nanoTime();
+            String scan = scan(coordinates, qx[q], qy[q]);
+            long t1 = System.nanoTime();
+            String indexed = graph.nearestNode(qx[q], qy[q]);
+            indexNanos += System.nanoTime() - t1;
+            scanNanos += t1 - t0;
+            if(squared(loaded.get(scan), qx[q], qy[q]) != squared(loaded.get(indexed), qx[q], qy[q]))
+                mismatches++;
+        }
+        start = System.nanoTime();
+        long found = 0;
+        for(int q = 0; q < queries; q++)
+            found += graph.nearestNode(qx[q], qy[q]).length();
+        double nearestNanos = (double) (System.nanoTime() - start) / queries;
+        start = System.nanoTime();
+        for(int q = 0; q < queries; q++)
+            found += graph.nearestNodes(qx[q], qy[q], 10).length;
+        double knnNanos = (double) (System.nanoTime() - start) / queries;
+        double radius = Math.sqrt((maxX - minX) * (maxY - minY) * 20 / Math.PI / campus.size);
+        start = System.nanoTime();
+        long within = 0;
+        for(int q = 0; q < queries; q++)
+            within += graph.nodesWithin(qx[q], qy[q], radius).length;
+        double radiusNanos = (double) (System.nanoTime() - start) / queries;
+
+        System.out.printf("%s: %d nodes, index built on first query in %.1f ms (%d)%n", spec, campus.size, buildMs, found);
+        System.out.printf("  nearest, linear scan   %10.1f us/query%n", scanNanos / 1e3 / scanned);
+        System.out.printf("  nearest, spatial index %10.2f us/query (%d of %d differ from the scan)%n",
+                indexNanos / 1e3 / scanned, mismatches, scanned);
+        System.out.printf("  nearest                %10.2f us/query%n", nearestNanos / 1e3);
+        System.out.printf("  10 nearest             %10.2f us/query%n", knnNanos / 1e3);
+        System.out.printf("  within %.1f            %10.2f us/query, %.1f nodes each%n",
+                radius, radiusNanos / 1e3, (double) within / queries);
+    }
+
+    private static String scan(Coordinate[] coordinates, double x, double y)
+    {
+        Coordinate best = null;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for(Coordinate c: coordinates)
+        {
+            double d = squared(c, x, y);
+            if(d < bestDistance)
+            {
+                best = c;
+                bestDistance = d;
+            }
+        }
+        return best.getId();
+    }
+
+    private static double squared(Coordinate c, double x, double y)
+    {
+        double dx = c.getX() - x;
+        double dy = c.getY() - y;
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,64 @@
+package backend.bench;
+
+import backend.CampusGraph;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * <b>OneToManyDistances</b> compares getting the distance from one building
+ * to every building with one findPath per destination against a single
+ * distancesFrom call, and times a full building distanceMatrix.
+ * Usage: java backend.bench.OneToManyDistances [rounds]
+ */
+public class OneToManyDistances
+{
+    public static void main(String[] args)
+    {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        CampusGraph campus = new CampusGraph(0);
+        campus.createGraph(BenchMaps.RPI_NODES, BenchMaps.RPI_EDGES);
+        ArrayList<String> ids = new ArrayList<>();
+        Iterator<String> buildings = campus.listAllBuildings();
+        while(buildings.hasNext())
+        {
+            String line = buildings.next();
+            ids.add(line.substring(line.lastIndexOf(',') + 1));
+        }
+        String[] all = ids.toArray(new String[0]);
+
+        long chars = 0;
+        double sum = 0;
+        for(int warm = 0; warm < 2; warm++)
+        {
+            long start = System.nanoTime();
+            for(int r = 0; r < rounds; r++)
+            {
+                for(String to: all)
+                    chars += campus.findPath(all[r % all.length], to).length();
+            }
+            long perPairNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for(int r = 0; r < rounds; r++)
+            {
+                for(double d: campus.distancesFrom(all[r % all.length], all))
+                    sum += d;
+            }
+            long oneToManyNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            double[][] matrix = campus.distanceMatrix(all, all);
+            long matrixNanos = System.nanoTime() - start;
+            sum += matrix[0][0];
+            if(warm == 1)
+            {
+                System.out.printf("%d destinations per source%n", all.length);
+                System.out.printf("  findPath per destination %10.1f us/source%n", perPairNanos / 1e3 / rounds);
+                System.out.printf("  distancesFrom            %10.1f us/source (%.0fx faster)%n",
+                        oneToManyNanos / 1e3 / rounds, (double) perPairNanos / oneToManyNanos);
+                System.out.printf("  distanceMatrix %dx%d    %10.1f us%n", all.length, all.length, matrixNanos / 1e3);
+            }
+        }
+        if(chars == 0 || Double.isNaN(sum))
+            throw new AssertionError();
+    }
+}
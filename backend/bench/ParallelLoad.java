@@ -0,0 +1,67 @@
+package backend.bench;
+
+import backend.CampusGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <b>ParallelLoad</b> measures CampusGraph.createGraph on a generated map
+ * with 1, 2, 4, ... worker threads up to the number of cores and reports
+ * the speedup over one thread, next to the old build through Graph.setEdge
+ * (BenchMaps). Each thread count runs createGraph inside a fork-join pool
+ * of that size; Arrays.parallelSort follows the common pool parallelism,
+ * so set -Djava.util.concurrent.ForkJoinPool.common.parallelism as well
+ * to restrict the sort.
+ * Usage: java backend.bench.ParallelLoad [grid:N|geometric:N] [runs]
+ */
+public class ParallelLoad
+{
+    private static double time(ForkJoinPool pool, String nodes, String edges, int runs)
+    {
+        double best = Double.MAX_VALUE;
+        for(int r = 0; r < runs; r++)
+        {
+            long start = System.nanoTime();
+            pool.submit(() -> new CampusGraph(0).createGraph(nodes, edges)).join();
+            best = Math.min(best, (System.nanoTime() - start) / 1e6);
+        }
+        return best;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        String spec = args.length > 0 ? args[0] : "geometric:300000";
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        SyntheticCampus campus = SyntheticCampus.parse(spec);
+        File nodes = File.createTempFile("campus-nodes", ".csv");
+        File edges = File.createTempFile("campus-edges", ".csv");
+        nodes.deleteOnExit();
+        edges.deleteOnExit();
+        campus.writeCsv(nodes.getPath(), edges.getPath());
+        System.out.printf("%s: nodes=%d edges=%d, %d MB of CSV%n", spec, campus.size, campus.edgeFrom.length,
+                (nodes.length() + edges.length()) >> 20);
+
+        double graphBuild = Double.MAX_VALUE;
+        for(int r = 0; r < runs; r++)
+        {
+            long start = System.nanoTime();
+            BenchMaps.rpi(nodes.getPath(), edges.getPath()).graph.freeze();
+            graphBuild = Math.min(graphBuild, (System.nanoTime() - start) / 1e6);
+        }
+        System.out.printf("  Graph.setEdge + freeze  %8.1f ms%n", graphBuild);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        double single = 0;
+        for(int threads = 1; threads <= cores; threads = threads * 2 > cores && threads < cores ? cores : threads * 2)
+        {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            double ms = time(pool, nodes.getPath(), edges.getPath(), runs);
+            pool.shutdown();
+            if(threads == 1)
+                single = ms;
+            System.out.printf("  createGraph %3d threads %8.1f ms  speedup %.2fx%n", threads, ms, single / ms);
+        }
+    }
+}
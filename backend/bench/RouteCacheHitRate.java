@@ -0,0 +1,94 @@
+package backend.bench;
+
+import backend.CampusGraph;
+import backend.RouteCache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * <b>RouteCacheHitRate</b> replays skewed kiosk-like traffic (Zipf over
+ * building pairs) through CampusGraph.findPath with and without the route
+ * cache and reports latency and the cache counters.
+ * Usage: java backend.bench.RouteCacheHitRate [queries] [capacity]
+ */
+public class RouteCacheHitRate
+{
+    private static double run(CampusGraph campus, String[] from, String[] to)
+    {
+        long start = System.nanoTime();
+        int chars = 0;
+        for(int q = 0; q < from.length; q++)
+            chars += campus.findPath(from[q], to[q]).length();
+        if(chars == 0)
+            throw new AssertionError();
+        return (System.nanoTime() - start) / 1e3 / from.length;
+    }
+
+    public static void main(String[] args)
+    {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+
+        ArrayList<String> names = new ArrayList<>();
+        CampusGraph uncached = new CampusGraph(0);
+        uncached.createGraph(BenchMaps.RPI_NODES, BenchMaps.RPI_EDGES);
+        Iterator<String> buildings = uncached.listAllBuildings();
+        while(buildings.hasNext())
+        {
+            String line = buildings.next();
+            names.add(line.substring(0, line.lastIndexOf(',')));
+        }
+
+        // pair rank r is drawn with probability proportional to 1 / (r + 1)
+        int pairs = names.size() * names.size();
+        double[] cumulative = new double[pairs];
+        double total = 0;
+        for(int r = 0; r < pairs; r++)
+        {
+            total += 1.0 / (r + 1);
+            cumulative[r] = total;
+        }
+        Random random = new Random(5);
+        int[] shuffle = new int[pairs];
+        for(int i = 0; i < pairs; i++)
+            shuffle[i] = i;
+        for(int i = pairs - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int swap = shuffle[i];
+            shuffle[i] = shuffle[j];
+            shuffle[j] = swap;
+        }
+        String[] from = new String[queries];
+        String[] to = new String[queries];
+        for(int q = 0; q < queries; q++)
+        {
+            int r = java.util.Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            int pair = shuffle[r < 0 ? -r - 1 : r];
+            from[q] = names.get(pair / names.size());
+            to[q] = names.get(pair % names.size());
+        }
+
+        CampusGraph cached = new CampusGraph(capacity);
+        cached.createGraph(BenchMaps.RPI_NODES, BenchMaps.RPI_EDGES);
+        run(uncached, from, to);
+        run(cached, from, to);
+        cached.createGraph(BenchMaps.RPI_NODES, BenchMaps.RPI_EDGES);
+        double uncachedMicros = run(uncached, from, to);
+        RouteCache cache = cached.getRouteCache();
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        long evictions = cache.getEvictions();
+        double cachedMicros = run(cached, from, to);
+        hits = cache.getHits() - hits;
+        misses = cache.getMisses() - misses;
+        evictions = cache.getEvictions() - evictions;
+
+        System.out.printf("%d zipf queries over %d building pairs, cache capacity %d%n", queries, pairs, capacity);
+        System.out.printf("  uncached %8.2f us/query%n", uncachedMicros);
+        System.out.printf("  cached   %8.2f us/query  hit rate %.1f%%  hits %d  misses %d  evictions %d%n",
+                cachedMicros, 100.0 * hits / (hits + misses), hits, misses, evictions);
+    }
+}
@@ -0,0 +1,138 @@
+package backend.bench;
+
+import backend.CampusGraph;
+import backend.RouteServer;
+import backend.SearchMode;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <b>RouteLoad</b> drives a RouteServer with closed-loop clients over
+ * keep-alive connections: every client sends a route request for a random
+ * pair of buildings as soon as its last one is answered. It reports
+ * throughput, p50/p99 latency and how many requests were turned away.
+ * Without a url it serves the RPI map in process on a free port, with one
+ * worker per core and a queue of four per worker.
+ * Usage: java backend.bench.RouteLoad [url|-] [clients] [seconds] [mode]
+ */
+public class RouteLoad
+{
+    private static final Pattern ID = Pattern.compile("\"id\":\"([^\"]*)\"");
+
+    public static void main(String[] args) throws Exception
+    {
+        String url = args.length > 0 && !args[0].equals("-") ? args[0] : null;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        String mode = args.length > 3 ? args[3] : "DIJKSTRA";
+        RouteServer server = null;
+        if(url == null)
+        {
+            CampusGraph graph = new CampusGraph();
+            graph.createGraph(BenchMaps.RPI_NODES, BenchMaps.RPI_EDGES);
+            int threads = Runtime.getRuntime().availableProcessors();
+            server = new RouteServer(graph, SearchMode.DIJKSTRA, new InetSocketAddress("localhost", 0),
+                    threads, 4 * threads);
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String listing = client.send(HttpRequest.newBuilder(URI.create(url + "/buildings")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        ArrayList<String> ids = new ArrayList<>();
+        for(Matcher m = ID.matcher(listing); m.find(); )
+            ids.add(m.group(1));
+        String base = url;
+
+        long[][] latencies = new long[clients][];
+        int[][] statuses = new int[clients][3];
+        Thread[] threads = new Thread[clients];
+        long warmupEnd = System.nanoTime() + 2_000_000_000L;
+        long end = warmupEnd + seconds * 1_000_000_000L;
+        for(int c = 0; c < clients; c++)
+        {
+            int id = c;
+            threads[c] = new Thread(() -> {
+                Random random = new Random(id);
+                long[] nanos = new long[1 << 16];
+                int count = 0;
+                try
+                {
+                    while(true)
+                    {
+                        String from = ids.get(random.nextInt(ids.size()));
+                        String to = ids.get(random.nextInt(ids.size()));
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/route?from="
+                                + URLEncoder.encode(from, StandardCharsets.UTF_8) + "&to="
+                                + URLEncoder.encode(to, StandardCharsets.UTF_8) + "&mode=" + mode)).build();
+                        long t0 = System.nanoTime();
+                        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        long t1 = System.nanoTime();
+                        if(t1 > end)
+                            break;
+                        if(t0 < warmupEnd)
+                            continue;
+                        int status = response.statusCode();
+                        statuses[id][status == 503 ? 1 : status == 200 || status == 404 ? 0 : 2]++;
+                        if(count == nanos.length)
+                            nanos = Arrays.copyOf(nanos, 2 * count);
+                        nanos[count++] = t1 - t0;
+                    }
+                }
+                catch(IOException | InterruptedException e)
+                {
+                    statuses[id][2]++;
+                }
+                latencies[id] = Arrays.copyOf(nanos, count);
+            });
+            threads[c].start();
+        }
+        for(Thread thread: threads)
+            thread.join();
+
+        int total = 0;
+        int ok = 0, rejected = 0, failed = 0;
+        for(int c = 0; c < clients; c++)
+        {
+            total += latencies[c].length;
+            ok += statuses[c][0];
+            rejected += statuses[c][1];
+            failed += statuses[c][2];
+        }
+        long[] all = new long[total];
+        int at = 0;
+        for(long[] nanos: latencies)
+        {
+            System.arraycopy(nanos, 0, all, at, nanos.length);
+            at += nanos.length;
+        }
+        Arrays.sort(all);
+        System.out.printf("%s, %d clients, %d s, mode %s, %d buildings%n", url, clients, seconds, mode, ids.size());
+        System.out.printf("  %10.0f requests/s%n", (double) total / seconds);
+        System.out.printf("  p50 %8.2f ms, p99 %8.2f ms, max %8.2f ms%n",
+                percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, (all.length == 0 ? 0 : all[all.length - 1]) / 1e6);
+        System.out.printf("  %d answered, %d turned away (503), %d failed%n", ok, rejected, failed);
+        if(server != null)
+            server.stop(0);
+    }
+
+    private static long percentile(long[] sorted, double p)
+    {
+        if(sorted.length == 0)
+            return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,107 @@
+package backend.bench;
+
+import backend.CampusGraph;
+import backend.RouteResult;
+import backend.SearchMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * <b>RouteRendering</b> times formatting the directions of long routes on a
+ * generated map: the repeated string concatenation and String.format that
+ * findPath used to do, against streaming a RouteResult into one reused
+ * StringBuilder as text and as JSON. Every rendering is checked to match
+ * the old text byte for byte.
+ * Usage: java backend.bench.RouteRendering [grid:SIDE|geometric:N] [routes] [rounds]
+ */
+public class RouteRendering
+{
+    public static void main(String[] args) throws IOException
+    {
+        String spec = args.length > 0 ? args[0] : "grid:300";
+        int routes = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        SyntheticCampus campus = SyntheticCampus.parse(spec);
+        File nodes = File.createTempFile("campus-nodes", ".csv");
+        File edges = File.createTempFile("campus-edges", ".csv");
+        nodes.deleteOnExit();
+        edges.deleteOnExit();
+        campus.writeCsv(nodes.getPath(), edges.getPath());
+        CampusGraph graph = new CampusGraph(0);
+        graph.createGraph(nodes.getPath(), edges.getPath());
+        ArrayList<String> names = new ArrayList<>();
+        Iterator<String> it = graph.listAllBuildings();
+        while(it.hasNext())
+        {
+            String line = it.next();
+            names.add(line.substring(0, line.lastIndexOf(',')));
+        }
+
+        Random random = new Random(17);
+        RouteResult[] found = new RouteResult[routes];
+        long steps = 0;
+        for(int r = 0; r < routes; r++)
+        {
+            found[r] = graph.findRoute(names.get(random.nextInt(names.size())),
+                    names.get(random.nextInt(names.size())), SearchMode.ASTAR);
+            steps += found[r].getSteps().size();
+        }
+
+        int mismatches = 0;
+        for(RouteResult route: found)
+        {
+            if(!concatenated(route).equals(route.toText()))
+                mismatches++;
+        }
+        long chars = 0;
+        long start = System.nanoTime();
+        for(int round = 0; round < rounds; round++)
+        {
+            for(RouteResult route: found)
+                chars += concatenated(route).length();
+        }
+        double concatNanos = (double) (System.nanoTime() - start) / rounds / routes;
+        StringBuilder out = new StringBuilder();
+        start = System.nanoTime();
+        for(int round = 0; round < rounds; round++)
+        {
+            for(RouteResult route: found)
+            {
+                out.setLength(0);
+                chars += route.appendText(out).length();
+            }
+        }
+        double textNanos = (double) (System.nanoTime() - start) / rounds / routes;
+        start = System.nanoTime();
+        for(int round = 0; round < rounds; round++)
+        {
+            for(RouteResult route: found)
+            {
+                out.setLength(0);
+                chars += route.appendJson(out).length();
+            }
+        }
+        double jsonNanos = (double) (System.nanoTime() - start) / rounds / routes;
+
+        System.out.printf("%s: %d routes, %.0f steps each (%d)%n", spec, routes, (double) steps / routes, chars);
+        System.out.printf("  string concatenation %10.1f us/route%n", concatNanos / 1e3);
+        System.out.printf("  appendText           %10.1f us/route (%d of %d differ)%n", textNanos / 1e3, mismatches, routes);
+        System.out.printf("  appendJson           %10.1f us/route%n", jsonNanos / 1e3);
+    }
+
+    // the directions as findPath used to build them
+    private static String concatenated(RouteResult route)
+    {
+        if(!route.isFound())
+            return "There is no path from "+ route.getFrom() +" to "+ route.getTo() +".\n";
+        String text = "Path from "+ route.getFrom() +" to "+ route.getTo() +":\n";
+        for(RouteResult.Step step: route.getSteps())
+            text += "\tWalk "+ step.getDirection().label() + " to (" + step.getName() +")\n";
+        text += String.format("Total distance: %.3f pixel units.\n", route.getDistance());
+        return text;
+    }
+}
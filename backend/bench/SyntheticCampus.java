@@ -0,0 +1,245 @@
+package backend.bench;
+
+import backend.Coordinate;
+import backend.Graph;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * <b>SyntheticCampus</b> generates campus-like maps of any size so that the
+ * benchmarks can produce scaling curves beyond the bundled RPI data.
+ * Node ids are the decimal strings "0" .. "n-1"; every 50th node is a named
+ * building and the rest are intersections, like the RPI node file.
+ */
+public class SyntheticCampus
+{
+    public final int size;
+    public final double[] x;
+    public final double[] y;
+    public final int[] edgeFrom;
+    public final int[] edgeTo;
+
+    private SyntheticCampus(double[] x, double[] y, int[] edgeFrom, int[] edgeTo)
+    {
+        this.size = x.length;
+        this.x = x;
+        this.y = y;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+    }
+
+    /**
+     * @param: rows  Number of rows of the grid.
+     * @param: cols  Number of columns of the grid.
+     * @param: seed  Seed for the positional jitter.
+     * @requires  rows > 0 && cols > 0
+     * @returns   A rows x cols grid with 4-neighbour walkways; node positions
+     *            are jittered so that edge lengths are not all equal.
+     */
+    public static SyntheticCampus grid(int rows, int cols, long seed)
+    {
+        Random random = new Random(seed);
+        int n = rows * cols;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for(int r = 0; r < rows; r++)
+        {
+            for(int c = 0; c < cols; c++)
+            {
+                x[r * cols + c] = c * 10 + random.nextDouble() * 4;
+                y[r * cols + c] = r * 10 + random.nextDouble() * 4;
+            }
+        }
+        int m = rows * (cols - 1) + cols * (rows - 1);
+        int[] from = new int[m];
+        int[] to = new int[m];
+        int k = 0;
+        for(int r = 0; r < rows; r++)
+        {
+            for(int c = 0; c < cols; c++)
+            {
+                int u = r * cols + c;
+                if(c + 1 < cols)
+                {
+                    from[k] = u;
+                    to[k++] = u + 1;
+                }
+                if(r + 1 < rows)
+                {
+                    from[k] = u;
+                    to[k++] = u + cols;
+                }
+            }
+        }
+        return new SyntheticCampus(x, y, from, to);
+    }
+
+    /**
+     * @param: nodes   Number of nodes.
+     * @param: radius  Nodes closer than radius are joined by a walkway.
+     * @param: seed    Seed for the node positions.
+     * @requires  nodes > 0 && radius > 0
+     * @returns   A random geometric graph: nodes placed uniformly in a square
+     *            with the same density as grid (one node per 10 x 10 cell),
+     *            every pair closer than radius connected. A radius of about
+     *            15 gives an average degree near 7, like a street network.
+     */
+    public static SyntheticCampus randomGeometric(int nodes, double radius, long seed)
+    {
+        Random random = new Random(seed);
+        double side = Math.sqrt(nodes) * 10;
+        double[] x = new double[nodes];
+        double[] y = new double[nodes];
+        for(int i = 0; i < nodes; i++)
+        {
+            x[i] = random.nextDouble() * side;
+            y[i] = random.nextDouble() * side;
+        }
+
+        // bucket the nodes into radius-sized cells so only neighbouring cells are compared
+        int cells = Math.max(1, (int) (side / radius));
+        int[] cellStart = new int[cells * cells + 1];
+        int[] cellOf = new int[nodes];
+        for(int i = 0; i < nodes; i++)
+        {
+            int cx = Math.min(cells - 1, (int) (x[i] / radius));
+            int cy = Math.min(cells - 1, (int) (y[i] / radius));
+            cellOf[i] = cy * cells + cx;
+            cellStart[cellOf[i] + 1]++;
+        }
+        for(int c = 0; c < cells * cells; c++)
+            cellStart[c + 1] += cellStart[c];
+        int[] fill = cellStart.clone();
+        int[] byCell = new int[nodes];
+        for(int i = 0; i < nodes; i++)
+            byCell[fill[cellOf[i]]++] = i;
+
+        int[] from = new int[nodes * 4];
+        int[] to = new int[nodes * 4];
+        int m = 0;
+        for(int u = 0; u < nodes; u++)
+        {
+            int cx = cellOf[u] % cells;
+            int cy = cellOf[u] / cells;
+            for(int ny = Math.max(0, cy - 1); ny <= Math.min(cells - 1, cy + 1); ny++)
+            {
+                for(int nx = Math.max(0, cx - 1); nx <= Math.min(cells - 1, cx + 1); nx++)
+                {
+                    int c = ny * cells + nx;
+                    for(int k = cellStart[c]; k < cellStart[c + 1]; k++)
+                    {
+                        int v = byCell[k];
+                        double dx = x[u] - x[v];
+                        double dy = y[u] - y[v];
+                        if(v <= u || dx * dx + dy * dy >= radius * radius)
+                            continue;
+                        if(m == from.length)
+                        {
+                            from = Arrays.copyOf(from, m * 2);
+                            to = Arrays.copyOf(to, m * 2);
+                        }
+                        from[m] = u;
+                        to[m++] = v;
+                    }
+                }
+            }
+        }
+        return new SyntheticCampus(x, y, Arrays.copyOf(from, m), Arrays.copyOf(to, m));
+    }
+
+    /**
+     * @param: spec  "grid:&lt;side&gt;" or "geometric:&lt;nodes&gt;".
+     * @returns   The synthetic map described by spec, with a fixed seed.
+     * @throws    IllegalArgumentException if spec is not recognised.
+     */
+    public static SyntheticCampus parse(String spec)
+    {
+        String[] parts = spec.split(":");
+        if(parts.length == 2 && parts[0].equals("grid"))
+        {
+            int side = Integer.parseInt(parts[1]);
+            return grid(side, side, 42);
+        }
+        if(parts.length == 2 && parts[0].equals("geometric"))
+            return randomGeometric(Integer.parseInt(parts[1]), 15, 42);
+        throw new IllegalArgumentException("Unknown synthetic map: [" + spec + "]");
+    }
+
+    /**
+     * @param: id  A node index.
+     * @returns   The building name of node id, or "" for an intersection.
+     */
+    public static String name(int id)
+    {
+        return id % 50 == 0 ? "Building " + id : "";
+    }
+
+    /**
+     * @returns   A map from node id to the coordinate of that node.
+     */
+    public HashMap<String,Coordinate> coordinates()
+    {
+        HashMap<String,Coordinate> coordinates = new HashMap<>(size * 4 / 3 + 1);
+        for(int i = 0; i < size; i++)
+        {
+            String id = Integer.toString(i);
+            coordinates.put(id, new Coordinate(name(i), id, x[i], y[i]));
+        }
+        return coordinates;
+    }
+
+    /**
+     * @returns   A Graph with both directions of every walkway, weighted by
+     *            euclidean length, built the same way as CampusGraph.createGraph.
+     */
+    public Graph<String,String> toGraph()
+    {
+        Graph<String,String> graph = new Graph<>();
+        String[] ids = new String[size];
+        for(int i = 0; i < size; i++)
+        {
+            ids[i] = Integer.toString(i);
+            graph.addNode(ids[i]);
+        }
+        for(int e = 0; e < edgeFrom.length; e++)
+        {
+            int u = edgeFrom[e];
+            int v = edgeTo[e];
+            double distance = Math.sqrt((x[u] - x[v]) * (x[u] - x[v]) + (y[u] - y[v]) * (y[u] - y[v]));
+            graph.setEdge(ids[u], ids[v], distance);
+            graph.setEdge(ids[v], ids[u], distance);
+        }
+        return graph;
+    }
+
+    /**
+     * @param: nodeFilename  Where to write the node CSV.
+     * @param: edgeFilename  Where to write the edge CSV.
+     * @effects   Writes this map in the format read by CampusParser.
+     * @throws    IOException if either file cannot be written.
+     */
+    public void writeCsv(String nodeFilename, String edgeFilename) throws IOException
+    {
+        try(BufferedWriter writer = new BufferedWriter(new FileWriter(nodeFilename)))
+        {
+            for(int i = 0; i < size; i++)
+            {
+                writer.write(name(i) + "," + i + "," + (int) x[i] + "," + (int) y[i]);
+                writer.newLine();
+            }
+        }
+        try(BufferedWriter writer = new BufferedWriter(new FileWriter(edgeFilename)))
+        {
+            for(int e = 0; e < edgeFrom.length; e++)
+            {
+                writer.write(edgeFrom[e] + "," + edgeTo[e]);
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package backend.bench;
+
+import backend.CampusGraph;
+import backend.RoutingProfile;
+import backend.Tour;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * <b>TourQuality</b> measures how good planTour's order of the stops is
+ * against the time it is given, on the RPI map and on a synthetic one. For
+ * every number of stops it plans random round trips under each time limit
+ * and reports the mean time taken, matrix and legs included, when the
+ * solver last improved the order, how far the first order found (nearest
+ * neighbour with 2-opt and Or-opt) and the final order are above the best
+ * known, how often the order is proven optimal, and the gap between the
+ * best known and the spanning tree lower bound. The best known is the
+ * Held-Karp optimum where the longest limit proves one and otherwise the
+ * best order of any limit.
+ * Usage: java backend.bench.TourQuality [grid:SIDE|geometric:N] [trials]
+ */
+public class TourQuality
+{
+    private static final int[] STOPS = {8, 12, 16, 20, 30, 50};
+    private static final long[] LIMITS = {1, 10, 100, 1000};
+
+    public static void main(String[] args) throws IOException
+    {
+        String spec = args.length > 0 ? args[0] : "grid:300";
+        int trials = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        CampusGraph rpi = new CampusGraph(0);
+        rpi.createGraph(BenchMaps.RPI_NODES, BenchMaps.RPI_EDGES);
+        run("rpi", rpi, trials);
+        File nodes = File.createTempFile("campus-nodes", ".csv");
+        File edges = File.createTempFile("campus-edges", ".csv");
+        nodes.deleteOnExit();
+        edges.deleteOnExit();
+        SyntheticCampus.parse(spec).writeCsv(nodes.getPath(), edges.getPath());
+        CampusGraph synthetic = new CampusGraph(0);
+        synthetic.createGraph(nodes.getPath(), edges.getPath());
+        run(spec, synthetic, trials);
+    }
+
+    private static void run(String name, CampusGraph graph, int trials)
+    {
+        ArrayList<String> ids = new ArrayList<>();
+        Iterator<String> buildings = graph.listAllBuildings();
+        while(buildings.hasNext())
+        {
+            String line = buildings.next();
+            ids.add(line.substring(line.lastIndexOf(',') + 1));
+        }
+        // only stops that reach one another make a tour; keep the buildings
+        // the first one of the largest connected group reaches
+        String[] all = ids.toArray(new String[0]);
+        ArrayList<String> connected = new ArrayList<>();
+        for(String from: all)
+        {
+            ArrayList<String> reached = new ArrayList<>();
+            double[] distances = graph.distancesFrom(from, all);
+            for(int i = 0; i < all.length; i++)
+            {
+                if(distances[i] < Double.POSITIVE_INFINITY)
+                    reached.add(all[i]);
+            }
+            if(reached.size() > connected.size())
+                connected = reached;
+            if(2 * connected.size() > all.length)
+                break;
+        }
+        ids = connected;
+        System.out.printf("%s buildings=%d reachable=%d trials=%d%n", name, all.length, ids.size(), trials);
+        Random random = new Random(7);
+        // the JIT compiles the solver before anything is timed
+        for(int warm = 0; warm < 20; warm++)
+        {
+            Collections.shuffle(ids, random);
+            graph.planTour(ids.subList(0, Math.min(30, ids.size())).toArray(new String[0]), true,
+                    RoutingProfile.SHORTEST, 20);
+        }
+        for(int n: STOPS)
+        {
+            if(n > ids.size())
+                break;
+            Tour[][] tours = new Tour[trials][LIMITS.length];
+            long[][] nanos = new long[trials][LIMITS.length];
+            double[] bestKnown = new double[trials];
+            boolean[] proven = new boolean[trials];
+            for(int t = 0; t < trials; t++)
+            {
+                Collections.shuffle(ids, random);
+                String[] stops = ids.subList(0, n).toArray(new String[0]);
+                bestKnown[t] = Double.POSITIVE_INFINITY;
+                for(int l = 0; l < LIMITS.length; l++)
+                {
+                    long start = System.nanoTime();
+                    tours[t][l] = graph.planTour(stops, true, RoutingProfile.SHORTEST, LIMITS[l]);
+                    nanos[t][l] = System.nanoTime() - start;
+                    bestKnown[t] = Math.min(bestKnown[t], tours[t][l].getCost());
+                    proven[t] |= tours[t][l].isOptimal();
+                }
+            }
+            for(int l = 0; l < LIMITS.length; l++)
+            {
+                double time = 0;
+                double settled = 0;
+                double firstGap = 0;
+                double gap = 0;
+                double boundGap = 0;
+                int optimal = 0;
+                int reached = 0;
+                for(int t = 0; t < trials; t++)
+                {
+                    Tour tour = tours[t][l];
+                    double[] costs = tour.getCosts();
+                    time += nanos[t][l];
+                    long[] improved = tour.getNanos();
+                    settled += improved[improved.length - 1];
+                    firstGap += costs[0] / bestKnown[t] - 1;
+                    gap += tour.getCost() / bestKnown[t] - 1;
+                    boundGap += bestKnown[t] / tour.getLowerBound() - 1;
+                    if(tour.isOptimal())
+                        optimal++;
+                    if(tour.getCost() == bestKnown[t])
+                        reached++;
+                }
+                System.out.printf("  n=%2d limit=%4d ms  %9.2f ms/tour  last better %7.2f ms  first +%5.2f%%  final +%5.2f%%"
+                                + "  at best %d/%d  optimal %d/%d  best over bound +%5.1f%%%s%n",
+                        n, LIMITS[l], time / 1e6 / trials, settled / 1e6 / trials, 100 * firstGap / trials, 100 * gap / trials,
+                        reached, trials, optimal, trials, 100 * boundGap / trials,
+                        allProven(proven) ? "" : " (best known, not proven)");
+            }
+        }
+    }
+
+    private static boolean allProven(boolean[] proven)
+    {
+        for(boolean p: proven)
+        {
+            if(!p)
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,94 @@
+package backend.bench;
+
+import backend.CampusGraph;
+import backend.MapQuality;
+import backend.SearchMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <b>UnreachableQueries</b> times findRoute between buildings in different
+ * components, which the map's components answer before any search, against
+ * the same number of queries between buildings of the largest component,
+ * on the RPI map and on a synthetic one with a strip of its buildings cut
+ * off. It also times building the MapQuality report.
+ * Usage: java backend.bench.UnreachableQueries [grid:SIDE|geometric:N] [queries]
+ */
+public class UnreachableQueries
+{
+    public static void main(String[] args) throws IOException
+    {
+        String spec = args.length > 0 ? args[0] : "grid:300";
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        CampusGraph rpi = new CampusGraph(0);
+        rpi.createGraph(BenchMaps.RPI_NODES, BenchMaps.RPI_EDGES);
+        run("rpi", rpi, queries);
+        SyntheticCampus campus = SyntheticCampus.parse(spec);
+        File nodes = File.createTempFile("campus-nodes", ".csv");
+        File edges = File.createTempFile("campus-edges", ".csv");
+        nodes.deleteOnExit();
+        edges.deleteOnExit();
+        campus.writeCsv(nodes.getPath(), edges.getPath());
+        CampusGraph synthetic = new CampusGraph(0);
+        synthetic.createGraph(nodes.getPath(), edges.getPath());
+        // close every walkway into the last 50 nodes, leaving them a component of their own
+        for(int e = 0; e < campus.edgeFrom.length; e++)
+        {
+            int u = campus.edgeFrom[e];
+            int v = campus.edgeTo[e];
+            if((u >= campus.size - 50) != (v >= campus.size - 50))
+                synthetic.closeEdge(Integer.toString(u), Integer.toString(v));
+        }
+        run(spec + " with the last 50 nodes cut off", synthetic, queries / 10);
+    }
+
+    private static void run(String name, CampusGraph graph, int queries)
+    {
+        long start = System.nanoTime();
+        MapQuality quality = graph.getMapQuality();
+        long qualityNanos = System.nanoTime() - start;
+        List<String> cutOff = quality.getCutOff();
+        ArrayList<String> main = new ArrayList<>();
+        Iterator<String> buildings = graph.listAllBuildings();
+        while(buildings.hasNext())
+        {
+            String line = buildings.next();
+            String building = line.substring(0, line.lastIndexOf(','));
+            if(!cutOff.contains(building))
+                main.add(building);
+        }
+        System.out.printf("%s: %d components, %d buildings cut off, report %.1f us%n", name,
+                quality.getComponents(), cutOff.size(), qualityNanos / 1e3);
+        if(cutOff.isEmpty())
+            return;
+        long chars = 0;
+        for(int warm = 0; warm < 3; warm++)
+        {
+            start = System.nanoTime();
+            for(int q = 0; q < queries; q++)
+            {
+                chars += graph.findRoute(main.get(q % main.size()), cutOff.get(q % cutOff.size()),
+                        SearchMode.DIJKSTRA).getFrom().length();
+            }
+            long unreachable = System.nanoTime() - start;
+            start = System.nanoTime();
+            for(int q = 0; q < queries; q++)
+            {
+                chars += graph.findRoute(main.get(q % main.size()), main.get((7 * q + 3) % main.size()),
+                        SearchMode.DIJKSTRA).getFrom().length();
+            }
+            long reachable = System.nanoTime() - start;
+            if(warm == 2)
+            {
+                System.out.printf("  unreachable %10.2f us/query%n  reachable   %10.2f us/query%n",
+                        unreachable / 1e3 / queries, reachable / 1e3 / queries);
+            }
+        }
+        if(chars == 0)
+            throw new AssertionError();
+    }
+}
@@ -0,0 +1,78 @@
+package backend.jmh;
+
+import backend.CampusGraph;
+import backend.SearchMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CampusGraph.findPath end to end, name resolution through formatting, on
+ * the RPI map with the route cache disabled. Each invocation takes the next
+ * pair of a fixed shuffled list of building pairs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindPathBenchmark
+{
+    @Param({"DIJKSTRA", "ASTAR", "BIDIRECTIONAL_ASTAR", "CONTRACTION_HIERARCHY", "BUILDING_TABLE"})
+    public SearchMode mode;
+
+    private CampusGraph campus;
+    private String[] from;
+    private String[] to;
+    private int next;
+
+    @Setup
+    public void setup()
+    {
+        MapFixture fixture = MapFixture.of("rpi");
+        campus = new CampusGraph(0);
+        campus.createGraph(fixture.nodeFilename, fixture.edgeFilename);
+        if(mode == SearchMode.CONTRACTION_HIERARCHY)
+            campus.createHierarchy();
+        if(mode == SearchMode.BUILDING_TABLE)
+            campus.createBuildingTable();
+        ArrayList<String> names = new ArrayList<>();
+        Iterator<String> buildings = campus.listAllBuildings();
+        while(buildings.hasNext())
+        {
+            String line = buildings.next();
+            names.add(line.substring(0, line.lastIndexOf(',')));
+        }
+        int pairs = names.size() * names.size();
+        from = new String[pairs];
+        to = new String[pairs];
+        for(int i = 0; i < pairs; i++)
+        {
+            // stride through the pairs so consecutive queries differ in both ends
+            int p = (int) ((i * 7919L) % pairs);
+            from[i] = names.get(p / names.size());
+            to[i] = names.get(p % names.size());
+        }
+    }
+
+    @Benchmark
+    public String findPath()
+    {
+        int i = next;
+        next = i + 1 == from.length ? 0 : i + 1;
+        return campus.findPath(from[i], to[i], mode);
+    }
+}
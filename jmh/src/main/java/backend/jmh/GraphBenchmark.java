@@ -0,0 +1,50 @@
+package backend.jmh;
+
+import backend.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of Graph.getAllChildren, measured over every node of the map so the
+ * score is per full adjacency scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphBenchmark
+{
+    @Param({"rpi", "grid:100"})
+    public String map;
+
+    private Graph<String,String> graph;
+    private String[] nodes;
+
+    @Setup
+    public void setup()
+    {
+        graph = MapFixture.of(map).load().graph;
+        nodes = graph.getAllNodes().toArray(new String[0]);
+    }
+
+    @Benchmark
+    public void getAllChildren(Blackhole blackhole)
+    {
+        for(String node: nodes)
+            blackhole.consume(graph.getAllChildren(node));
+    }
+}
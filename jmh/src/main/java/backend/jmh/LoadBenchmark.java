@@ -0,0 +1,47 @@
+package backend.jmh;
+
+import backend.CampusGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to load a map from CSV through CampusGraph.createGraph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark
+{
+    @Param({"rpi", "grid:100", "geometric:10000", "geometric:100000"})
+    public String map;
+
+    private MapFixture fixture;
+
+    @Setup
+    public void setup()
+    {
+        fixture = MapFixture.of(map);
+    }
+
+    @Benchmark
+    public CampusGraph createGraph()
+    {
+        CampusGraph campus = new CampusGraph(0);
+        campus.createGraph(fixture.nodeFilename, fixture.edgeFilename);
+        return campus;
+    }
+}
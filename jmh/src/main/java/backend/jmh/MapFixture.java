@@ -0,0 +1,87 @@
+package backend.jmh;
+
+import backend.CompactGraph;
+import backend.Coordinate;
+import backend.bench.BenchMaps;
+import backend.bench.SyntheticCampus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/**
+ * <b>MapFixture</b> resolves the "map" parameter shared by the benchmarks:
+ * "rpi" is the bundled data set, read from the directory named by the
+ * campuspath.data system property (default backend/data, i.e. run from the
+ * project root); "grid:&lt;side&gt;" and "geometric:&lt;nodes&gt;" are
+ * generated by SyntheticCampus and written to temporary CSV files when a
+ * benchmark needs to load them from disk.
+ */
+final class MapFixture
+{
+    final String nodeFilename;
+    final String edgeFilename;
+    private final String spec;
+    private SyntheticCampus synthetic;
+
+    private MapFixture(String spec, String nodeFilename, String edgeFilename, SyntheticCampus synthetic)
+    {
+        this.spec = spec;
+        this.nodeFilename = nodeFilename;
+        this.edgeFilename = edgeFilename;
+        this.synthetic = synthetic;
+    }
+
+    static MapFixture of(String spec)
+    {
+        if(spec.equals("rpi"))
+        {
+            String dir = System.getProperty("campuspath.data", "backend/data");
+            return new MapFixture(spec, dir + "/RPI_map_data_Nodes.csv", dir + "/RPI_map_data_Edges.csv", null);
+        }
+        SyntheticCampus campus = SyntheticCampus.parse(spec);
+        try {
+            File nodes = Files.createTempFile("campus-nodes", ".csv").toFile();
+            File edges = Files.createTempFile("campus-edges", ".csv").toFile();
+            nodes.deleteOnExit();
+            edges.deleteOnExit();
+            campus.writeCsv(nodes.getPath(), edges.getPath());
+            return new MapFixture(spec, nodes.getPath(), edges.getPath(), campus);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @returns   the map as a mutable Graph plus coordinates.
+     */
+    BenchMaps load()
+    {
+        return synthetic == null ? BenchMaps.rpi(nodeFilename, edgeFilename) : BenchMaps.of(synthetic);
+    }
+
+    /**
+     * @returns   the x and y coordinate of every node of graph, by index.
+     */
+    static double[][] positions(BenchMaps map, CompactGraph<String> graph)
+    {
+        double[][] xy = new double[2][graph.size()];
+        for(int i = 0; i < graph.size(); i++)
+        {
+            Coordinate coordinate = map.coordinates.get(graph.node(i));
+            if(coordinate != null)
+            {
+                xy[0][i] = coordinate.getX();
+                xy[1][i] = coordinate.getY();
+            }
+        }
+        return xy;
+    }
+
+    @Override
+    public String toString()
+    {
+        return spec;
+    }
+}
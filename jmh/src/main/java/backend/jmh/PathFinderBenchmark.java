@@ -0,0 +1,134 @@
+package backend.jmh;
+
+import backend.CompactGraph;
+import backend.Graph;
+import backend.PathFinder;
+import backend.SearchWorkspace;
+import backend.bench.BenchMaps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-to-point searches for a short, a long and an unreachable pair.
+ * The short pair is the tenth nearest node to the source, the long pair is
+ * the farthest node reachable from it, and the unreachable target is an
+ * isolated node added to every map. Run with -p map=grid:1000 (and so on)
+ * to produce scaling curves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathFinderBenchmark
+{
+    private static final String ISOLATED = "isolated";
+
+    @Param({"rpi", "grid:100", "geometric:100000"})
+    public String map;
+
+    @Param({"short", "long", "unreachable"})
+    public String pair;
+
+    private Graph<String,String> graph;
+    private CompactGraph<String> compact;
+    private CompactGraph<String> transpose;
+    private double[] xs;
+    private double[] ys;
+    private int source;
+    private int target;
+    private SearchWorkspace workspace;
+
+    @Setup
+    public void setup()
+    {
+        BenchMaps loaded = MapFixture.of(map).load();
+        graph = loaded.graph;
+        graph.addNode(ISOLATED);
+        compact = graph.freeze();
+        transpose = compact.transpose();
+        double[][] xy = MapFixture.positions(loaded, compact);
+        xs = xy[0];
+        ys = xy[1];
+        workspace = new SearchWorkspace(compact.size());
+
+        source = compact.indexOf(graph.getAllNodes().iterator().next());
+        if(source == compact.indexOf(ISOLATED))
+            source = (source + 1) % compact.size();
+        PathFinder.dijkstra(compact, source, -1, workspace);
+        int farthest = source;
+        int shortTarget = source;
+        double[] nearest = new double[10];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        for(int v = 0; v < compact.size(); v++)
+        {
+            if(!workspace.reached(v) || v == source)
+                continue;
+            double d = workspace.distance(v);
+            if(d > workspace.distance(farthest))
+                farthest = v;
+            // keep the ten smallest distances; the last one is the short pair
+            if(d < nearest[9])
+            {
+                int i = 9;
+                for(; i > 0 && nearest[i - 1] > d; i--)
+                    nearest[i] = nearest[i - 1];
+                nearest[i] = d;
+            }
+        }
+        for(int v = 0; v < compact.size(); v++)
+        {
+            if(workspace.reached(v) && v != source && workspace.distance(v) == nearest[9])
+                shortTarget = v;
+        }
+        switch(pair)
+        {
+            case "short":
+                target = shortTarget;
+                break;
+            case "long":
+                target = farthest;
+                break;
+            default:
+                target = compact.indexOf(ISOLATED);
+        }
+    }
+
+    @Benchmark
+    public HashMap<String,Double> boxedDijkstra()
+    {
+        return PathFinder.dijkstra(compact.node(source), compact.node(target), graph, new HashMap<>(), false);
+    }
+
+    @Benchmark
+    public double primitiveDijkstra()
+    {
+        return PathFinder.dijkstra(compact, source, target, workspace);
+    }
+
+    @Benchmark
+    public double astar()
+    {
+        return PathFinder.astar(compact, xs, ys, source, target, workspace);
+    }
+
+    @Benchmark
+    public double bidirectionalAstar()
+    {
+        return PathFinder.bidirectionalAstar(compact, transpose, xs, ys, source, target, workspace);
+    }
+}
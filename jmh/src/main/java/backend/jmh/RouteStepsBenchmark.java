@@ -0,0 +1,130 @@
+package backend.jmh;
+
+import backend.CompactGraph;
+import backend.Coordinate;
+import backend.Direction;
+import backend.PathFinder;
+import backend.SearchWorkspace;
+import backend.bench.BenchMaps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-step work of turning a long route into directions: classifying
+ * every step with atan2 and the angle ladder, as every query used to, with
+ * the octant table, or by looking up the direction of the arc classified
+ * when the map was loaded; and the step length with Math.pow against
+ * Coordinate.distance. The route is the one to the node farthest from the
+ * first node of the map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteStepsBenchmark
+{
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    @Param({"rpi", "grid:300"})
+    public String map;
+
+    private CompactGraph<String> compact;
+    private Coordinate[] coordinates;
+    private byte[] directions;
+    private int[] path;
+
+    @Setup
+    public void setup()
+    {
+        BenchMaps loaded = MapFixture.of(map).load();
+        compact = loaded.graph.freeze();
+        coordinates = new Coordinate[compact.size()];
+        for(int i = 0; i < compact.size(); i++)
+            coordinates[i] = loaded.coordinates.get(compact.node(i));
+        // classified once per arc, as CampusMap does when a map is loaded
+        directions = new byte[compact.edgeCount()];
+        for(int u = 0; u < compact.size(); u++)
+        {
+            for(int e = compact.firstEdge(u); e < compact.endEdge(u); e++)
+            {
+                Coordinate to = coordinates[compact.target(e)];
+                directions[e] = (byte) Direction.of(to.getX() - coordinates[u].getX(),
+                        to.getY() - coordinates[u].getY()).ordinal();
+            }
+        }
+
+        SearchWorkspace workspace = new SearchWorkspace(compact.size());
+        PathFinder.dijkstra(compact, 0, -1, workspace);
+        int farthest = 0;
+        for(int v = 0; v < compact.size(); v++)
+        {
+            if(workspace.reached(v) && workspace.distance(v) > workspace.distance(farthest))
+                farthest = v;
+        }
+        path = new int[workspace.tracePath(farthest)];
+        for(int i = 0; i < path.length; i++)
+            path[i] = workspace.pathNode(i);
+    }
+
+    @Benchmark
+    public int angleLadder()
+    {
+        int sum = 0;
+        for(int i = 1; i < path.length; i++)
+            sum += Direction.ofAngle(Coordinate.angle(coordinates[path[i - 1]], coordinates[path[i]])).ordinal();
+        return sum;
+    }
+
+    @Benchmark
+    public int octantTable()
+    {
+        int sum = 0;
+        for(int i = 1; i < path.length; i++)
+            sum += Direction.of(coordinates[path[i - 1]], coordinates[path[i]]).ordinal();
+        return sum;
+    }
+
+    @Benchmark
+    public int arcDirection()
+    {
+        int sum = 0;
+        for(int i = 1; i < path.length; i++)
+            sum += DIRECTIONS[directions[compact.findEdge(path[i - 1], path[i])]].ordinal();
+        return sum;
+    }
+
+    @Benchmark
+    public double powDistance()
+    {
+        double sum = 0;
+        for(int i = 1; i < path.length; i++)
+        {
+            Coordinate a = coordinates[path[i - 1]];
+            Coordinate b = coordinates[path[i]];
+            sum += Math.sqrt(Math.pow(a.getX() - b.getX(), 2) + Math.pow(a.getY() - b.getY(), 2));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double distance()
+    {
+        double sum = 0;
+        for(int i = 1; i < path.length; i++)
+            sum += coordinates[path[i - 1]].distance(coordinates[path[i]]);
+        return sum;
+    }
+}